@@ -0,0 +1,69 @@
+package userservice.benchmark;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import userservice.benchmark.support.BenchmarkContext;
+import userservice.benchmark.support.Users;
+import userservice.model.User;
+import userservice.service.UserService;
+
+/**
+ * Inserts {@code users} rows per operation, once through {@link UserService#save} per user
+ * and once through the chunked, JDBC-batched {@link UserService#saveAll}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class BatchInsertBenchmark {
+    @Param({"100", "1000"})
+    private int users;
+
+    private BenchmarkContext context;
+    private UserService userService;
+    private List<User> batch;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = BenchmarkContext.start(Map.of());
+        userService = context.getBean(UserService.class);
+    }
+
+    @Setup(Level.Invocation)
+    public void prepareUsers() {
+        batch = Users.newUsers(users);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Benchmark
+    public void singleInserts() {
+        for (User user : batch) {
+            userService.save(user);
+        }
+    }
+
+    @Benchmark
+    public Map<Integer, String> batchInsert() {
+        return userService.saveAll(batch);
+    }
+}
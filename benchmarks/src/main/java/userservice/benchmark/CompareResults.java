@@ -0,0 +1,83 @@
+package userservice.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares two JMH JSON result files and exits with status 1 if any benchmark present in
+ * both got worse by more than the threshold (10% by default). Throughput counts as worse
+ * when it drops, every other mode when the score rises.
+ * <p>
+ * Usage: {@code CompareResults <baseline.json> <current.json> [thresholdPercent]}
+ */
+public final class CompareResults {
+    private static final String THROUGHPUT = "thrpt";
+    private static final double DEFAULT_THRESHOLD_PERCENT = 10;
+
+    private CompareResults() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println(
+                    "Usage: CompareResults <baseline.json> <current.json> [thresholdPercent]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2
+                ? Double.parseDouble(args[2])
+                : DEFAULT_THRESHOLD_PERCENT;
+        Map<String, JsonNode> baseline = read(new File(args[0]));
+        Map<String, JsonNode> current = read(new File(args[1]));
+
+        int regressions = 0;
+        for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+            JsonNode before = baseline.get(entry.getKey());
+            if (before == null) {
+                continue;
+            }
+            JsonNode after = entry.getValue();
+            double oldScore = before.at("/primaryMetric/score").asDouble();
+            double newScore = after.at("/primaryMetric/score").asDouble();
+            double change = (newScore - oldScore) / oldScore * 100;
+            double worsening = THROUGHPUT.equals(after.get("mode").asText()) ? -change : change;
+            boolean regressed = worsening > threshold;
+            if (regressed) {
+                regressions++;
+            }
+
+            System.out.printf("%-4s %-70s %12.3f -> %12.3f %s (%+.1f%%)%n",
+                    regressed ? "FAIL" : "ok", entry.getKey(), oldScore, newScore,
+                    after.at("/primaryMetric/scoreUnit").asText(), change);
+        }
+
+        System.out.printf("%d regression(s) over %.1f%%%n", regressions, threshold);
+        if (regressions > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, JsonNode> read(File file) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file)) {
+            results.put(key(result), result);
+        }
+        return results;
+    }
+
+    private static String key(JsonNode result) {
+        StringJoiner key = new StringJoiner(",", result.get("benchmark").asText()
+                .replaceFirst("^userservice\\.benchmark\\.", "") + "(", ")");
+        JsonNode params = result.path("params");
+        for (Iterator<Map.Entry<String, JsonNode>> it = params.fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> param = it.next();
+            key.add(param.getKey() + "=" + param.getValue().asText());
+        }
+        return key.toString();
+    }
+}
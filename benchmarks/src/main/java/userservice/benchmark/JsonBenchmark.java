@@ -0,0 +1,79 @@
+package userservice.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import userservice.benchmark.support.Users;
+import userservice.dto.UserRequestDto;
+import userservice.dto.UserResponseDto;
+import userservice.service.mapper.UserMapper;
+
+/**
+ * Jackson serialization of {@code size} response DTOs, as written by search and batch
+ * responses, and deserialization of a request body with its {@code dd.MM.yyyy} birthdate.
+ * The object mapper is built with the same Spring defaults the application uses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonBenchmark {
+    private static final ObjectMapper OBJECT_MAPPER = Jackson2ObjectMapperBuilder.json().build();
+
+    private ObjectWriter listWriter;
+    private ObjectReader requestReader;
+    private byte[] requestJson;
+
+    @Setup
+    public void createPayloads() throws IOException {
+        listWriter = OBJECT_MAPPER.writerFor(OBJECT_MAPPER.getTypeFactory()
+                .constructCollectionType(List.class, UserResponseDto.class));
+        requestReader = OBJECT_MAPPER.readerFor(UserRequestDto.class);
+        requestJson = OBJECT_MAPPER.writeValueAsString(Users.newRequestDto())
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] serializeResponses(Responses responses) throws IOException {
+        return listWriter.writeValueAsBytes(responses.responseDtos);
+    }
+
+    @Benchmark
+    public UserRequestDto deserializeRequest() throws IOException {
+        return requestReader.readValue(requestJson);
+    }
+
+    @State(Scope.Benchmark)
+    public static class Responses {
+        @Param({"1", "100", "1000"})
+        private int size;
+
+        private List<UserResponseDto> responseDtos;
+
+        @Setup
+        public void createResponses() {
+            UserMapper userMapper = new UserMapper();
+            responseDtos = Users.newUsers(size).stream()
+                    .map(userMapper::toDto)
+                    .toList();
+        }
+    }
+}
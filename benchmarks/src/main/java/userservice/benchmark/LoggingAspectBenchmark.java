@@ -0,0 +1,61 @@
+package userservice.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.stereotype.Service;
+import userservice.service.logging_aspect.LoggingAspect;
+
+/**
+ * Overhead {@link LoggingAspect} adds to a call it intercepts but doesn't log: the proxy,
+ * the per-method metrics lookup and the timer update. What sampled calls cost on top is
+ * measured by {@link LoggingThroughputBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoggingAspectBenchmark {
+    private EchoService directService;
+    private EchoService interceptedService;
+    private long id;
+
+    @Setup
+    public void createProxy() {
+        directService = new EchoService();
+
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new EchoService());
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(new LoggingAspect(new SimpleMeterRegistry()));
+        interceptedService = proxyFactory.getProxy();
+    }
+
+    @Benchmark
+    public Long direct() {
+        return directService.echo(++id);
+    }
+
+    @Benchmark
+    public Long intercepted() {
+        return interceptedService.echo(++id);
+    }
+
+    @Service
+    public static class EchoService {
+        public Long echo(Long id) {
+            return id;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package userservice.benchmark;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+import userservice.benchmark.support.BenchmarkContext;
+import userservice.benchmark.support.Users;
+import userservice.controller.UserController;
+import userservice.dto.UserResponseDto;
+import userservice.model.User;
+import userservice.service.UserService;
+
+/**
+ * Request throughput through the controller, service and repository layers with
+ * {@code LoggingAspect} logging switched off, sampled with the default rates, and
+ * logging every call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(4)
+@Fork(1)
+public class LoggingThroughputBenchmark {
+    @Param({"off", "sampled", "full"})
+    private String logging;
+
+    private BenchmarkContext context;
+    private UserController userController;
+    private List<User> users;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("logging.level.userservice.service.logging_aspect", "info");
+        properties.put("user.logging.enabled", !"off".equals(logging));
+        if ("full".equals(logging)) {
+            properties.put("user.logging.sample_rate.controller", 1.0);
+            properties.put("user.logging.sample_rate.service", 1.0);
+            properties.put("user.logging.sample_rate.repository", 1.0);
+        }
+
+        context = BenchmarkContext.start(properties);
+        userController = context.getBean(UserController.class);
+        users = Users.newUsers(1_000);
+        context.getBean(UserService.class).saveAll(users);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Benchmark
+    public ResponseEntity<UserResponseDto> findById() {
+        User user = users.get(ThreadLocalRandom.current().nextInt(users.size()));
+        return userController.findById(user.getId(), null);
+    }
+}
@@ -0,0 +1,94 @@
+package userservice.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import userservice.benchmark.support.BenchmarkContext;
+import userservice.benchmark.support.Users;
+import userservice.model.User;
+import userservice.service.UserService;
+
+/**
+ * Resolves 500 random ids, a tenth of them unknown, through {@link UserService#getByIds}
+ * and through one {@link UserService#get} per id. With {@code cache=warm} every known user
+ * is cached beforehand; with {@code off} the cache holds nothing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class LookupBenchmark {
+    private static final int USERS = 10_000;
+    private static final int IDS = 500;
+
+    @Param({"off", "warm"})
+    private String cache;
+
+    private BenchmarkContext context;
+    private UserService userService;
+    private List<User> users;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = BenchmarkContext.start(Map.of(
+                "user.cache.maximum_size", "off".equals(cache) ? 0 : USERS));
+        userService = context.getBean(UserService.class);
+        users = Users.newUsers(USERS);
+        userService.saveAll(users);
+        if ("warm".equals(cache)) {
+            users.forEach(user -> userService.get(user.getId()));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Benchmark
+    public Map<Long, User> lookup() {
+        return userService.getByIds(randomIds());
+    }
+
+    @Benchmark
+    public int individualGets() {
+        int found = 0;
+        for (Long id : randomIds()) {
+            try {
+                userService.get(id);
+                found++;
+            } catch (RuntimeException e) {
+                // unknown id
+            }
+        }
+        return found;
+    }
+
+    private List<Long> randomIds() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<Long> ids = new ArrayList<>(IDS);
+        for (int i = 0; i < IDS; i++) {
+            ids.add(i % 10 == 0
+                    ? -random.nextLong(1, Long.MAX_VALUE)
+                    : users.get(random.nextInt(USERS)).getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,51 @@
+package userservice.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import userservice.benchmark.support.Users;
+import userservice.dto.UserRequestDto;
+import userservice.dto.UserResponseDto;
+import userservice.model.User;
+import userservice.service.mapper.UserMapper;
+
+/**
+ * Cost of {@link UserMapper} conversions on every create, update and lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappingBenchmark {
+    private UserMapper userMapper;
+    private User user;
+    private UserRequestDto requestDto;
+
+    @Setup
+    public void createUsers() {
+        userMapper = new UserMapper();
+        user = Users.newUser();
+        user.setId(1L);
+        requestDto = Users.newRequestDto();
+    }
+
+    @Benchmark
+    public UserResponseDto toDto() {
+        return userMapper.toDto(user);
+    }
+
+    @Benchmark
+    public User toModel() {
+        return userMapper.toModel(requestDto);
+    }
+}
@@ -0,0 +1,170 @@
+package userservice.benchmark;
+
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import org.springframework.boot.WebApplicationType;
+import userservice.benchmark.support.BenchmarkContext;
+import userservice.benchmark.support.LoadGenerator;
+import userservice.benchmark.support.LoadGenerator.LabeledRequest;
+import userservice.benchmark.support.Users;
+import userservice.model.User;
+import userservice.service.UserService;
+
+/**
+ * Runs a mixed workload over HTTP against the application on an embedded PostgreSQL seeded
+ * with {@code -Dload.users} users (10,000 by default), and reports throughput, latency
+ * percentiles and errors per endpoint. Each endpoint's full latency distribution is written
+ * in HdrHistogram's percentile format to {@code target/load/<endpoint>.hgrm}.
+ * <p>
+ * {@code -Dload.mix} sets the relative weight of each endpoint, by default
+ * {@code create=10,get=40,email=25,patch=15,search=10}; endpoints left out aren't called.
+ * Also tunable with {@code -Dload.clients}, {@code -Dload.warmup} and {@code -Dload.duration}
+ * (seconds).
+ */
+public class MixedLoadTest {
+    private static final String DEFAULT_MIX = "create=10,get=40,email=25,patch=15,search=10";
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+    private static final LocalDate FIRST_BIRTHDATE = LocalDate.of(1950, 1, 1);
+    private static final int BIRTHDATE_DAYS = 18_000;
+    private static final int SEARCH_DAYS = 30;
+    private static final Path HISTOGRAM_DIRECTORY = Path.of("target", "load");
+
+    public static void main(String[] args) throws Exception {
+        int userCount = Integer.getInteger("load.users", 10_000);
+        int clients = Integer.getInteger("load.clients", 100);
+        Duration warmup = Duration.ofSeconds(Integer.getInteger("load.warmup", 10));
+        Duration duration = Duration.ofSeconds(Integer.getInteger("load.duration", 30));
+        Map<String, Integer> mix = parseMix(System.getProperty("load.mix", DEFAULT_MIX));
+
+        try (BenchmarkContext context = BenchmarkContext.start(WebApplicationType.SERVLET,
+                Map.of("server.port", 0))) {
+            List<User> users = Users.newUsers(userCount);
+            context.getBean(UserService.class).saveAll(users);
+            Supplier<LabeledRequest> requests =
+                    new Workload("http://localhost:" + context.port() + "/users", users, mix);
+
+            LoadGenerator.runMixed(clients, warmup, requests);
+            Map<String, LoadGenerator.Result> results =
+                    LoadGenerator.runMixed(clients, duration, requests);
+
+            Files.createDirectories(HISTOGRAM_DIRECTORY);
+            System.out.printf("%d clients, %d users, %s for %ds%n",
+                    clients, userCount, mix, duration.toSeconds());
+            LoadGenerator.Result total = null;
+            for (String endpoint : mix.keySet()) {
+                LoadGenerator.Result result = results.get(endpoint);
+                if (result == null) {
+                    continue;
+                }
+                System.out.printf("%-7s %s%n", endpoint + ":", result.summary());
+                writeHistogram(endpoint, result);
+                total = total == null ? result.copy() : total.merge(result);
+            }
+            if (total != null) {
+                System.out.printf("%-7s %s%n", "total:", total.summary());
+            }
+        }
+    }
+
+    private static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split("=");
+            if (parts.length != 2 || !Workload.ENDPOINTS.contains(parts[0])) {
+                throw new IllegalArgumentException("Invalid load.mix entry '" + entry
+                        + "', expected <endpoint>=<weight> with an endpoint out of "
+                        + Workload.ENDPOINTS);
+            }
+            weights.put(parts[0], Integer.parseInt(parts[1]));
+        }
+        return weights;
+    }
+
+    private static void writeHistogram(String endpoint, LoadGenerator.Result result)
+            throws FileNotFoundException {
+        Path file = HISTOGRAM_DIRECTORY.resolve(endpoint + ".hgrm");
+        try (PrintStream out = new PrintStream(file.toFile())) {
+            result.latencies().outputPercentileDistribution(out, 1_000_000.0);
+        }
+    }
+
+    /**
+     * Picks the next endpoint by weight and builds a request for a random seeded user.
+     */
+    private static final class Workload implements Supplier<LabeledRequest> {
+        static final List<String> ENDPOINTS = List.of("create", "get", "email", "patch", "search");
+
+        private final String baseUrl;
+        private final List<User> users;
+        private final String[] endpoints;
+        private final int[] cumulativeWeights;
+
+        Workload(String baseUrl, List<User> users, Map<String, Integer> mix) {
+            this.baseUrl = baseUrl;
+            this.users = users;
+            this.endpoints = mix.keySet().toArray(String[]::new);
+            this.cumulativeWeights = new int[endpoints.length];
+            int total = 0;
+            for (int i = 0; i < endpoints.length; i++) {
+                total += mix.get(endpoints[i]);
+                cumulativeWeights[i] = total;
+            }
+        }
+
+        @Override
+        public LabeledRequest get() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+            int index = 0;
+            while (pick >= cumulativeWeights[index]) {
+                index++;
+            }
+            String endpoint = endpoints[index];
+            User user = users.get(random.nextInt(users.size()));
+
+            return new LabeledRequest(endpoint, switch (endpoint) {
+                case "create" -> json(URI.create(baseUrl), "POST", toJson(Users.newUser()));
+                case "get" -> HttpRequest.newBuilder(URI.create(baseUrl + "/" + user.getId()))
+                        .GET().build();
+                case "email" -> HttpRequest.newBuilder(
+                        URI.create(baseUrl + "?email=" + user.getEmail())).GET().build();
+                case "patch" -> json(URI.create(baseUrl + "/" + user.getId()), "PATCH",
+                        "{\"address\":\"Kyiv, Khreshchatyk " + random.nextInt(100) + "\"}");
+                default -> {
+                    LocalDate from = FIRST_BIRTHDATE.plusDays(random.nextInt(BIRTHDATE_DAYS));
+                    yield HttpRequest.newBuilder(URI.create(baseUrl + "/search?from="
+                            + from.format(DATE_FORMAT) + "&to="
+                            + from.plusDays(SEARCH_DAYS).format(DATE_FORMAT))).GET().build();
+                }
+            });
+        }
+
+        private static HttpRequest json(URI uri, String method, String body) {
+            return HttpRequest.newBuilder(uri)
+                    .header("Content-Type", "application/json")
+                    .method(method, HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+        }
+
+        private static String toJson(User user) {
+            return "{\"email\":\"" + user.getEmail()
+                    + "\",\"firstname\":\"" + user.getFirstname()
+                    + "\",\"lastname\":\"" + user.getLastname()
+                    + "\",\"birthdate\":\"" + user.getBirthdate().format(DATE_FORMAT)
+                    + "\",\"address\":\"" + user.getAddress()
+                    + "\",\"phoneNumber\":\"" + user.getPhoneNumber() + "\"}";
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package userservice.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import userservice.benchmark.support.BenchmarkContext;
+import userservice.benchmark.support.Users;
+import userservice.exception.UserNotFoundException;
+import userservice.service.UserService;
+
+/**
+ * Cost of probing emails and ids that don't exist, with the existence filter enabled
+ * (answered in memory) and disabled (answered by the database).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class NotFoundBenchmark {
+    @Param({"true", "false"})
+    private boolean bloomEnabled;
+
+    private BenchmarkContext context;
+    private UserService userService;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = BenchmarkContext.start(Map.of("user.bloom.enabled", bloomEnabled));
+        userService = context.getBean(UserService.class);
+        userService.saveAll(Users.newUsers(10_000));
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object missingEmail() {
+        try {
+            return userService.findByEmail(
+                    "missing" + ThreadLocalRandom.current().nextLong() + "@example.com");
+        } catch (UserNotFoundException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object missingId() {
+        try {
+            return userService.get(ThreadLocalRandom.current().nextLong(1_000_000, Long.MAX_VALUE));
+        } catch (UserNotFoundException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object stackTraceException() {
+        return new RuntimeException("User with id 1 not found");
+    }
+
+    @Benchmark
+    public Object stacklessNotFoundException() {
+        return new UserNotFoundException("User with id 1 not found");
+    }
+}
@@ -0,0 +1,96 @@
+package userservice.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import userservice.benchmark.support.BenchmarkContext;
+import userservice.benchmark.support.Users;
+import userservice.model.User;
+import userservice.repository.UserRepository;
+import userservice.service.UserService;
+
+/**
+ * Runs {@link UserService#findByPrefix} for a random 1 to 4 character prefix of a random
+ * user's lastname, firstname or email, over {@code users} rows loaded with COPY.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PrefixSearchBenchmark {
+    private static final int COPY_CHUNK_SIZE = 50_000;
+    private static final int SAMPLE_SIZE = 10_000;
+    private static final int LIMIT = 10;
+    private static final String[] FIRSTNAMES = {"Anna", "Andrii", "Bohdan", "Daria", "Dmytro",
+            "Iryna", "Kateryna", "Mykola", "Oksana", "Oleh", "Olena", "Petro", "Sofiia", "Taras",
+            "Viktor", "Yulia"};
+    private static final String SYLLABLES = "ko,ven,sh,ch,uk,ly,ta,ra,mel,nyk,bo,da,ry,zy,ha,le";
+
+    @Param({"1000000"})
+    private int users;
+
+    private BenchmarkContext context;
+    private UserService userService;
+    private final List<String> values = new ArrayList<>(SAMPLE_SIZE);
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = BenchmarkContext.start(Map.of("user.bloom.enabled", false));
+        userService = context.getBean(UserService.class);
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        String[] syllables = SYLLABLES.split(",");
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        for (int copied = 0; copied < users; copied += COPY_CHUNK_SIZE) {
+            List<User> chunk = Users.newUsers(Math.min(COPY_CHUNK_SIZE, users - copied));
+            for (User user : chunk) {
+                StringBuilder lastname = new StringBuilder();
+                for (int i = random.nextInt(2, 5); i > 0; i--) {
+                    lastname.append(syllables[random.nextInt(syllables.length)]);
+                }
+                lastname.setCharAt(0, Character.toUpperCase(lastname.charAt(0)));
+                user.setLastname(lastname.toString());
+                user.setFirstname(FIRSTNAMES[random.nextInt(FIRSTNAMES.length)]);
+                if (values.size() < SAMPLE_SIZE) {
+                    values.add(switch (values.size() % 3) {
+                        case 0 -> user.getLastname();
+                        case 1 -> user.getFirstname();
+                        default -> user.getEmail();
+                    });
+                }
+            }
+            userRepository.copyAll(chunk);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<User> findByPrefix() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String value = values.get(random.nextInt(values.size()));
+
+        return userService.findByPrefix(
+                value.substring(0, Math.min(value.length(), random.nextInt(1, 5))), LIMIT);
+    }
+}
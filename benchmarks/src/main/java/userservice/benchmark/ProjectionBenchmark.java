@@ -0,0 +1,88 @@
+package userservice.benchmark;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import userservice.benchmark.support.BenchmarkContext;
+import userservice.benchmark.support.Users;
+import userservice.dto.UserResponseDto;
+import userservice.model.User;
+import userservice.service.UserService;
+import userservice.service.mapper.UserMapper;
+
+/**
+ * Reads a 10k-row birthdate range page once by hydrating managed entities and mapping them
+ * with {@link UserMapper}, and once through the DTO projection behind
+ * {@link UserService#findByBirthDateRange}. The default {@code gc} profiler reports the
+ * allocation per operation next to the latency.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ProjectionBenchmark {
+    private static final int ROWS = 10_000;
+    private static final LocalDate FROM = LocalDate.of(1900, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2100, 1, 1);
+    private static final String ENTITY_QUERY = "select u from User u"
+            + " where u.birthdate <= :to and (u.birthdate, u.id) > (:afterBirthdate, :afterId)"
+            + " order by u.birthdate, u.id";
+
+    private BenchmarkContext context;
+    private UserService userService;
+    private UserMapper userMapper;
+    private EntityManager entityManager;
+    private TransactionTemplate transactionTemplate;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = BenchmarkContext.start(Map.of("user.search.max_page_size", ROWS));
+        userService = context.getBean(UserService.class);
+        userMapper = context.getBean(UserMapper.class);
+        entityManager = context.getBean(EntityManager.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        userService.saveAll(Users.newUsers(ROWS));
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<UserResponseDto> entities() {
+        return transactionTemplate.execute(status -> entityManager
+                .createQuery(ENTITY_QUERY, User.class)
+                .setParameter("to", TO)
+                .setParameter("afterBirthdate", FROM)
+                .setParameter("afterId", Long.MIN_VALUE)
+                .setMaxResults(ROWS)
+                .getResultList().stream()
+                .map(userMapper::toDto)
+                .collect(Collectors.toList()));
+    }
+
+    @Benchmark
+    public List<UserResponseDto> projections() {
+        return userService.findByBirthDateRange(FROM, TO, null, ROWS).getContent();
+    }
+}
@@ -0,0 +1,217 @@
+package userservice.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import userservice.benchmark.support.BenchmarkContext;
+import userservice.benchmark.support.LoadGenerator;
+import userservice.benchmark.support.LoadGenerator.LabeledRequest;
+import userservice.benchmark.support.Users;
+import userservice.datasource.sharding.ShardDirectory;
+import userservice.datasource.sharding.ShardRebalancer;
+import userservice.model.User;
+import userservice.repository.UserRepository;
+import userservice.service.UserService;
+
+/**
+ * Adds a shard under load. {@code -Dload.users} users (10,000 by default) are seeded on two
+ * shards, then the application is restarted with a third one and rebalanced while
+ * {@code -Dload.clients} clients keep creating, reading and patching users over HTTP. The shards
+ * are databases of a single embedded PostgreSQL instance.
+ * <p>
+ * Afterwards every seeded user has to be found by id and by email, and every shard has to own,
+ * and hold rows of, exactly the slots the directory assigns it. Exits with status 1 otherwise.
+ */
+public class ShardRebalanceTest {
+    private static final int SHARDS = 3;
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+    private static final Duration ROUND = Duration.ofSeconds(5);
+    private static final String SELECT_OWNED_SLOTS = "select slot from owned_slots";
+    private static final String SELECT_IDS = "select id from users";
+
+    public static void main(String[] args) throws Exception {
+        int userCount = Integer.getInteger("load.users", 10_000);
+        int clients = Integer.getInteger("load.clients", 50);
+
+        try (EmbeddedPostgres postgres = BenchmarkContext.startPostgres()) {
+            List<String> urls = createShards(postgres);
+            List<User> users = Users.newUsers(userCount);
+            try (BenchmarkContext context = start(postgres, urls.subList(0, SHARDS - 1))) {
+                context.getBean(UserService.class).saveAll(users);
+            }
+
+            try (BenchmarkContext context = start(postgres, urls)) {
+                Map<String, LoadGenerator.Result> results = rebalanceUnderLoad(context, users,
+                        clients);
+                results.forEach((endpoint, result) ->
+                        System.out.printf("%-7s %s%n", endpoint + ":", result.summary()));
+
+                List<String> problems = new ArrayList<>();
+                checkUsers(context.getBean(UserRepository.class), users, problems);
+                checkShards(postgres, context.getBean(ShardDirectory.class), problems);
+                problems.forEach(System.out::println);
+                if (!problems.isEmpty()) {
+                    System.exit(1);
+                }
+                System.out.printf("All %d users found, every shard holds its own slots only%n",
+                        userCount);
+            }
+        }
+    }
+
+    private static List<String> createShards(EmbeddedPostgres postgres) {
+        JdbcTemplate template = new JdbcTemplate(postgres.getPostgresDatabase());
+        List<String> urls = new ArrayList<>(SHARDS);
+        for (int i = 0; i < SHARDS; i++) {
+            template.execute("create database " + shardName(i));
+            urls.add(postgres.getJdbcUrl("postgres", shardName(i)));
+        }
+        return urls;
+    }
+
+    private static BenchmarkContext start(EmbeddedPostgres postgres, List<String> shardUrls) {
+        return BenchmarkContext.start(postgres, WebApplicationType.SERVLET, Map.of(
+                "server.port", 0,
+                "spring.jpa.open-in-view", "false",
+                "user.admission.enabled", "false",
+                "user.datasource.shard.enabled", "true",
+                "user.datasource.shard.urls", String.join(",", shardUrls)));
+    }
+
+    /**
+     * Keeps the clients busy in rounds until the rebalance is done; writes to a slot that is
+     * being moved are answered with 503 and show up as errors.
+     */
+    private static Map<String, LoadGenerator.Result> rebalanceUnderLoad(
+            BenchmarkContext context, List<User> users, int clients) throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            ShardRebalancer rebalancer = context.getBean(ShardRebalancer.class);
+            Future<List<ShardRebalancer.SlotMove>> moves = executor.submit(rebalancer::rebalance);
+            Supplier<LabeledRequest> requests =
+                    new Workload("http://localhost:" + context.port() + "/users", users);
+
+            long start = System.nanoTime();
+            Map<String, LoadGenerator.Result> rounds = new LinkedHashMap<>();
+            while (!moves.isDone()) {
+                LoadGenerator.runMixed(clients, ROUND, requests)
+                        .forEach((endpoint, result) -> rounds.merge(endpoint, result,
+                                LoadGenerator.Result::merge));
+            }
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+            System.out.printf("Moved %d slots in %ds under %d clients%n",
+                    moves.get().size(), elapsed.toSeconds(), clients);
+
+            Map<String, LoadGenerator.Result> results = new LinkedHashMap<>();
+            rounds.forEach((endpoint, result) -> results.put(endpoint,
+                    new LoadGenerator.Result(result.latencies(), result.errors(), elapsed)));
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void checkUsers(UserRepository repository, List<User> users,
+                                   List<String> problems) {
+        for (User user : users) {
+            Optional<User> byId = repository.findById(user.getId());
+            if (byId.isEmpty() || !byId.get().getEmail().equals(user.getEmail())) {
+                problems.add("User " + user.getId() + " not found by id");
+            }
+            Optional<User> byEmail = repository.findByEmail(user.getEmail());
+            if (byEmail.isEmpty() || !byEmail.get().getId().equals(user.getId())) {
+                problems.add("User " + user.getId() + " not found by email");
+            }
+        }
+    }
+
+    private static void checkShards(EmbeddedPostgres postgres, ShardDirectory directory,
+                                    List<String> problems) {
+        directory.refresh();
+        int[] slotShards = directory.slotShards();
+        Set<Long> ids = new HashSet<>();
+        for (int shard = 0; shard < SHARDS; shard++) {
+            JdbcTemplate template =
+                    new JdbcTemplate(postgres.getDatabase("postgres", shardName(shard)));
+            Set<Integer> owned =
+                    new HashSet<>(template.queryForList(SELECT_OWNED_SLOTS, Integer.class));
+            int assigned = 0;
+            for (int slot = 0; slot < slotShards.length; slot++) {
+                if ((slotShards[slot] == shard) != owned.contains(slot)) {
+                    problems.add("Shard " + shard + " disagrees with the directory on slot "
+                            + slot);
+                }
+                assigned += slotShards[slot] == shard ? 1 : 0;
+            }
+            List<Long> shardIds = template.queryForList(SELECT_IDS, Long.class);
+            for (long id : shardIds) {
+                if (slotShards[ShardDirectory.slotOf(id)] != shard) {
+                    problems.add("User " + id + " left on shard " + shard);
+                }
+                if (!ids.add(id)) {
+                    problems.add("User " + id + " is on more than one shard");
+                }
+            }
+            System.out.printf("Shard %d: %d slots, %d users%n", shard, assigned,
+                    shardIds.size());
+        }
+    }
+
+    private static String shardName(int shard) {
+        return "shard" + shard;
+    }
+
+    /**
+     * Creates a user, or reads or patches a random seeded one, in equal parts.
+     */
+    private record Workload(String baseUrl, List<User> users) implements Supplier<LabeledRequest> {
+        @Override
+        public LabeledRequest get() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            User user = users.get(random.nextInt(users.size()));
+            URI userUri = URI.create(baseUrl + "/" + user.getId());
+
+            return switch (random.nextInt(4)) {
+                case 0 -> new LabeledRequest("create", json(URI.create(baseUrl), "POST",
+                        toJson(Users.newUser())));
+                case 1 -> new LabeledRequest("get", HttpRequest.newBuilder(userUri).GET().build());
+                case 2 -> new LabeledRequest("email", HttpRequest.newBuilder(
+                        URI.create(baseUrl + "?email=" + user.getEmail())).GET().build());
+                default -> new LabeledRequest("patch", json(userUri, "PATCH",
+                        "{\"address\":\"Kyiv, Khreshchatyk " + random.nextInt(100) + "\"}"));
+            };
+        }
+
+        private static HttpRequest json(URI uri, String method, String body) {
+            return HttpRequest.newBuilder(uri)
+                    .header("Content-Type", "application/json")
+                    .method(method, HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+        }
+
+        private static String toJson(User user) {
+            return "{\"email\":\"" + user.getEmail()
+                    + "\",\"firstname\":\"" + user.getFirstname()
+                    + "\",\"lastname\":\"" + user.getLastname()
+                    + "\",\"birthdate\":\"" + user.getBirthdate().format(DATE_FORMAT)
+                    + "\",\"address\":\"" + user.getAddress()
+                    + "\",\"phoneNumber\":\"" + user.getPhoneNumber() + "\"}";
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package userservice.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import userservice.benchmark.support.LoadGenerator;
+import userservice.benchmark.support.Users;
+import userservice.dto.UserBatchRequestDto;
+import userservice.dto.UserRequestDto;
+import userservice.model.User;
+
+/**
+ * Compares the servlet service with the WebFlux + R2DBC one under many concurrent clients.
+ * Both run as their own process from the packaged artifacts, against one embedded PostgreSQL
+ * and with equally sized connection pools; the servlet user cache is off so both answer every
+ * request from the database.
+ * <p>
+ * {@code -Dload.scenario=get} (default) fetches random users by id, {@code search} reads
+ * 30-day birthdate ranges. Also tunable with {@code -Dload.clients}, {@code -Dload.warmup} and
+ * {@code -Dload.duration} (seconds), {@code -Dload.servlet.jar} and {@code -Dload.reactive.jar}.
+ */
+public class StackLoadTest {
+    private static final int USERS = 10_000;
+    private static final int BATCH_SIZE = 1_000;
+    private static final int POOL_SIZE = 10;
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+
+    private static final HttpClient client = HttpClient.newHttpClient();
+    private static final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    public static void main(String[] args) throws Exception {
+        String scenario = System.getProperty("load.scenario", "get");
+        int clients = Integer.getInteger("load.clients", 1_000);
+        Duration warmup = Duration.ofSeconds(Integer.getInteger("load.warmup", 10));
+        Duration duration = Duration.ofSeconds(Integer.getInteger("load.duration", 30));
+        File servletJar = new File(System.getProperty("load.servlet.jar",
+                "../target/user-service-0.0.1-SNAPSHOT.war"));
+        File reactiveJar = new File(System.getProperty("load.reactive.jar",
+                "../reactive/target/user-service-reactive-0.0.1-SNAPSHOT.jar"));
+
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.start()) {
+            String database = "//localhost:" + postgres.getPort() + "/postgres";
+            String servletUrl = "http://localhost:" + freePort();
+            String reactiveUrl = "http://localhost:" + freePort();
+
+            Process servlet = start(servletJar, servletUrl,
+                    "--spring.datasource.url=jdbc:postgresql:" + database
+                            + "?reWriteBatchedInserts=true",
+                    "--spring.datasource.username=postgres",
+                    "--spring.datasource.password=postgres",
+                    "--spring.datasource.hikari.maximum-pool-size=" + POOL_SIZE,
+                    "--spring.jpa.show-sql=false",
+                    "--user.cache.maximum_size=0",
+                    "--user.logging.enabled=false");
+            Process reactive = null;
+            try {
+                awaitStartup(servletUrl);
+                List<Long> ids = seed(servletUrl);
+                reactive = start(reactiveJar, reactiveUrl,
+                        "--spring.r2dbc.url=r2dbc:postgresql:" + database,
+                        "--spring.r2dbc.username=postgres",
+                        "--spring.r2dbc.password=postgres",
+                        "--spring.r2dbc.pool.initial-size=" + POOL_SIZE,
+                        "--spring.r2dbc.pool.max-size=" + POOL_SIZE);
+                awaitStartup(reactiveUrl);
+
+                System.out.println("servlet:  "
+                        + run(servletUrl, scenario, ids, clients, warmup, duration));
+                System.out.println("reactive: "
+                        + run(reactiveUrl, scenario, ids, clients, warmup, duration));
+            } finally {
+                servlet.destroy();
+                if (reactive != null) {
+                    reactive.destroy();
+                }
+            }
+        }
+    }
+
+    private static String run(String baseUrl, String scenario, List<Long> ids, int clients,
+                              Duration warmup, Duration duration) {
+        Supplier<HttpRequest> requests = "search".equals(scenario)
+                ? () -> randomRange(baseUrl)
+                : () -> randomUser(baseUrl, ids);
+        LoadGenerator.run(clients, warmup, requests);
+
+        return LoadGenerator.run(clients, duration, requests).summary();
+    }
+
+    private static HttpRequest randomUser(String baseUrl, List<Long> ids) {
+        Long id = ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/users/" + id)).GET().build();
+    }
+
+    private static HttpRequest randomRange(String baseUrl) {
+        LocalDate from = LocalDate.of(1950, 1, 1)
+                .plusDays(ThreadLocalRandom.current().nextInt(USERS));
+        String to = from.plusDays(30).format(DATE_FORMAT);
+        return HttpRequest.newBuilder(URI.create(
+                        baseUrl + "/users/search?from=" + from.format(DATE_FORMAT) + "&to=" + to))
+                .GET()
+                .build();
+    }
+
+    private static List<Long> seed(String baseUrl) throws IOException, InterruptedException {
+        List<Long> ids = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i += BATCH_SIZE) {
+            UserBatchRequestDto batch = new UserBatchRequestDto();
+            batch.setUsers(Users.newUsers(BATCH_SIZE).stream()
+                    .map(StackLoadTest::toRequest)
+                    .toList());
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/users/batch"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(
+                            objectMapper.writeValueAsString(batch)))
+                    .build();
+            HttpResponse<String> response =
+                    client.send(request, HttpResponse.BodyHandlers.ofString());
+            for (JsonNode item : objectMapper.readTree(response.body())) {
+                ids.add(item.get("id").asLong());
+            }
+        }
+        return ids;
+    }
+
+    private static UserRequestDto toRequest(User user) {
+        UserRequestDto requestDto = new UserRequestDto();
+        requestDto.setEmail(user.getEmail());
+        requestDto.setFirstname(user.getFirstname());
+        requestDto.setLastname(user.getLastname());
+        requestDto.setBirthdate(user.getBirthdate());
+        requestDto.setAddress(user.getAddress());
+        requestDto.setPhoneNumber(user.getPhoneNumber());
+        return requestDto;
+    }
+
+    private static Process start(File jar, String baseUrl, String... properties)
+            throws IOException {
+        List<String> command = new ArrayList<>(List.of("java", "-jar", jar.getAbsolutePath(),
+                "--server.port=" + URI.create(baseUrl).getPort(),
+                "--logging.level.root=warn"));
+        command.addAll(List.of(properties));
+
+        return new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(new File("target", jar.getName() + ".log"))
+                .start();
+    }
+
+    private static void awaitStartup(String baseUrl) throws InterruptedException {
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        HttpRequest probe = HttpRequest.newBuilder(URI.create(baseUrl + "/users/0")).GET().build();
+        while (System.nanoTime() < deadline) {
+            try {
+                client.send(probe, HttpResponse.BodyHandlers.discarding());
+                return;
+            } catch (ConnectException e) {
+                Thread.sleep(500);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        throw new IllegalStateException(baseUrl + " didn't start within " + STARTUP_TIMEOUT);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
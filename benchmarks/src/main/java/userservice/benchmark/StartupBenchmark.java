@@ -0,0 +1,153 @@
+package userservice.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+/**
+ * Measures how long the packaged service takes from process start to answering its first
+ * request, against an embedded PostgreSQL whose schema the first (unmeasured) run migrates.
+ * <p>
+ * Runs the war as is ({@code jar}), and when the service was built with {@code -Paot}, the
+ * AOT-processed classes on a flat class path ({@code aot}) and the same with a class data sharing
+ * archive recorded by a training run first ({@code aot+cds}). Tunable with
+ * {@code -Dstartup.runs}, {@code -Dstartup.war} and {@code -Dstartup.classes} (the
+ * {@code -classes.jar}, whose {@code cds/lib} sibling holds the dependencies).
+ */
+public class StartupBenchmark {
+    private static final String MAIN_CLASS = "userservice.UserServiceApplication";
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+    private static final long PROBE_INTERVAL_MILLIS = 5;
+
+    private static final HttpClient client = HttpClient.newHttpClient();
+
+    public static void main(String[] args) throws Exception {
+        int runs = Integer.getInteger("startup.runs", 5);
+        File war = new File(System.getProperty("startup.war",
+                "../target/user-service-0.0.1-SNAPSHOT.war"));
+        File classes = new File(System.getProperty("startup.classes",
+                "../target/user-service-0.0.1-SNAPSHOT-classes.jar"));
+        File lib = new File(classes.getParentFile(), "cds/lib");
+        File archive = new File("target", "application.jsa");
+
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.start()) {
+            List<String> properties = List.of(
+                    "--spring.datasource.url=jdbc:postgresql://localhost:" + postgres.getPort()
+                            + "/postgres",
+                    "--spring.datasource.username=postgres",
+                    "--spring.datasource.password=postgres",
+                    "--spring.jpa.show-sql=false",
+                    "--user.logging.enabled=false",
+                    "--logging.level.root=warn");
+            List<String> jar = List.of("-jar", war.getAbsolutePath());
+            timeToFirstResponse(jar, properties);
+            System.out.println("jar:     " + summary(runs, jar, properties));
+
+            if (!lib.isDirectory()) {
+                System.out.println("No " + lib + ", build the service with -Paot to compare "
+                        + "AOT and CDS startup");
+                return;
+            }
+            String classPath = classes.getAbsolutePath() + File.pathSeparator
+                    + new File(lib, "*").getAbsolutePath();
+            List<String> aot = List.of("-Dspring.aot.enabled=true", "-cp", classPath, MAIN_CLASS);
+            System.out.println("aot:     " + summary(runs, aot, properties));
+
+            train(archive, aot, properties);
+            List<String> cds = new ArrayList<>(
+                    List.of("-XX:SharedArchiveFile=" + archive.getAbsolutePath()));
+            cds.addAll(aot);
+            System.out.println("aot+cds: " + summary(runs, cds, properties));
+        }
+    }
+
+    private static String summary(int runs, List<String> jvmArguments, List<String> properties)
+            throws IOException, InterruptedException {
+        long[] millis = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            millis[i] = timeToFirstResponse(jvmArguments, properties);
+        }
+        Arrays.sort(millis);
+
+        return String.format("first response after min %d ms, median %d ms, max %d ms",
+                millis[0], millis[runs / 2], millis[runs - 1]);
+    }
+
+    private static long timeToFirstResponse(List<String> jvmArguments, List<String> properties)
+            throws IOException, InterruptedException {
+        int port = freePort();
+        long start = System.nanoTime();
+        Process process = start(jvmArguments, properties, "--server.port=" + port);
+        try {
+            awaitFirstResponse(process, URI.create("http://localhost:" + port + "/users/0"));
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    /**
+     * Records the classes a startup loads into {@code archive}; the context exits once refreshed.
+     */
+    private static void train(File archive, List<String> aot, List<String> properties)
+            throws IOException, InterruptedException {
+        List<String> jvmArguments = new ArrayList<>(List.of(
+                "-XX:ArchiveClassesAtExit=" + archive.getAbsolutePath(),
+                "-Dspring.context.exit=onRefresh"));
+        jvmArguments.addAll(aot);
+        Process process = start(jvmArguments, properties, "--server.port=" + freePort());
+        if (process.waitFor() != 0 || !archive.isFile()) {
+            throw new IllegalStateException("CDS training run failed, see target/startup.log");
+        }
+    }
+
+    private static Process start(List<String> jvmArguments, List<String> properties,
+                                 String port) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add("java");
+        command.addAll(jvmArguments);
+        command.addAll(properties);
+        command.add(port);
+
+        return new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(new File("target", "startup.log"))
+                .start();
+    }
+
+    private static void awaitFirstResponse(Process process, URI uri) throws InterruptedException {
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        HttpRequest probe = HttpRequest.newBuilder(uri).GET().build();
+        while (System.nanoTime() < deadline && process.isAlive()) {
+            try {
+                client.send(probe, HttpResponse.BodyHandlers.discarding());
+                return;
+            } catch (ConnectException e) {
+                Thread.sleep(PROBE_INTERVAL_MILLIS);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        throw new IllegalStateException(uri + " didn't answer within " + STARTUP_TIMEOUT
+                + ", see target/startup.log");
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
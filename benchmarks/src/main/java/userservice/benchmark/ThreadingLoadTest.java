@@ -0,0 +1,60 @@
+package userservice.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import org.springframework.boot.WebApplicationType;
+import userservice.benchmark.support.BenchmarkContext;
+import userservice.benchmark.support.LoadGenerator;
+import userservice.benchmark.support.Users;
+import userservice.model.User;
+import userservice.service.UserService;
+
+/**
+ * Compares throughput and latency of {@code GET /users/{id}} with Tomcat on platform threads
+ * and on virtual threads. The user cache is off, so every request blocks on JDBC.
+ * <p>
+ * Tunable with {@code -Dload.clients}, {@code -Dload.warmup} and {@code -Dload.duration}
+ * (seconds). The virtual-thread run needs Java 21 or newer and is skipped otherwise.
+ */
+public class ThreadingLoadTest {
+    private static final int USERS = 10_000;
+
+    public static void main(String[] args) {
+        int clients = Integer.getInteger("load.clients", 400);
+        Duration warmup = Duration.ofSeconds(Integer.getInteger("load.warmup", 10));
+        Duration duration = Duration.ofSeconds(Integer.getInteger("load.duration", 30));
+
+        System.out.println("platform: " + run(false, clients, warmup, duration));
+        if (Runtime.version().feature() >= 21) {
+            System.out.println("virtual:  " + run(true, clients, warmup, duration));
+        } else {
+            System.out.println("virtual:  skipped, requires Java 21 (running "
+                    + Runtime.version().feature() + ")");
+        }
+    }
+
+    private static String run(boolean virtualThreads, int clients,
+                              Duration warmup, Duration duration) {
+        try (BenchmarkContext context = BenchmarkContext.start(WebApplicationType.SERVLET, Map.of(
+                "server.port", 0,
+                "spring.threads.virtual.enabled", virtualThreads,
+                "user.cache.maximum_size", 0,
+                "user.logging.enabled", false))) {
+            List<User> users = Users.newUsers(USERS);
+            context.getBean(UserService.class).saveAll(users);
+            String baseUrl = "http://localhost:" + context.port() + "/users/";
+
+            LoadGenerator.run(clients, warmup, () -> randomUser(baseUrl, users));
+            return LoadGenerator.run(clients, duration, () -> randomUser(baseUrl, users)).summary();
+        }
+    }
+
+    private static HttpRequest randomUser(String baseUrl, List<User> users) {
+        User user = users.get(ThreadLocalRandom.current().nextInt(users.size()));
+        return HttpRequest.newBuilder(URI.create(baseUrl + user.getId())).GET().build();
+    }
+}
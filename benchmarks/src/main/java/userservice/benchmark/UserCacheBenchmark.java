@@ -0,0 +1,83 @@
+package userservice.benchmark;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import userservice.benchmark.support.BenchmarkContext;
+import userservice.benchmark.support.Users;
+import userservice.model.User;
+import userservice.service.UserService;
+import userservice.service.cache.UserCache;
+
+/**
+ * Latency of {@link UserService#get} and {@link UserService#findByEmail} when a
+ * {@code hitRatio} share of lookups is served by the cache. Misses are forced by evicting
+ * the key right before the lookup, so a ratio of 0 approximates the uncached service.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class UserCacheBenchmark {
+    private static final int USERS = 10_000;
+
+    @Param({"0.0", "0.5", "0.9", "0.99"})
+    private double hitRatio;
+
+    private BenchmarkContext context;
+    private UserService userService;
+    private UserCache userCache;
+    private List<User> users;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = BenchmarkContext.start(Map.of("user.cache.maximum_size", USERS));
+        userService = context.getBean(UserService.class);
+        userCache = context.getBean(UserCache.class);
+        users = Users.newUsers(USERS);
+        userService.saveAll(users);
+        users.forEach(user -> userService.get(user.getId()));
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Benchmark
+    public User getById() {
+        User user = nextUser();
+        return userService.get(user.getId());
+    }
+
+    @Benchmark
+    public User findByEmail() {
+        User user = nextUser();
+        return userService.findByEmail(user.getEmail());
+    }
+
+    private User nextUser() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        User user = users.get(random.nextInt(USERS));
+        if (random.nextDouble() >= hitRatio) {
+            userCache.evict(user.getId());
+        }
+        return user;
+    }
+}
@@ -0,0 +1,77 @@
+package userservice.benchmark;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.DirectFieldAccessor;
+import userservice.benchmark.support.Users;
+import userservice.dto.UserRequestDto;
+import userservice.model.User;
+import userservice.service.validation.UserValidator;
+
+/**
+ * Bean validation of a create request, valid and with a phone number failing the
+ * {@code +380} pattern, and the age rule applied on top of it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValidationBenchmark {
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+    private UserValidator userValidator;
+    private UserRequestDto validRequest;
+    private UserRequestDto invalidPhoneRequest;
+    private User user;
+
+    @Setup
+    public void createValidators() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+        userValidator = new UserValidator();
+        new DirectFieldAccessor(userValidator).setPropertyValue("minAge", 18);
+
+        validRequest = Users.newRequestDto();
+        invalidPhoneRequest = Users.newRequestDto();
+        invalidPhoneRequest.setPhoneNumber("+1 555 0100");
+        user = Users.newUser();
+    }
+
+    @TearDown
+    public void closeValidatorFactory() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<UserRequestDto>> validateRequest() {
+        return validator.validate(validRequest);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<UserRequestDto>> validateInvalidPhone() {
+        return validator.validate(invalidPhoneRequest);
+    }
+
+    @Benchmark
+    public User checkAge() {
+        userValidator.checkAge(user);
+        return user;
+    }
+}
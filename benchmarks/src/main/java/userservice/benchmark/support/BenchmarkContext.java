@@ -0,0 +1,101 @@
+package userservice.benchmark.support;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import userservice.UserServiceApplication;
+
+/**
+ * Starts the user-service application against a throwaway embedded PostgreSQL instance, or
+ * against one the caller started and closes itself.
+ */
+public class BenchmarkContext implements AutoCloseable {
+    //region Fields
+    private final EmbeddedPostgres ownedPostgres;
+    private final ConfigurableApplicationContext context;
+    //endregion
+
+    private BenchmarkContext(EmbeddedPostgres ownedPostgres,
+                             ConfigurableApplicationContext context) {
+        this.ownedPostgres = ownedPostgres;
+        this.context = context;
+    }
+
+    public static BenchmarkContext start(Map<String, Object> properties) {
+        return start(WebApplicationType.NONE, properties);
+    }
+
+    public static BenchmarkContext start(WebApplicationType webApplicationType,
+                                         Map<String, Object> properties) {
+        EmbeddedPostgres postgres = startPostgres();
+        return new BenchmarkContext(postgres, run(postgres, webApplicationType, properties));
+    }
+
+    /**
+     * Starts the application against {@code postgres}, which is left running on {@link #close}.
+     */
+    public static BenchmarkContext start(EmbeddedPostgres postgres,
+                                         WebApplicationType webApplicationType,
+                                         Map<String, Object> properties) {
+        return new BenchmarkContext(null, run(postgres, webApplicationType, properties));
+    }
+
+    public static EmbeddedPostgres startPostgres() {
+        try {
+            return EmbeddedPostgres.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public ConfigurableApplicationContext getContext() {
+        return context;
+    }
+
+    public int port() {
+        return ((WebServerApplicationContext) context).getWebServer().getPort();
+    }
+
+    @Override
+    public void close() {
+        context.close();
+        if (ownedPostgres == null) {
+            return;
+        }
+        try {
+            ownedPostgres.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static ConfigurableApplicationContext run(EmbeddedPostgres postgres,
+                                                      WebApplicationType webApplicationType,
+                                                      Map<String, Object> properties) {
+        Map<String, Object> defaults = new LinkedHashMap<>();
+        defaults.put("spring.datasource.url",
+                postgres.getJdbcUrl("postgres", "postgres") + "&reWriteBatchedInserts=true");
+        defaults.put("spring.datasource.username", "postgres");
+        defaults.put("spring.datasource.password", "postgres");
+        defaults.put("spring.jpa.show-sql", "false");
+        defaults.put("logging.level.root", "warn");
+        defaults.putAll(properties);
+
+        String[] args = defaults.entrySet().stream()
+                .map(entry -> "--" + entry.getKey() + "=" + entry.getValue())
+                .toArray(String[]::new);
+        return new SpringApplicationBuilder(UserServiceApplication.class)
+                .web(webApplicationType)
+                .run(args);
+    }
+}
@@ -0,0 +1,134 @@
+package userservice.benchmark.support;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Closed-loop HTTP load: {@code clients} threads each send the next request as soon as the
+ * previous one has been answered, for a fixed duration. Latencies go into an HdrHistogram.
+ */
+public final class LoadGenerator {
+    private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final String ALL = "all";
+
+    private LoadGenerator() {
+    }
+
+    public static Result run(int clients, Duration duration, Supplier<HttpRequest> requests) {
+        return runMixed(clients, duration, () -> new LabeledRequest(ALL, requests.get()))
+                .getOrDefault(ALL, emptyResult(duration));
+    }
+
+    /**
+     * Like {@link #run}, but keeps a separate result per request label, in the order the
+     * labels were first seen.
+     */
+    public static Map<String, Result> runMixed(int clients, Duration duration,
+                                               Supplier<LabeledRequest> requests) {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        long deadline = System.nanoTime() + duration.toNanos();
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        try {
+            List<Future<Map<String, Result>>> futures = new ArrayList<>(clients);
+            for (int i = 0; i < clients; i++) {
+                futures.add(executor.submit(() -> runClient(client, deadline, requests)));
+            }
+
+            Map<String, Result> total = new LinkedHashMap<>();
+            for (Future<Map<String, Result>> future : futures) {
+                future.get().forEach((label, result) -> total.merge(label,
+                        new Result(result.latencies(), result.errors(), duration),
+                        Result::merge));
+            }
+            return total;
+        } catch (Exception e) {
+            throw new IllegalStateException("Load run failed", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Map<String, Result> runClient(HttpClient client, long deadline,
+                                                 Supplier<LabeledRequest> requests)
+            throws InterruptedException {
+        Map<String, Result> results = new LinkedHashMap<>();
+        while (System.nanoTime() < deadline) {
+            LabeledRequest request = requests.get();
+            boolean failed;
+            long start = System.nanoTime();
+            try {
+                HttpResponse<Void> response =
+                        client.send(request.request(), HttpResponse.BodyHandlers.discarding());
+                failed = response.statusCode() >= 400;
+            } catch (IOException e) {
+                failed = true;
+            }
+            long latency = Math.min(System.nanoTime() - start, MAX_LATENCY_NANOS);
+
+            Result result = results.computeIfAbsent(request.label(),
+                    label -> emptyResult(Duration.ZERO));
+            result.latencies().recordValue(latency);
+            if (failed) {
+                results.put(request.label(), result.withError());
+            }
+        }
+        return results;
+    }
+
+    private static Result emptyResult(Duration duration) {
+        return new Result(new Histogram(MAX_LATENCY_NANOS, 3), 0, duration);
+    }
+
+    public record LabeledRequest(String label, HttpRequest request) {
+    }
+
+    public record Result(Histogram latencies, long errors, Duration duration) {
+        public Result merge(Result other) {
+            latencies.add(other.latencies);
+            return new Result(latencies, errors + other.errors, duration);
+        }
+
+        public Result copy() {
+            return new Result(latencies.copy(), errors, duration);
+        }
+
+        Result withError() {
+            return new Result(latencies, errors + 1, duration);
+        }
+
+        public double throughput() {
+            return latencies.getTotalCount() / (duration.toMillis() / 1000.0);
+        }
+
+        public String summary() {
+            return String.format("%,.0f req/s, p50 %.2f ms, p99 %.2f ms, p999 %.2f ms, "
+                            + "max %.2f ms, errors %d",
+                    throughput(),
+                    millis(latencies.getValueAtPercentile(50)),
+                    millis(latencies.getValueAtPercentile(99)),
+                    millis(latencies.getValueAtPercentile(99.9)),
+                    millis(latencies.getMaxValue()),
+                    errors);
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package userservice.benchmark.support;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import userservice.dto.UserRequestDto;
+import userservice.model.User;
+
+public final class Users {
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private Users() {
+    }
+
+    public static User newUser() {
+        long n = SEQUENCE.incrementAndGet();
+        User user = new User();
+
+        user.setEmail("user" + n + "@example.com");
+        user.setFirstname("First" + n);
+        user.setLastname("Last" + n);
+        user.setBirthdate(LocalDate.of(1950, 1, 1).plusDays(n % 18_000));
+        user.setAddress("Kyiv, Khreshchatyk " + n % 100);
+        user.setPhoneNumber("+380" + String.format("%09d", n % 1_000_000_000));
+
+        return user;
+    }
+
+    public static UserRequestDto newRequestDto() {
+        User user = newUser();
+        UserRequestDto requestDto = new UserRequestDto();
+
+        requestDto.setEmail(user.getEmail());
+        requestDto.setFirstname(user.getFirstname());
+        requestDto.setLastname(user.getLastname());
+        requestDto.setBirthdate(user.getBirthdate());
+        requestDto.setAddress(user.getAddress());
+        requestDto.setPhoneNumber(user.getPhoneNumber());
+
+        return requestDto;
+    }
+
+    public static List<User> newUsers(int count) {
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            users.add(newUser());
+        }
+        return users;
+    }
+}
@@ -0,0 +1,17 @@
+package userservice.reactive;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
+import userservice.service.mapper.UserMapper;
+import userservice.service.validation.UserValidator;
+
+@SpringBootApplication
+@Import({UserValidator.class, UserMapper.class})
+public class ReactiveUserApplication {
+
+	public static void main(String[] args) {
+		SpringApplication.run(ReactiveUserApplication.class, args);
+	}
+
+}
@@ -0,0 +1,94 @@
+package userservice.reactive.controller;
+
+import java.time.LocalDate;
+import jakarta.validation.constraints.Email;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import userservice.dto.UserRequestDto;
+import userservice.dto.UserResponseDto;
+import userservice.dto.UserUpdateDto;
+import userservice.reactive.service.ReactiveUserService;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("users")
+public class ReactiveUserController {
+    //region Fields
+    private static final String PATH_VARIABLE_ID = "id";
+    private static final String REQUEST_PARAM_FROM = "from";
+    private static final String REQUEST_PARAM_TO = "to";
+    private static final String REQUEST_PARAM_EMAIL = "email";
+    private static final String DATE_PATTERN = "dd.MM.yyyy";
+    private final ReactiveUserService userService;
+    //endregion
+
+    @PostMapping
+    public Mono<ResponseEntity<UserResponseDto>> createUser(
+            @Validated @RequestBody UserRequestDto requestDto) {
+        return userService.create(requestDto)
+                .map(responseDto -> new ResponseEntity<>(responseDto, HttpStatus.CREATED));
+    }
+
+    @PatchMapping("/{id}")
+    public Mono<UserResponseDto> updateOneOrMoreUserFields(
+            @PathVariable(PATH_VARIABLE_ID) Long id,
+            @Validated @RequestBody UserUpdateDto requestDto) {
+        return userService.updatePartial(id, requestDto);
+    }
+
+    @PutMapping("/{id}")
+    public Mono<UserResponseDto> updateUser(
+            @PathVariable Long id,
+            @Validated @RequestBody UserRequestDto requestDto) {
+        return userService.updateComplete(id, requestDto);
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> deleteUser(@PathVariable Long id) {
+        return userService.delete(id)
+                .then(Mono.just(ResponseEntity.noContent().build()));
+    }
+
+    /**
+     * Streams the whole range; ask for {@code application/x-ndjson} to get one user per line
+     * instead of a JSON array.
+     */
+    @GetMapping(value = "/search",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<UserResponseDto> findByBirthDateRange(
+            @RequestParam(REQUEST_PARAM_FROM)
+            @DateTimeFormat(pattern = DATE_PATTERN) LocalDate birthdateFrom,
+            @RequestParam(REQUEST_PARAM_TO)
+            @DateTimeFormat(pattern = DATE_PATTERN) LocalDate birthdateTo) {
+        return userService.findByBirthDateRange(birthdateFrom, birthdateTo);
+    }
+
+    @GetMapping("/{id}")
+    public Mono<UserResponseDto> findById(@PathVariable Long id) {
+        return userService.get(id);
+    }
+
+    @GetMapping
+    public Mono<UserResponseDto> findByEmail(
+            @RequestParam(REQUEST_PARAM_EMAIL)
+            @Validated
+            @Email(message = "Email should be valid") String email) {
+        return userService.findByEmail(email);
+    }
+}
@@ -0,0 +1,81 @@
+package userservice.reactive.exception;
+
+import java.time.LocalDateTime;
+import org.springframework.context.MessageSourceResolvable;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.method.annotation.HandlerMethodValidationException;
+import org.springframework.web.server.ServerWebInputException;
+import userservice.dto.ApiError;
+import userservice.exception.UserAgeException;
+import userservice.exception.UserBirthdateException;
+import userservice.exception.UserEmptyFieldsException;
+import userservice.exception.UserNotFoundException;
+
+/**
+ * Same error bodies as the servlet service's {@code GlobalExceptionHandler}, for the exceptions
+ * the reactive API can raise.
+ */
+@ControllerAdvice
+public class ReactiveExceptionHandler {
+    //region Constants
+    private static final String BAD_REQUEST = "Bad Request";
+    private static final String NOT_FOUND = "NOT_FOUND";
+    private static final String EXCEPTION = "An error occurred";
+    private static final String DELIMITER = ": ";
+    //endregion
+
+    @ExceptionHandler(UserNotFoundException.class)
+    public ResponseEntity<ApiError> handleUserNotFoundException(UserNotFoundException e) {
+        return error(HttpStatus.NOT_FOUND, NOT_FOUND, e.getMessage());
+    }
+
+    @ExceptionHandler({UserEmptyFieldsException.class,
+            UserAgeException.class,
+            UserBirthdateException.class})
+    public ResponseEntity<ApiError> handleUserValidationException(RuntimeException e) {
+        return error(HttpStatus.BAD_REQUEST, BAD_REQUEST, e.getMessage());
+    }
+
+    @ExceptionHandler(WebExchangeBindException.class)
+    public ResponseEntity<ApiError> handleValidationExceptions(WebExchangeBindException e) {
+        String errorMessage = e.getBindingResult().getFieldErrors().stream()
+                .map(fieldError -> fieldError.getField() + DELIMITER +
+                        fieldError.getDefaultMessage())
+                .findFirst()
+                .orElse(e.getMessage());
+
+        return error(HttpStatus.BAD_REQUEST, BAD_REQUEST, errorMessage);
+    }
+
+    @ExceptionHandler(HandlerMethodValidationException.class)
+    public ResponseEntity<ApiError> handleMethodValidationException(
+            HandlerMethodValidationException e) {
+        String errorMessage = e.getAllValidationResults().stream()
+                .flatMap(result -> result.getResolvableErrors().stream())
+                .map(MessageSourceResolvable::getDefaultMessage)
+                .findFirst()
+                .orElse(e.getMessage());
+
+        return error(HttpStatus.BAD_REQUEST, BAD_REQUEST, errorMessage);
+    }
+
+    @ExceptionHandler(ServerWebInputException.class)
+    public ResponseEntity<ApiError> handleInputException(ServerWebInputException e) {
+        return error(HttpStatus.BAD_REQUEST, BAD_REQUEST, e.getReason());
+    }
+
+    @ExceptionHandler(Exception.class)
+    public ResponseEntity<ApiError> handleGeneralException(Exception e) {
+        return error(HttpStatus.INTERNAL_SERVER_ERROR, EXCEPTION, e.getMessage());
+    }
+
+    private static ResponseEntity<ApiError> error(HttpStatus status, String error, String message) {
+        ApiError apiError = new ApiError(LocalDateTime.now(), status.value(), error, message);
+
+        return new ResponseEntity<>(apiError, status);
+    }
+}
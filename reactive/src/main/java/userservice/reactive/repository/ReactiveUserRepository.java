@@ -0,0 +1,157 @@
+package userservice.reactive.repository;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+import io.r2dbc.spi.Readable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import userservice.dto.UserResponseDto;
+import userservice.model.User;
+
+/**
+ * Non-blocking access to the {@code users} table of the servlet service. Rows are read straight
+ * into {@link UserResponseDto}; there is no entity layer.
+ * <p>
+ * Every write appends to {@code user_changes} in the same statement, through a data-modifying
+ * {@code with} clause, so the change feed sees it exactly when it commits.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ReactiveUserRepository {
+    private static final String COLUMNS_WITHOUT_ID =
+            "email, firstname, lastname, birthdate, address, phone_number";
+    private static final String COLUMNS = "id, " + COLUMNS_WITHOUT_ID;
+    private static final String SELECT = "select " + COLUMNS + " from users";
+    private static final String RETURNING = " returning version, " + COLUMNS;
+    private static final String INSERT = "insert into users (id, version, " + COLUMNS_WITHOUT_ID
+            + ") values (nextval('users_seq'), 0, :email, :firstname, :lastname, :birthdate,"
+            + " :address, :phone_number)" + RETURNING;
+    private static final String DELETE = "with written as ("
+            + "delete from users where id = :id returning id)"
+            + " insert into user_changes (user_id, type) select id, 'DELETED' from written";
+    /**
+     * Rows requested from the server per round trip while streaming, so a slow subscriber
+     * holds back the query instead of buffering the whole range.
+     */
+    private static final int FETCH_SIZE = 500;
+
+    //region Fields
+    private final DatabaseClient databaseClient;
+    //endregion
+
+    public Mono<UserResponseDto> findById(Long id) {
+        return databaseClient.sql(SELECT + " where id = :id")
+                .bind("id", id)
+                .map(ReactiveUserRepository::toDto)
+                .one();
+    }
+
+    public Mono<UserResponseDto> findByEmail(String email) {
+        return databaseClient.sql(SELECT + " where email = :email")
+                .bind("email", email)
+                .map(ReactiveUserRepository::toDto)
+                .one();
+    }
+
+    public Flux<UserResponseDto> findByBirthdateRange(LocalDate from, LocalDate to) {
+        return databaseClient.sql(SELECT
+                        + " where birthdate between :from and :to order by birthdate, id")
+                .filter(statement -> statement.fetchSize(FETCH_SIZE))
+                .bind("from", from)
+                .bind("to", to)
+                .map(ReactiveUserRepository::toDto)
+                .all();
+    }
+
+    /**
+     * Takes the id from {@code users_seq} like Hibernate's pooled generator does. Every value
+     * it hands out starts a block of ids of its own, so using just the first one never clashes
+     * with ids assigned by the servlet service.
+     */
+    public Mono<UserResponseDto> insert(User user) {
+        return bindColumns(databaseClient.sql(recordingChange(INSERT, "CREATED")),
+                columns(user, true))
+                .map(ReactiveUserRepository::toDto)
+                .one();
+    }
+
+    /**
+     * Writes the non-null fields of {@code changes}, or all fields when {@code complete} is set,
+     * and bumps the version in the same statement.
+     */
+    public Mono<UserResponseDto> update(Long id, User changes, boolean complete) {
+        Map<String, Object> columns = columns(changes, complete);
+        StringJoiner assignments =
+                new StringJoiner(", ", "update users set ", ", version = version + 1");
+        columns.keySet().forEach(column -> assignments.add(column + " = :" + column));
+
+        String update = assignments + " where id = :id" + RETURNING;
+        return bindColumns(databaseClient.sql(recordingChange(update, "UPDATED")), columns)
+                .bind("id", id)
+                .map(ReactiveUserRepository::toDto)
+                .one();
+    }
+
+    public Mono<Long> deleteById(Long id) {
+        return databaseClient.sql(DELETE)
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    /**
+     * Wraps a write returning the changed row so that it also records a change of the given
+     * type, with the version it was written with.
+     */
+    private static String recordingChange(String write, String type) {
+        return "with written as (" + write + "), changed as ("
+                + "insert into user_changes (user_id, type, version)"
+                + " select id, '" + type + "', version from written)"
+                + " select " + COLUMNS + " from written";
+    }
+
+    private static Map<String, Object> columns(User user, boolean includeNulls) {
+        Map<String, Object> columns = new LinkedHashMap<>();
+        putColumn(columns, "email", user.getEmail(), includeNulls);
+        putColumn(columns, "firstname", user.getFirstname(), includeNulls);
+        putColumn(columns, "lastname", user.getLastname(), includeNulls);
+        putColumn(columns, "birthdate", user.getBirthdate(), includeNulls);
+        putColumn(columns, "address", user.getAddress(), includeNulls);
+        putColumn(columns, "phone_number", user.getPhoneNumber(), includeNulls);
+        return columns;
+    }
+
+    private static void putColumn(Map<String, Object> columns, String column, Object value,
+                                  boolean includeNulls) {
+        if (value != null || includeNulls) {
+            columns.put(column, value);
+        }
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindColumns(
+            DatabaseClient.GenericExecuteSpec spec, Map<String, Object> columns) {
+        for (Map.Entry<String, Object> column : columns.entrySet()) {
+            spec = column.getValue() == null
+                    ? spec.bindNull(column.getKey(),
+                            column.getKey().equals("birthdate") ? LocalDate.class : String.class)
+                    : spec.bind(column.getKey(), column.getValue());
+        }
+        return spec;
+    }
+
+    private static UserResponseDto toDto(Readable row) {
+        return new UserResponseDto(
+                row.get("id", Long.class),
+                row.get("email", String.class),
+                row.get("firstname", String.class),
+                row.get("lastname", String.class),
+                row.get("birthdate", LocalDate.class),
+                row.get("address", String.class),
+                row.get("phone_number", String.class));
+    }
+}
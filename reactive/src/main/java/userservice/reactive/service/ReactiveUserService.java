@@ -0,0 +1,28 @@
+package userservice.reactive.service;
+
+import java.time.LocalDate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import userservice.dto.UserRequestDto;
+import userservice.dto.UserResponseDto;
+import userservice.dto.UserUpdateDto;
+
+public interface ReactiveUserService {
+    Mono<UserResponseDto> get(Long id);
+
+    Mono<UserResponseDto> findByEmail(String email);
+
+    Mono<UserResponseDto> create(UserRequestDto requestDto);
+
+    Mono<UserResponseDto> updatePartial(Long id, UserUpdateDto requestDto);
+
+    Mono<UserResponseDto> updateComplete(Long id, UserRequestDto requestDto);
+
+    Mono<Void> delete(Long id);
+
+    /**
+     * Streams the users born in the range, ordered by (birthdate, id), as fast as the
+     * subscriber requests them.
+     */
+    Flux<UserResponseDto> findByBirthDateRange(LocalDate birthDateFrom, LocalDate birthDateTo);
+}
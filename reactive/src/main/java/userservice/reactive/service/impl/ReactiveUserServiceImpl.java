@@ -0,0 +1,88 @@
+package userservice.reactive.service.impl;
+
+import java.time.LocalDate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import userservice.dto.UserRequestDto;
+import userservice.dto.UserResponseDto;
+import userservice.dto.UserUpdateDto;
+import userservice.exception.UserNotFoundException;
+import userservice.model.User;
+import userservice.reactive.repository.ReactiveUserRepository;
+import userservice.reactive.service.ReactiveUserService;
+import userservice.service.mapper.UserMapper;
+import userservice.service.validation.UserValidator;
+
+@Service
+@RequiredArgsConstructor
+public class ReactiveUserServiceImpl implements ReactiveUserService {
+    //region Fields
+    private final ReactiveUserRepository userRepository;
+    private final UserValidator userValidator;
+    private final UserMapper userMapper;
+    //endregion
+
+    @Override
+    public Mono<UserResponseDto> get(Long id) {
+        return userRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> notFound(id)));
+    }
+
+    @Override
+    public Mono<UserResponseDto> findByEmail(String email) {
+        return userRepository.findByEmail(email)
+                .switchIfEmpty(Mono.error(() ->
+                        new UserNotFoundException("User with email: " + email + " not found")));
+    }
+
+    @Override
+    public Mono<UserResponseDto> create(UserRequestDto requestDto) {
+        return Mono.fromCallable(() -> {
+            User user = userMapper.toModel(requestDto);
+            userValidator.checkRequiredFields(user);
+            userValidator.checkAge(user);
+            return user;
+        }).flatMap(userRepository::insert);
+    }
+
+    @Override
+    public Mono<UserResponseDto> updatePartial(Long id, UserUpdateDto requestDto) {
+        return Mono.fromCallable(() -> {
+            User changes = userMapper.toChanges(requestDto);
+            userValidator.checkAge(changes);
+            return changes;
+        }).flatMap(changes -> changes.equals(new User())
+                ? get(id)
+                : userRepository.update(id, changes, false)
+                        .switchIfEmpty(Mono.error(() -> notFound(id))));
+    }
+
+    @Override
+    public Mono<UserResponseDto> updateComplete(Long id, UserRequestDto requestDto) {
+        return Mono.fromCallable(() -> {
+            User user = userMapper.toModel(requestDto);
+            userValidator.checkAge(user);
+            return user;
+        }).flatMap(user -> userRepository.update(id, user, true))
+                .switchIfEmpty(Mono.error(() -> notFound(id)));
+    }
+
+    @Override
+    public Mono<Void> delete(Long id) {
+        return userRepository.deleteById(id).then();
+    }
+
+    @Override
+    public Flux<UserResponseDto> findByBirthDateRange(LocalDate birthDateFrom,
+                                                      LocalDate birthDateTo) {
+        return Mono.fromRunnable(
+                        () -> userValidator.checkBirthdateRange(birthDateFrom, birthDateTo))
+                .thenMany(userRepository.findByBirthdateRange(birthDateFrom, birthDateTo));
+    }
+
+    private static UserNotFoundException notFound(Long id) {
+        return new UserNotFoundException("User with id " + id + " not found");
+    }
+}
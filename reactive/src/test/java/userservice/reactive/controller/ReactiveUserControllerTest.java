@@ -0,0 +1,147 @@
+package userservice.reactive.controller;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import userservice.dto.UserRequestDto;
+import userservice.dto.UserResponseDto;
+import userservice.dto.UserUpdateDto;
+import userservice.exception.UserAgeException;
+import userservice.exception.UserBirthdateException;
+import userservice.exception.UserNotFoundException;
+import userservice.reactive.service.ReactiveUserService;
+
+@WebFluxTest(ReactiveUserController.class)
+class ReactiveUserControllerTest {
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private ReactiveUserService userService;
+
+    private UserResponseDto responseDto;
+
+    @BeforeEach
+    void setUp() {
+        responseDto = new UserResponseDto(1L, "john@example.com", "John", "Doe",
+                LocalDate.of(2000, 1, 1), null, null);
+    }
+
+    @Test
+    void createUserTest() {
+        when(userService.create(any(UserRequestDto.class))).thenReturn(Mono.just(responseDto));
+
+        webTestClient.post().uri("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{ \"firstname\": \"John\", \"lastname\": \"Doe\", "
+                        + "\"email\": \"john@example.com\", \"birthdate\": \"01.01.2000\" }")
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody().jsonPath("$.id").isEqualTo(1);
+    }
+
+    @Test
+    void createUserWithInvalidBodyTest() {
+        webTestClient.post().uri("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{ \"firstname\": \"John\" }")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.error").isEqualTo("Bad Request");
+        verify(userService, never()).create(any());
+    }
+
+    @Test
+    void createUnderageUserTest() {
+        when(userService.create(any(UserRequestDto.class)))
+                .thenReturn(Mono.error(new UserAgeException("User must be at least 18 years old.")));
+
+        webTestClient.post().uri("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{ \"firstname\": \"John\", \"lastname\": \"Doe\", "
+                        + "\"email\": \"john@example.com\", \"birthdate\": \"01.01.2020\" }")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo("User must be at least 18 years old.");
+    }
+
+    @Test
+    void updateOneOrMoreUserFieldsTest() {
+        when(userService.updatePartial(eq(1L), any(UserUpdateDto.class)))
+                .thenReturn(Mono.just(responseDto));
+
+        webTestClient.patch().uri("/users/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{ \"firstname\": \"John\" }")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.firstname").isEqualTo("John");
+    }
+
+    @Test
+    void deleteUserTest() {
+        when(userService.delete(1L)).thenReturn(Mono.empty());
+
+        webTestClient.delete().uri("/users/1")
+                .exchange()
+                .expectStatus().isNoContent();
+    }
+
+    @Test
+    void findByIdNotFoundTest() {
+        when(userService.get(anyLong()))
+                .thenReturn(Mono.error(new UserNotFoundException("User with id 1 not found")));
+
+        webTestClient.get().uri("/users/1")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void findByEmailTest() {
+        when(userService.findByEmail(anyString())).thenReturn(Mono.just(responseDto));
+
+        webTestClient.get().uri("/users?email=john@example.com")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.email").isEqualTo("john@example.com");
+    }
+
+    @Test
+    void findByBirthDateRangeStreamsNdjsonTest() {
+        when(userService.findByBirthDateRange(any(LocalDate.class), any(LocalDate.class)))
+                .thenReturn(Flux.just(responseDto, responseDto));
+
+        webTestClient.get().uri("/users/search?from=01.01.1990&to=01.01.2001")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(UserResponseDto.class).hasSize(2);
+    }
+
+    @Test
+    void findByBirthDateRangeInvalidTest() {
+        when(userService.findByBirthDateRange(any(LocalDate.class), any(LocalDate.class)))
+                .thenReturn(Flux.error(new UserBirthdateException("invalid range")));
+
+        webTestClient.get().uri("/users/search?from=01.01.2001&to=01.01.1990")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+}
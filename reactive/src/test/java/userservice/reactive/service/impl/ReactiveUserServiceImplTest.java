@@ -0,0 +1,130 @@
+package userservice.reactive.service.impl;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import userservice.dto.UserRequestDto;
+import userservice.dto.UserResponseDto;
+import userservice.dto.UserUpdateDto;
+import userservice.exception.UserAgeException;
+import userservice.exception.UserBirthdateException;
+import userservice.exception.UserNotFoundException;
+import userservice.model.User;
+import userservice.reactive.repository.ReactiveUserRepository;
+import userservice.reactive.service.ReactiveUserService;
+import userservice.service.mapper.UserMapper;
+import userservice.service.validation.UserValidator;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = {ReactiveUserServiceImpl.class, UserValidator.class, UserMapper.class})
+@TestPropertySource(properties = "user.min_age=18")
+class ReactiveUserServiceImplTest {
+    @Autowired
+    private ReactiveUserService userService;
+
+    @MockBean
+    private ReactiveUserRepository userRepository;
+
+    @Test
+    void getNotFoundTest() {
+        when(userRepository.findById(1L)).thenReturn(Mono.empty());
+
+        StepVerifier.create(userService.get(1L))
+                .expectError(UserNotFoundException.class)
+                .verify();
+    }
+
+    @Test
+    void createValidUserTest() {
+        UserRequestDto requestDto = new UserRequestDto();
+        requestDto.setFirstname("John");
+        requestDto.setLastname("Doe");
+        requestDto.setEmail("john@example.com");
+        requestDto.setBirthdate(LocalDate.now().minusYears(25));
+        UserResponseDto created = new UserResponseDto();
+        created.setId(1L);
+        when(userRepository.insert(any(User.class))).thenReturn(Mono.just(created));
+
+        StepVerifier.create(userService.create(requestDto))
+                .expectNext(created)
+                .verifyComplete();
+    }
+
+    @Test
+    void createUnderageUserTest() {
+        UserRequestDto requestDto = new UserRequestDto();
+        requestDto.setFirstname("John");
+        requestDto.setLastname("Doe");
+        requestDto.setEmail("john@example.com");
+        requestDto.setBirthdate(LocalDate.now().minusYears(1));
+
+        StepVerifier.create(userService.create(requestDto))
+                .expectError(UserAgeException.class)
+                .verify();
+        verify(userRepository, never()).insert(any());
+    }
+
+    @Test
+    void updatePartialWritesOnlyPresentFieldsTest() {
+        UserUpdateDto updateDto = new UserUpdateDto();
+        updateDto.setFirstname("New Name");
+        updateDto.setLastname("");
+        User changes = new User();
+        changes.setFirstname("New Name");
+        UserResponseDto updated = new UserResponseDto();
+        when(userRepository.update(1L, changes, false)).thenReturn(Mono.just(updated));
+
+        StepVerifier.create(userService.updatePartial(1L, updateDto))
+                .expectNext(updated)
+                .verifyComplete();
+    }
+
+    @Test
+    void updatePartialWithoutChangesReturnsCurrentUserTest() {
+        UserResponseDto current = new UserResponseDto();
+        when(userRepository.findById(1L)).thenReturn(Mono.just(current));
+
+        StepVerifier.create(userService.updatePartial(1L, new UserUpdateDto()))
+                .expectNext(current)
+                .verifyComplete();
+        verify(userRepository, never()).update(anyLong(), any(), anyBoolean());
+    }
+
+    @Test
+    void updateCompleteNotFoundTest() {
+        UserRequestDto requestDto = new UserRequestDto();
+        requestDto.setBirthdate(LocalDate.now().minusYears(25));
+        when(userRepository.update(eq(1L), any(User.class), eq(true))).thenReturn(Mono.empty());
+
+        StepVerifier.create(userService.updateComplete(1L, requestDto))
+                .expectError(UserNotFoundException.class)
+                .verify();
+    }
+
+    @Test
+    void findByBirthDateRangeInvalidTest() {
+        LocalDate from = LocalDate.now().minusYears(20);
+        LocalDate to = LocalDate.now().minusYears(30);
+        when(userRepository.findByBirthdateRange(from, to)).thenReturn(Flux.empty());
+
+        StepVerifier.create(userService.findByBirthDateRange(from, to))
+                .expectError(UserBirthdateException.class)
+                .verify();
+    }
+}
@@ -0,0 +1,43 @@
+package userservice.concurrency;
+
+import java.time.Duration;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(name = "user.admission.enabled", havingValue = "true")
+public class AdmissionControlConfig {
+    //region Fields
+    @Value("${user.admission.backoff_ratio}")
+    private double backoffRatio;
+    @Value("${user.admission.read.initial_limit}")
+    private int readInitialLimit;
+    @Value("${user.admission.read.min_limit}")
+    private int readMinLimit;
+    @Value("${user.admission.read.max_limit}")
+    private int readMaxLimit;
+    @Value("${user.admission.read.latency_threshold}")
+    private Duration readLatencyThreshold;
+    @Value("${user.admission.write.initial_limit}")
+    private int writeInitialLimit;
+    @Value("${user.admission.write.min_limit}")
+    private int writeMinLimit;
+    @Value("${user.admission.write.max_limit}")
+    private int writeMaxLimit;
+    @Value("${user.admission.write.latency_threshold}")
+    private Duration writeLatencyThreshold;
+    //endregion
+
+    @Bean
+    public AdmissionControlFilter admissionControlFilter(MeterRegistry meterRegistry) {
+        return new AdmissionControlFilter(
+                new AimdLimit(readInitialLimit, readMinLimit, readMaxLimit, backoffRatio,
+                        readLatencyThreshold),
+                new AimdLimit(writeInitialLimit, writeMinLimit, writeMaxLimit, backoffRatio,
+                        writeLatencyThreshold),
+                meterRegistry);
+    }
+}
@@ -0,0 +1,96 @@
+package userservice.concurrency;
+
+import java.io.IOException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Sheds load before it reaches the connection pool. Reads and writes each get an
+ * {@link AimdLimit} that follows how many concurrent requests the database serves within the
+ * budget's latency threshold; a request over its budget's limit is answered with 503 and a
+ * {@code Retry-After} hint at once instead of queueing for a connection. Async requests, like
+ * streamed imports and exports, hold their permit until they complete, but as their runtime
+ * follows the size of the body rather than the database's latency they don't move the limit;
+ * {@link LongPolls} hold it only until the handler returns.
+ */
+public class AdmissionControlFilter extends OncePerRequestFilter {
+    static final String LIMIT = "user.admission.limit";
+    static final String IN_FLIGHT = "user.admission.in_flight";
+    static final String REJECTED = "user.admission.rejected";
+    static final String BUDGET = "budget";
+    private static final String RETRY_AFTER_SECONDS = "1";
+    private static final String ACTUATOR_PATH = "/actuator";
+
+    //region Fields
+    private final Budget reads;
+    private final Budget writes;
+    //endregion
+
+    AdmissionControlFilter(AimdLimit readLimit, AimdLimit writeLimit,
+                           MeterRegistry meterRegistry) {
+        this.reads = new Budget("read", readLimit, meterRegistry);
+        this.writes = new Budget("write", writeLimit, meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith(request.getContextPath() + ACTUATOR_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        Budget budget = isRead(request) ? reads : writes;
+        long startedAt = budget.limit.tryAcquire();
+        if (startedAt == -1) {
+            budget.rejected.increment();
+            response.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value());
+            return;
+        }
+
+        boolean failed = true;
+        try {
+            filterChain.doFilter(request, response);
+            failed = response.getStatus() >= HttpStatus.INTERNAL_SERVER_ERROR.value();
+        } finally {
+            if (failed || !request.isAsyncStarted()) {
+                budget.limit.release(startedAt, failed);
+            } else if (LongPolls.isMarked(request)) {
+                budget.limit.release();
+            } else {
+                request.getAsyncContext()
+                        .addListener(new AsyncRelease(asyncFailed -> budget.limit.release()));
+            }
+        }
+    }
+
+    private static boolean isRead(HttpServletRequest request) {
+        String method = request.getMethod();
+        return HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method)
+                || HttpMethod.OPTIONS.matches(method);
+    }
+
+    private static final class Budget {
+        private final AimdLimit limit;
+        private final Counter rejected;
+
+        private Budget(String name, AimdLimit limit, MeterRegistry meterRegistry) {
+            this.limit = limit;
+            this.rejected = Counter.builder(REJECTED).tag(BUDGET, name).register(meterRegistry);
+            Gauge.builder(LIMIT, limit, AimdLimit::getLimit).tag(BUDGET, name)
+                    .register(meterRegistry);
+            Gauge.builder(IN_FLIGHT, limit, AimdLimit::getInFlight).tag(BUDGET, name)
+                    .register(meterRegistry);
+        }
+    }
+}
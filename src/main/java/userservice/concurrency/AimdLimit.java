@@ -0,0 +1,84 @@
+package userservice.concurrency;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit found by additive increase, multiplicative decrease. A request that finishes
+ * within {@code latencyThreshold} while at least half the limit was in use raises the limit by
+ * {@code 1 / limit}, so about one per round of requests. A slower or failed one cuts it to
+ * {@code backoffRatio} of its value, at most once per round: requests that started before the
+ * last cut already ran under the old limit and say nothing about the new one.
+ */
+class AimdLimit {
+    //region Fields
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdNanos;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+    private long decreasedAt = System.nanoTime();
+    //endregion
+
+    AimdLimit(int initialLimit, int minLimit, int maxLimit, double backoffRatio,
+              Duration latencyThreshold) {
+        if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= min <= initial <= max");
+        }
+        if (backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("Backoff ratio must be between 0 and 1");
+        }
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+    }
+
+    /**
+     * @return the start time to pass to {@link #release}, or -1 when the limit is reached
+     */
+    long tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                return -1;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return System.nanoTime();
+            }
+        }
+    }
+
+    void release(long startedAt, boolean failed) {
+        int released = inFlight.getAndDecrement();
+        long now = System.nanoTime();
+
+        synchronized (this) {
+            if (failed || now - startedAt > latencyThresholdNanos) {
+                if (startedAt - decreasedAt >= 0) {
+                    limit = Math.max(minLimit, limit * backoffRatio);
+                    decreasedAt = now;
+                }
+            } else if (released * 2 >= limit) {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+        }
+    }
+
+    /**
+     * Releases a request whose latency says nothing about load, such as one that went async.
+     */
+    void release() {
+        inFlight.decrementAndGet();
+    }
+
+    int getLimit() {
+        return (int) limit;
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,51 @@
+package userservice.concurrency;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Releases a request's permit once its async processing is over. The release is told whether
+ * the request timed out, failed or was answered with a server error.
+ */
+final class AsyncRelease implements AsyncListener {
+    //region Fields
+    private final Consumer<Boolean> release;
+    private final AtomicBoolean released = new AtomicBoolean();
+    //endregion
+
+    AsyncRelease(Consumer<Boolean> release) {
+        this.release = release;
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+        release(!(event.getSuppliedResponse() instanceof HttpServletResponse response)
+                || response.getStatus() >= HttpStatus.INTERNAL_SERVER_ERROR.value());
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+        release(true);
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+        release(true);
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+        // Listeners are dropped when async processing restarts
+        event.getAsyncContext().addListener(this);
+    }
+
+    private void release(boolean failed) {
+        if (released.compareAndSet(false, true)) {
+            release.accept(failed);
+        }
+    }
+}
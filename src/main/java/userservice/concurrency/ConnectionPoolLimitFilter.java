@@ -0,0 +1,73 @@
+package userservice.concurrency;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Caps the requests handled at once. Virtual threads remove Tomcat's thread pool as the natural
+ * limit, so without this every waiting request would end up queued inside HikariCP until its
+ * connection timeout. Requests that can't get a permit within {@code acquireTimeout} are
+ * answered with 503 and a {@code Retry-After} hint instead.
+ * <p>
+ * Async requests, like streamed imports and exports, keep their permit until they complete,
+ * except {@link LongPolls}, which hold no connection while they wait.
+ */
+public class ConnectionPoolLimitFilter extends OncePerRequestFilter {
+    static final String REJECTED = "user.requests.rejected";
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    //region Fields
+    private final Semaphore permits;
+    private final long acquireTimeoutNanos;
+    private final Counter rejected;
+    //endregion
+
+    public ConnectionPoolLimitFilter(int limit, Duration acquireTimeout,
+                                     MeterRegistry meterRegistry) {
+        this.permits = new Semaphore(limit, true);
+        this.acquireTimeoutNanos = acquireTimeout.toNanos();
+        this.rejected = Counter.builder(REJECTED).register(meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            rejected.increment();
+            response.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value());
+            return;
+        }
+
+        boolean async = false;
+        try {
+            filterChain.doFilter(request, response);
+            async = request.isAsyncStarted() && !LongPolls.isMarked(request);
+        } finally {
+            if (async) {
+                request.getAsyncContext()
+                        .addListener(new AsyncRelease(failed -> permits.release()));
+            } else {
+                permits.release();
+            }
+        }
+    }
+}
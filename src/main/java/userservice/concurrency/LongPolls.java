@@ -0,0 +1,23 @@
+package userservice.concurrency;
+
+import jakarta.servlet.ServletRequest;
+
+/**
+ * Marks requests that go async without holding a database connection while they wait, like
+ * change feed polls. The request limits stop counting these once the handler returns, while
+ * other async requests, like streamed imports and exports, count until they complete.
+ */
+public final class LongPolls {
+    private static final String ATTRIBUTE = LongPolls.class.getName();
+
+    private LongPolls() {
+    }
+
+    public static void mark(ServletRequest request) {
+        request.setAttribute(ATTRIBUTE, Boolean.TRUE);
+    }
+
+    static boolean isMarked(ServletRequest request) {
+        return request.getAttribute(ATTRIBUTE) != null;
+    }
+}
@@ -0,0 +1,33 @@
+package userservice.concurrency;
+
+import java.time.Duration;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Active when {@code spring.threads.virtual.enabled} is set and the JVM is Java 21 or newer, in
+ * which case Spring Boot already runs Tomcat's request handling on virtual threads.
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+    //region Fields
+    @Value("${user.virtual_threads.requests_per_connection}")
+    private int requestsPerConnection;
+    @Value("${user.virtual_threads.acquire_timeout}")
+    private Duration acquireTimeout;
+    //endregion
+
+    @Bean
+    public ConnectionPoolLimitFilter connectionPoolLimitFilter(HikariDataSource primaryPool,
+                                                               MeterRegistry meterRegistry) {
+        int limit = primaryPool.getMaximumPoolSize() * requestsPerConnection;
+
+        return new ConnectionPoolLimitFilter(limit, acquireTimeout, meterRegistry);
+    }
+}
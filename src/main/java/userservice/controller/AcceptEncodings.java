@@ -0,0 +1,62 @@
+package userservice.controller;
+
+import java.util.Locale;
+
+/**
+ * Reads the content codings a client accepts from {@code Accept-Encoding}.
+ */
+final class AcceptEncodings {
+    //region Constants
+    private static final String ANY = "*";
+    private static final String LIST_DELIMITER = ",";
+    private static final String PARAMETER_DELIMITER = ";";
+    private static final String WEIGHT_PREFIX = "q=";
+    private static final String LEGACY_PREFIX = "x-";
+    //endregion
+
+    private AcceptEncodings() {
+    }
+
+    /**
+     * Whether the coding is listed, or covered by {@code *}, with a weight above zero, as
+     * RFC 9110 prescribes. The legacy {@code x-gzip} counts as {@code gzip}.
+     */
+    static boolean accepts(String acceptEncoding, String coding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double listed = null;
+        Double any = null;
+        for (String entry : acceptEncoding.split(LIST_DELIMITER)) {
+            String[] parts = entry.split(PARAMETER_DELIMITER);
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            if (name.startsWith(LEGACY_PREFIX)) {
+                name = name.substring(LEGACY_PREFIX.length());
+            }
+            if (name.equals(coding)) {
+                listed = weight(parts);
+            } else if (name.equals(ANY)) {
+                any = weight(parts);
+            }
+        }
+        Double weight = listed != null ? listed : any;
+        return weight != null && weight > 0;
+    }
+
+    /**
+     * @return the {@code q} parameter, 1 without one, or 0 when it isn't a number
+     */
+    private static double weight(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim().toLowerCase(Locale.ROOT);
+            if (parameter.startsWith(WEIGHT_PREFIX)) {
+                try {
+                    return Double.parseDouble(parameter.substring(WEIGHT_PREFIX.length()));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
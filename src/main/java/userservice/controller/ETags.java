@@ -0,0 +1,64 @@
+package userservice.controller;
+
+import userservice.exception.UserVersionMismatchException;
+
+/**
+ * Maps entity versions to strong entity tags and back.
+ */
+final class ETags {
+    //region Constants
+    private static final String ANY = "*";
+    private static final String WEAK_PREFIX = "W/";
+    private static final String QUOTE = "\"";
+    private static final String LIST_DELIMITER = ",";
+    //endregion
+
+    private ETags() {
+    }
+
+    static String of(Long version) {
+        return QUOTE + version + QUOTE;
+    }
+
+    /**
+     * Weak comparison as RFC 9110 prescribes for {@code If-None-Match}.
+     */
+    static boolean matches(String ifNoneMatch, Long version) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String current = of(version);
+        for (String tag : ifNoneMatch.split(LIST_DELIMITER)) {
+            String candidate = tag.trim();
+            if (candidate.equals(ANY)) {
+                return true;
+            }
+            if (candidate.startsWith(WEAK_PREFIX)) {
+                candidate = candidate.substring(WEAK_PREFIX.length());
+            }
+            if (candidate.equals(current)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the version required by {@code If-Match}, or null when any version is acceptable.
+     * Weak tags never match strongly, so they fail the precondition like a stale tag would.
+     */
+    static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals(ANY)) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() < 2 || !tag.startsWith(QUOTE) || !tag.endsWith(QUOTE)) {
+            throw new UserVersionMismatchException("If-Match must be a single strong entity tag");
+        }
+        try {
+            return Long.valueOf(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new UserVersionMismatchException("Unknown entity tag " + tag);
+        }
+    }
+}
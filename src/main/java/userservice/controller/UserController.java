@@ -1,12 +1,30 @@
 package userservice.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.constraints.Email;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Slice;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -16,15 +34,35 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import userservice.concurrency.LongPolls;
+import userservice.dto.UserBatchItemDto;
+import userservice.dto.UserBatchRequestDto;
+import userservice.dto.UserChangesDto;
+import userservice.dto.UserImportProgressDto;
+import userservice.dto.UserImportRejectionDto;
+import userservice.dto.UserLookupRequestDto;
+import userservice.dto.UserLookupResponseDto;
+import userservice.dto.UserPageDto;
 import userservice.dto.UserRequestDto;
 import userservice.dto.UserResponseDto;
 import userservice.dto.UserUpdateDto;
 import userservice.model.User;
 import userservice.service.UserService;
+import userservice.service.changes.UserChangeFeed;
+import userservice.service.idempotency.IdempotentExecutor;
+import userservice.service.importing.UserCsvImporter;
+import userservice.service.importing.UserCsvReader;
+import userservice.service.importing.UserImportListener;
 import userservice.service.mapper.UserMapper;
+import userservice.service.pagination.BirthdateCursor;
+import userservice.service.pagination.ChangeCursor;
 
 @RestController
 @RequiredArgsConstructor
@@ -35,14 +73,44 @@ public class UserController {
     private static final String REQUEST_PARAM_FROM = "from";
     private static final String REQUEST_PARAM_TO = "to";
     private static final String REQUEST_PARAM_EMAIL = "email";
+    private static final String REQUEST_PARAM_CURSOR = "cursor";
+    private static final String REQUEST_PARAM_LIMIT = "limit";
+    private static final String DEFAULT_PAGE_SIZE = "100";
+    private static final String REQUEST_PARAM_PREFIX = "prefix";
+    private static final String DEFAULT_PREFIX_LIMIT = "10";
+    private static final String REQUEST_PARAM_AFTER_ID = "afterId";
+    private static final String REQUEST_PARAM_SINCE = "since";
+    private static final String LAST_EVENT_ID = "Last-Event-ID";
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+    private static final String CHANGES_EVENT = "changes";
+    private static final String GZIP = "gzip";
+    private static final String TEXT_CSV = "text/csv";
+    private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
     private static final String DATE_PATTERN = "dd.MM.yyyy";
     private final UserService userService;
+    private final UserCsvImporter csvImporter;
     private final UserMapper dtoMapper;
+    private final ObjectMapper objectMapper;
+    private final UserChangeFeed changeFeed;
+    private final IdempotentExecutor idempotentExecutor;
+    @Value("${user.changes.poll_timeout}")
+    private Duration changesPollTimeout;
     //endregion
 
     @PostMapping
     public ResponseEntity<UserResponseDto> createUser(
-            @Validated @RequestBody UserRequestDto requestDto) {
+            @Validated @RequestBody UserRequestDto requestDto,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        if (idempotencyKey != null) {
+            IdempotentExecutor.Result<UserResponseDto> result = idempotentExecutor.execute(
+                    idempotencyKey, requestDto, UserResponseDto.class,
+                    () -> dtoMapper.toDto(userService.save(dtoMapper.toModel(requestDto))));
+
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .header(IDEMPOTENT_REPLAYED, String.valueOf(result.replayed()))
+                    .body(result.value());
+        }
         User user = dtoMapper.toModel(requestDto);
         final UserResponseDto responseDto = dtoMapper.toDto(userService.save(user));
 
@@ -51,24 +119,103 @@ public class UserController {
                 HttpStatus.CREATED);
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<List<UserBatchItemDto>> createUsers(
+            @Validated @RequestBody UserBatchRequestDto requestDto) {
+        List<User> users = requestDto.getUsers().stream()
+                .map(dtoMapper::toModel)
+                .collect(Collectors.toList());
+        Map<Integer, String> rejected = userService.saveAll(users);
+
+        List<UserBatchItemDto> items = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            items.add(rejected.containsKey(i)
+                    ? new UserBatchItemDto(i, UserBatchItemDto.REJECTED, null, rejected.get(i))
+                    : new UserBatchItemDto(i, UserBatchItemDto.CREATED, users.get(i).getId(), null));
+        }
+
+        return new ResponseEntity<>(
+                items,
+                rejected.isEmpty() ? HttpStatus.CREATED : HttpStatus.MULTI_STATUS);
+    }
+
+    @PostMapping("/lookup")
+    public ResponseEntity<UserLookupResponseDto> lookupUsers(
+            @Validated @RequestBody UserLookupRequestDto requestDto) {
+        Map<Long, User> users = userService.getByIds(requestDto.getIds());
+
+        List<UserResponseDto> found = new ArrayList<>(users.size());
+        users.values().forEach(user -> found.add(dtoMapper.toDto(user)));
+        List<Long> missing = requestDto.getIds().stream()
+                .filter(id -> !users.containsKey(id))
+                .distinct()
+                .toList();
+
+        return ResponseEntity.ok(new UserLookupResponseDto(found, missing));
+    }
+
+    @PostMapping(value = "/import", consumes = TEXT_CSV,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> importUsers(
+            InputStream inputStream,
+            @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false)
+            String contentEncoding) throws IOException {
+        InputStream in = GZIP.equals(contentEncoding)
+                ? new GZIPInputStream(inputStream, EXPORT_BUFFER_SIZE)
+                : inputStream;
+        UserCsvReader csvReader =
+                csvImporter.open(new InputStreamReader(in, StandardCharsets.UTF_8));
+
+        StreamingResponseBody body = outputStream -> {
+            try (csvReader; JsonGenerator generator =
+                    objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.setRootValueSeparator(null);
+                csvImporter.importAll(csvReader, new UserImportListener() {
+                    @Override
+                    public void onRejected(UserImportRejectionDto rejection) {
+                        writeLine(generator, rejection);
+                    }
+
+                    @Override
+                    public void onProgress(UserImportProgressDto progress) {
+                        writeLine(generator, progress);
+                        flush(generator);
+                    }
+                });
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
     @PatchMapping("/{id}")
     public ResponseEntity<UserResponseDto> updateOneOrMoreUserFields(
             @PathVariable(PATH_VARIABLE_ID) Long id,
-            @Validated @RequestBody UserUpdateDto requestDto) {
-        User updatedUser = userService.updatePartial(id, requestDto);
+            @Validated @RequestBody UserUpdateDto requestDto,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        User updatedUser =
+                userService.updatePartial(id, requestDto, ETags.expectedVersion(ifMatch));
         final UserResponseDto responseDto = dtoMapper.toDto(updatedUser);
 
-        return ResponseEntity.ok(responseDto);
+        return ResponseEntity.ok()
+                .eTag(ETags.of(updatedUser.getVersion()))
+                .body(responseDto);
     }
 
     @PutMapping("/{id}")
     public ResponseEntity<UserResponseDto> updateUser(
             @PathVariable Long id,
-            @Validated @RequestBody UserRequestDto requestDto) {
-        User updatedUser = userService.updateComplete(id, requestDto);
+            @Validated @RequestBody UserRequestDto requestDto,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        User updatedUser =
+                userService.updateComplete(id, requestDto, ETags.expectedVersion(ifMatch));
         final UserResponseDto responseDto = dtoMapper.toDto(updatedUser);
 
-        return ResponseEntity.ok(responseDto);
+        return ResponseEntity.ok()
+                .eTag(ETags.of(updatedUser.getVersion()))
+                .body(responseDto);
     }
 
     @DeleteMapping("/{id}")
@@ -79,35 +226,165 @@ public class UserController {
     }
 
     @GetMapping("/search")
-    public ResponseEntity<List<UserResponseDto>> findByBirthDateRange(
+    public ResponseEntity<UserPageDto> findByBirthDateRange(
             @Validated @RequestParam(REQUEST_PARAM_FROM)
             @DateTimeFormat(pattern = DATE_PATTERN) LocalDate birthdateFrom,
             @Validated @RequestParam(REQUEST_PARAM_TO)
-            @DateTimeFormat(pattern = DATE_PATTERN) LocalDate birthdateTo) {
-        List<User> users = userService.findByBirthDateRange(birthdateFrom, birthdateTo);
-        List<UserResponseDto> responseDtos =
-                users.stream().map(dtoMapper::toDto).collect(Collectors.toList());
+            @DateTimeFormat(pattern = DATE_PATTERN) LocalDate birthdateTo,
+            @RequestParam(value = REQUEST_PARAM_CURSOR, required = false) String cursor,
+            @RequestParam(value = REQUEST_PARAM_LIMIT, defaultValue = DEFAULT_PAGE_SIZE) int limit) {
+        BirthdateCursor after = cursor == null ? null : BirthdateCursor.decode(cursor);
+        Slice<UserResponseDto> users =
+                userService.findByBirthDateRange(birthdateFrom, birthdateTo, after, limit);
+        String next = users.hasNext()
+                ? BirthdateCursor.of(users.getContent().get(users.getNumberOfElements() - 1)).encode()
+                : null;
+
+        return ResponseEntity.ok(new UserPageDto(users.getContent(), next));
+    }
+
+    @GetMapping("/autocomplete")
+    public ResponseEntity<List<UserResponseDto>> findByPrefix(
+            @RequestParam(REQUEST_PARAM_PREFIX) String prefix,
+            @RequestParam(value = REQUEST_PARAM_LIMIT, defaultValue = DEFAULT_PREFIX_LIMIT)
+            int limit) {
+        List<UserResponseDto> users = userService.findByPrefix(prefix, limit).stream()
+                .map(dtoMapper::toDto)
+                .toList();
 
-        return ResponseEntity.ok(responseDtos);
+        return ResponseEntity.ok(users);
+    }
+
+    @GetMapping("/changes")
+    public DeferredResult<UserChangesDto> pollChanges(
+            @RequestParam(value = REQUEST_PARAM_SINCE, required = false) String since,
+            HttpServletRequest request) {
+        LongPolls.mark(request);
+        ChangeCursor after = since == null ? ChangeCursor.START : ChangeCursor.decode(since);
+        DeferredResult<UserChangesDto> result = new DeferredResult<>(changesPollTimeout.toMillis(),
+                new UserChangesDto(List.of(), after.encode()));
+        Runnable unsubscribe = changeFeed.subscribe(after, batch -> {
+            result.setResult(batch);
+            return false;
+        });
+        result.onCompletion(unsubscribe);
+
+        return result;
+    }
+
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(
+            @RequestParam(value = REQUEST_PARAM_SINCE, required = false) String since,
+            @RequestHeader(value = LAST_EVENT_ID, required = false) String lastEventId,
+            HttpServletRequest request) {
+        LongPolls.mark(request);
+        String token = lastEventId != null ? lastEventId : since;
+        ChangeCursor after = token == null ? ChangeCursor.START : ChangeCursor.decode(token);
+        SseEmitter emitter = new SseEmitter();
+        Runnable unsubscribe = changeFeed.subscribe(after, batch -> {
+            try {
+                emitter.send(SseEmitter.event()
+                        .id(batch.getNext())
+                        .name(CHANGES_EVENT)
+                        .data(batch.getChanges()));
+                return true;
+            } catch (IOException e) {
+                emitter.completeWithError(e);
+                return false;
+            }
+        });
+        emitter.onCompletion(unsubscribe);
+        emitter.onError(e -> unsubscribe.run());
+
+        return emitter;
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportUsers(
+            @RequestParam(value = REQUEST_PARAM_AFTER_ID, defaultValue = "0") Long afterId,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false)
+            String acceptEncoding) {
+        boolean gzip = AcceptEncodings.accepts(acceptEncoding, GZIP);
+        StreamingResponseBody body = outputStream -> {
+            OutputStream out = gzip
+                    ? new GZIPOutputStream(outputStream, EXPORT_BUFFER_SIZE)
+                    : outputStream;
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.setRootValueSeparator(null);
+                userService.exportAll(afterId, user -> writeLine(generator, user));
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, GZIP);
+        }
+
+        return response.body(body);
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<UserResponseDto> findById(
-            @PathVariable Long id) {
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+            String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            Long version = userService.getVersion(id);
+            if (ETags.matches(ifNoneMatch, version)) {
+                return notModified(version);
+            }
+        }
         User user = userService.get(id);
         UserResponseDto responseDto = dtoMapper.toDto(user);
 
-        return ResponseEntity.ok(responseDto);
+        return ResponseEntity.ok()
+                .eTag(ETags.of(user.getVersion()))
+                .body(responseDto);
     }
 
     @GetMapping
     public ResponseEntity<UserResponseDto> findByEmail(
             @RequestParam(REQUEST_PARAM_EMAIL)
             @Validated
-            @Email(message = "Email should be valid") String email) {
+            @Email(message = "Email should be valid") String email,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+            String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            Long version = userService.getVersionByEmail(email);
+            if (ETags.matches(ifNoneMatch, version)) {
+                return notModified(version);
+            }
+        }
         User user = userService.findByEmail(email);
         UserResponseDto responseDto = dtoMapper.toDto(user);
 
-        return ResponseEntity.ok(responseDto);
+        return ResponseEntity.ok()
+                .eTag(ETags.of(user.getVersion()))
+                .body(responseDto);
+    }
+
+    private ResponseEntity<UserResponseDto> notModified(Long version) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(ETags.of(version))
+                .build();
+    }
+
+    private void writeLine(JsonGenerator generator, Object value) {
+        try {
+            generator.writeObject(value);
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void flush(JsonGenerator generator) {
+        try {
+            generator.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 }
@@ -0,0 +1,154 @@
+package userservice.datasource;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Resizes the primary pool every {@code user.datasource.pool.interval}, one step at a time and
+ * within {@code user.datasource.pool.min_size} and {@code max_size}:
+ * <ul>
+ * <li>shrinks it when statements got {@code latency_tolerance} times slower than the fastest
+ * recent interval, since more connections would only add to the database's queue;</li>
+ * <li>otherwise grows it by a quarter when connections took longer than {@code wait_threshold}
+ * on average to acquire, or requests are waiting for one right now;</li>
+ * <li>otherwise shrinks it when fewer than half its connections are in use.</li>
+ * </ul>
+ * Idle intervals are skipped. A grow fills the pool up to its new size at once. Hikari never
+ * closes connections just because the size was lowered, so a shrink also lowers the minimum idle
+ * count to {@code min_size}: the surplus is retired once it sits idle for the pool's idle timeout,
+ * while busy connections and their prepared statements are left alone.
+ */
+@Component
+@ConditionalOnProperty(name = "user.datasource.pool.auto_size", havingValue = "true")
+public class PoolAutoSizer {
+    private static final Logger logger = LogManager.getLogger(PoolAutoSizer.class);
+    static final String ACQUIRE_TIMER = "hikaricp.connections.acquire";
+    private static final String POOL_TAG = "pool";
+    private static final double BASELINE_DRIFT = 0.01;
+
+    //region Fields
+    private final HikariDataSource pool;
+    private final StatementMetrics statementMetrics;
+    private final MeterRegistry meterRegistry;
+    private final int minSize;
+    private final int maxSize;
+    private final long waitThresholdNanos;
+    private final double latencyTolerance;
+    private final ScheduledExecutorService scheduler;
+    private StatementMetrics.Totals lastStatements;
+    private long lastAcquireCount;
+    private double lastAcquireNanos;
+    private double baselineStatementNanos;
+    //endregion
+
+    public PoolAutoSizer(HikariDataSource pool, StatementMetrics statementMetrics,
+                         MeterRegistry meterRegistry,
+                         @Value("${user.datasource.pool.min_size}") int minSize,
+                         @Value("${user.datasource.pool.max_size}") int maxSize,
+                         @Value("${user.datasource.pool.wait_threshold}") Duration waitThreshold,
+                         @Value("${user.datasource.pool.latency_tolerance}") double latencyTolerance,
+                         @Value("${user.datasource.pool.interval}") Duration interval) {
+        if (minSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Pool sizes must satisfy 1 <= min <= max");
+        }
+        this.pool = pool;
+        this.statementMetrics = statementMetrics;
+        this.meterRegistry = meterRegistry;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.waitThresholdNanos = waitThreshold.toNanos();
+        this.latencyTolerance = latencyTolerance;
+        this.lastStatements = statementMetrics.totals();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pool-auto-sizer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        scheduler.scheduleWithFixedDelay(this::resizeSafely,
+                interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * @return the pool size after this interval
+     */
+    int resize() {
+        HikariConfigMXBean config = pool.getHikariConfigMXBean();
+        HikariPoolMXBean poolState = pool.getHikariPoolMXBean();
+        int size = config.getMaximumPoolSize();
+
+        StatementMetrics.Totals statements = statementMetrics.totals();
+        long statementCount = statements.count() - lastStatements.count();
+        long statementNanos = statements.nanos() - lastStatements.nanos();
+        lastStatements = statements;
+        double waitNanos = averageAcquireNanos();
+        if (poolState == null || statementCount == 0) {
+            return size;
+        }
+
+        double statementLatency = (double) statementNanos / statementCount;
+        baselineStatementNanos = baselineStatementNanos == 0
+                ? statementLatency
+                : Math.min(statementLatency, baselineStatementNanos * (1 + BASELINE_DRIFT));
+        int target;
+        if (statementLatency > baselineStatementNanos * latencyTolerance) {
+            target = size - 1;
+        } else if (waitNanos > waitThresholdNanos || poolState.getThreadsAwaitingConnection() > 0) {
+            target = size + Math.max(1, size / 4);
+        } else if (poolState.getActiveConnections() * 2 < size) {
+            target = size - 1;
+        } else {
+            target = size;
+        }
+        target = Math.max(minSize, Math.min(maxSize, target));
+
+        if (target != size) {
+            logger.info("Resizing pool {} from {} to {} connections: acquire {} us, "
+                            + "statements {} us against a {} us baseline", pool.getPoolName(),
+                    size, target, Math.round(waitNanos / 1000),
+                    Math.round(statementLatency / 1000), Math.round(baselineStatementNanos / 1000));
+            config.setMaximumPoolSize(target);
+            config.setMinimumIdle(target > size ? target : minSize);
+        }
+        return target;
+    }
+
+    private void resizeSafely() {
+        try {
+            resize();
+        } catch (RuntimeException e) {
+            logger.warn("Could not resize pool {}", pool.getPoolName(), e);
+        }
+    }
+
+    private double averageAcquireNanos() {
+        Timer acquire = meterRegistry.find(ACQUIRE_TIMER).tag(POOL_TAG, pool.getPoolName()).timer();
+        if (acquire == null) {
+            return 0;
+        }
+        long count = acquire.count() - lastAcquireCount;
+        double nanos = acquire.totalTime(TimeUnit.NANOSECONDS) - lastAcquireNanos;
+        lastAcquireCount = acquire.count();
+        lastAcquireNanos = acquire.totalTime(TimeUnit.NANOSECONDS);
+
+        return count == 0 ? 0 : nanos / count;
+    }
+}
@@ -0,0 +1,76 @@
+package userservice.datasource;
+
+import java.time.Duration;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * Read-your-writes guarantee for replica routing. After a write the current thread, and every
+ * later request of the same client, reads from the primary until {@code window} has passed,
+ * by which time any replica that is still considered healthy has replayed the write.
+ * <p>
+ * Across requests the deadline travels in the {@value #COOKIE} cookie. A deadline further out
+ * than {@code window} from now is cut back to it, so a client can't pin itself for longer.
+ */
+public class PrimaryStickiness {
+    static final String COOKIE = "USER_PRIMARY_UNTIL";
+
+    //region Fields
+    private final ThreadLocal<Long> primaryUntil = new ThreadLocal<>();
+    private final long windowMillis;
+    //endregion
+
+    public PrimaryStickiness(Duration window) {
+        this.windowMillis = window.toMillis();
+    }
+
+    public boolean isPinned() {
+        Long until = primaryUntil.get();
+        return until != null && until > System.currentTimeMillis();
+    }
+
+    /**
+     * Pins the current thread to the primary and asks the client to carry the pin along.
+     */
+    public void pin() {
+        long until = System.currentTimeMillis() + windowMillis;
+        primaryUntil.set(until);
+
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes servletAttributes) {
+            HttpServletResponse response = servletAttributes.getResponse();
+            if (response != null && !response.isCommitted()) {
+                Cookie cookie = new Cookie(COOKIE, Long.toString(until));
+                cookie.setPath("/");
+                cookie.setHttpOnly(true);
+                cookie.setMaxAge((int) Math.max(1, windowMillis / 1000));
+                response.addCookie(cookie);
+            }
+        }
+    }
+
+    void restore(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE.equals(cookie.getName())) {
+                try {
+                    primaryUntil.set(Math.min(Long.parseLong(cookie.getValue()),
+                            System.currentTimeMillis() + windowMillis));
+                } catch (NumberFormatException e) {
+                    primaryUntil.remove();
+                }
+            }
+        }
+    }
+
+    void clear() {
+        primaryUntil.remove();
+    }
+}
@@ -0,0 +1,25 @@
+package userservice.datasource;
+
+import java.io.IOException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+@RequiredArgsConstructor
+public class PrimaryStickinessFilter extends OncePerRequestFilter {
+    private final PrimaryStickiness stickiness;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        stickiness.restore(request);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            stickiness.clear();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package userservice.datasource;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import javax.sql.DataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "user.datasource.replica.enabled", havingValue = "true")
+public class ReplicaRoutingConfig implements SchedulingConfigurer {
+    //region Fields
+    @Value("${user.datasource.replica.urls}")
+    private List<String> replicaUrls;
+    @Value("${user.datasource.replica.username}")
+    private String replicaUsername;
+    @Value("${user.datasource.replica.password}")
+    private String replicaPassword;
+    @Value("${user.datasource.replica.max_lag}")
+    private Duration maxLag;
+    @Value("${user.datasource.replica.lag_check_interval}")
+    private Duration lagCheckInterval;
+    @Autowired
+    private ObjectProvider<ReplicaRoutingDataSource> replicaRoutingDataSource;
+    //endregion
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        taskRegistrar.addFixedDelayTask(
+                () -> replicaRoutingDataSource.getObject().checkReplicas(), lagCheckInterval);
+    }
+
+    @Bean
+    public PrimaryStickiness primaryStickiness() {
+        return new PrimaryStickiness(maxLag.plus(lagCheckInterval));
+    }
+
+    @Bean
+    public PrimaryStickinessFilter primaryStickinessFilter(PrimaryStickiness primaryStickiness) {
+        return new PrimaryStickinessFilter(primaryStickiness);
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName(ReplicaRoutingDataSource.PRIMARY);
+
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource,
+                                                             DataSourceProperties properties,
+                                                             PrimaryStickiness primaryStickiness,
+                                                             MeterRegistry meterRegistry) {
+        List<DataSource> replicas = new ArrayList<>(replicaUrls.size());
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            replicas.add(replica(properties, i, meterRegistry));
+        }
+        ReplicaRoutingDataSource routingDataSource =
+                new ReplicaRoutingDataSource(primaryDataSource, replicas, primaryStickiness, maxLag);
+        Gauge.builder("user.datasource.replicas.healthy",
+                        routingDataSource, ReplicaRoutingDataSource::healthyReplicaCount)
+                .register(meterRegistry);
+
+        return routingDataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    private HikariDataSource replica(DataSourceProperties properties, int index,
+                                     MeterRegistry meterRegistry) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setDriverClassName(properties.determineDriverClassName());
+        dataSource.setJdbcUrl(replicaUrls.get(index));
+        dataSource.setUsername(replicaUsername);
+        dataSource.setPassword(replicaPassword);
+        dataSource.setReadOnly(true);
+        dataSource.setPoolName(ReplicaRoutingDataSource.REPLICA_PREFIX + index);
+        // Not a bean, so Spring Boot doesn't bind its pool metrics.
+        dataSource.setMetricRegistry(meterRegistry);
+
+        return dataSource;
+    }
+}
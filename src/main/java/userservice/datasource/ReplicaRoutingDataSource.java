@@ -0,0 +1,134 @@
+package userservice.datasource;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Sends read-only transactions to a healthy replica, round robin, and everything else to the
+ * primary. A replica is healthy when its last lag check succeeded, found it streaming from the
+ * primary and reported no more than {@code maxLag}; without one, or while the caller is pinned by {@link PrimaryStickiness},
+ * reads go to the primary as well.
+ * <p>
+ * The routing decision needs the transaction's read-only flag, so this data source has to sit
+ * behind a {@code LazyConnectionDataSourceProxy} that defers fetching the connection until
+ * the first statement.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource
+        implements AutoCloseable {
+    static final String PRIMARY = "primary";
+    static final String REPLICA_PREFIX = "replica-";
+    /**
+     * Seconds the replica is behind the primary; zero on a primary or a fully replayed standby,
+     * where the last replay timestamp only tells how long the primary has been idle. Null while
+     * the standby isn't streaming from the primary, since then it can't tell what it misses;
+     * seeing the receiver's status takes the {@code pg_read_all_stats} role.
+     */
+    private static final String LAG_QUERY = "select case"
+            + " when not pg_is_in_recovery() then 0"
+            + " when not exists (select 1 from pg_stat_wal_receiver where status = 'streaming')"
+            + " then null"
+            + " when pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() then 0"
+            + " else extract(epoch from now() - pg_last_xact_replay_timestamp()) end";
+    private static final Logger logger = LogManager.getLogger(ReplicaRoutingDataSource.class);
+
+    //region Fields
+    private final Map<String, DataSource> replicas;
+    private final PrimaryStickiness stickiness;
+    private final double maxLagSeconds;
+    private final AtomicInteger next = new AtomicInteger();
+    private volatile List<String> healthyReplicas = List.of();
+    //endregion
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas,
+                                    PrimaryStickiness stickiness, Duration maxLag) {
+        this.replicas = new LinkedHashMap<>();
+        for (int i = 0; i < replicas.size(); i++) {
+            this.replicas.put(REPLICA_PREFIX + i, replicas.get(i));
+        }
+        this.stickiness = stickiness;
+        this.maxLagSeconds = maxLag.toMillis() / 1000.0;
+
+        Map<Object, Object> targets = new HashMap<>(this.replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                stickiness.pin();
+            }
+            return PRIMARY;
+        }
+        List<String> healthy = healthyReplicas;
+        if (healthy.isEmpty() || stickiness.isPinned()) {
+            return PRIMARY;
+        }
+
+        return healthy.get(Math.floorMod(next.getAndIncrement(), healthy.size()));
+    }
+
+    /**
+     * Measures the lag of every replica and routes reads only to those within the threshold.
+     */
+    public void checkReplicas() {
+        List<String> healthy = new ArrayList<>(replicas.size());
+        replicas.forEach((key, replica) -> {
+            try {
+                Double lag = lagSeconds(replica);
+                if (lag == null) {
+                    logger.warn("Replica {} isn't streaming from the primary", key);
+                } else if (lag <= maxLagSeconds) {
+                    healthy.add(key);
+                } else {
+                    logger.warn("Replica {} is {}s behind the primary", key, lag);
+                }
+            } catch (SQLException e) {
+                logger.warn("Replica {} is unavailable: {}", key, e.getMessage());
+            }
+        });
+        healthyReplicas = List.copyOf(healthy);
+    }
+
+    public int healthyReplicaCount() {
+        return healthyReplicas.size();
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (DataSource replica : replicas.values()) {
+            if (replica instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    /**
+     * @return null if the replica isn't streaming from the primary
+     */
+    private Double lagSeconds(DataSource replica) throws SQLException {
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(LAG_QUERY)) {
+            resultSet.next();
+            double lag = resultSet.getDouble(1);
+            return resultSet.wasNull() ? null : lag;
+        }
+    }
+}
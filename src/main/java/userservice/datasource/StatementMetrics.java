@@ -0,0 +1,149 @@
+package userservice.datasource;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.sql.DataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManagerFactory;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Times the JDBC statements run through {@link #wrap wrapped} data sources into a
+ * {@code user.statement} timer tagged with the repository method they ran under, which tells
+ * database time apart from waiting for a connection ({@code hikaricp.connections.acquire}).
+ * The persistence context is flushed before a {@code save} or {@code delete} method returns
+ * within a transaction, so the writes it scheduled are timed under it rather than on commit.
+ * Statements outside any repository method are tagged {@code none}.
+ */
+@Aspect
+@Component
+public class StatementMetrics {
+    static final String STATEMENT_TIMER = "user.statement";
+    private static final String NONE = "none";
+
+    //region Fields
+    private final MeterRegistry meterRegistry;
+    private final ObjectProvider<EntityManagerFactory> entityManagerFactory;
+    private final ThreadLocal<Timer> repositoryTimer = new ThreadLocal<>();
+    private final Map<RepositoryMethod, Timer> timers = new ConcurrentHashMap<>();
+    private final Timer unattributed;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    //endregion
+
+    /**
+     * Takes the entity manager factory lazily, as it is built on the data source this wraps.
+     */
+    public StatementMetrics(MeterRegistry meterRegistry,
+                            ObjectProvider<EntityManagerFactory> entityManagerFactory) {
+        this.meterRegistry = meterRegistry;
+        this.entityManagerFactory = entityManagerFactory;
+        this.unattributed = timer(NONE, NONE);
+    }
+
+    /**
+     * Matches inherited methods like {@code save} too, which {@code @Repository}-based pointcuts
+     * miss on Spring Data repositories.
+     */
+    @Around("execution(* org.springframework.data.repository.Repository+.*(..))")
+    public Object attributeToRepositoryMethod(ProceedingJoinPoint joinPoint) throws Throwable {
+        RepositoryMethod key = new RepositoryMethod(repositoryType(joinPoint.getTarget()),
+                ((MethodSignature) joinPoint.getSignature()).getMethod());
+        Timer previous = repositoryTimer.get();
+        repositoryTimer.set(timers.computeIfAbsent(key, this::timer));
+        try {
+            Object result = joinPoint.proceed();
+            if (isDeferredWrite(key.method())) {
+                flush();
+            }
+            return result;
+        } finally {
+            if (previous == null) {
+                repositoryTimer.remove();
+            } else {
+                repositoryTimer.set(previous);
+            }
+        }
+    }
+
+    public DataSource wrap(DataSource dataSource) {
+        return new StatementTimingDataSource(dataSource, this);
+    }
+
+    /**
+     * @return statements run so far and their total time, for computing rates between calls
+     */
+    public Totals totals() {
+        return new Totals(count.sum(), totalNanos.sum());
+    }
+
+    void record(long nanos) {
+        Timer timer = repositoryTimer.get();
+
+        (timer == null ? unattributed : timer).record(nanos, TimeUnit.NANOSECONDS);
+        count.increment();
+        totalNanos.add(nanos);
+    }
+
+    /**
+     * Spring Data's {@code save} and {@code delete} methods only schedule their statements with
+     * the persistence context.
+     */
+    private static boolean isDeferredWrite(Method method) {
+        return method.getName().startsWith("save") || method.getName().startsWith("delete");
+    }
+
+    /**
+     * Flushes the entity manager of the current JPA transaction, if there is one. Outside a
+     * transaction the repository method committed, and so flushed, on its own.
+     */
+    private void flush() {
+        EntityManagerFactory factory = entityManagerFactory.getIfAvailable();
+        if (factory != null && TransactionSynchronizationManager.getResource(factory)
+                instanceof EntityManagerHolder holder) {
+            holder.getEntityManager().flush();
+        }
+    }
+
+    private Timer timer(RepositoryMethod key) {
+        return timer(key.repository().getSimpleName(), key.method().getName());
+    }
+
+    private Timer timer(String className, String methodName) {
+        return Timer.builder(STATEMENT_TIMER)
+                .description("JDBC statement execution time by the repository method running it")
+                .tag("class", className)
+                .tag("method", methodName)
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .register(meterRegistry);
+    }
+
+    /**
+     * The repository interface behind a Spring Data proxy, rather than the interface that
+     * declares an inherited method.
+     */
+    private static Class<?> repositoryType(Object repository) {
+        return Proxy.isProxyClass(repository.getClass())
+                ? AopProxyUtils.proxiedUserInterfaces(repository)[0]
+                : repository.getClass();
+    }
+
+    public record Totals(long count, long nanos) {
+    }
+
+    private record RepositoryMethod(Class<?> repository, Method method) {
+    }
+}
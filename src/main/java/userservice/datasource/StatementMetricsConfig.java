@@ -0,0 +1,23 @@
+package userservice.datasource;
+
+import javax.sql.DataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Gives Hibernate a {@link StatementMetrics#wrap wrapped} view of the primary data source. Only
+ * the persistence unit sees the wrapper; the pools stay the beans they are, so their own
+ * metrics, sizing and routing are unaffected.
+ */
+@Configuration
+public class StatementMetricsConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer statementTimingCustomizer(
+            DataSource dataSource, StatementMetrics statementMetrics) {
+        return properties -> properties.put(AvailableSettings.JAKARTA_NON_JTA_DATASOURCE,
+                statementMetrics.wrap(dataSource));
+    }
+}
@@ -0,0 +1,87 @@
+package userservice.datasource;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * Hands out connections whose statements report the time each {@code execute*} call takes to
+ * {@link StatementMetrics}. Every other call, {@code unwrap} included, goes straight to the
+ * pooled connection or statement.
+ */
+class StatementTimingDataSource extends DelegatingDataSource {
+    private static final Set<String> STATEMENT_FACTORIES =
+            Set.of("createStatement", "prepareStatement", "prepareCall");
+    private static final String EXECUTE_PREFIX = "execute";
+
+    //region Fields
+    private final StatementMetrics statementMetrics;
+    //endregion
+
+    StatementTimingDataSource(DataSource targetDataSource, StatementMetrics statementMetrics) {
+        super(targetDataSource);
+        this.statementMetrics = statementMetrics;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return timed(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return timed(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    private Connection timed(Connection connection) {
+        return proxy(Connection.class, connection, (method, args) -> {
+            Object result = invoke(connection, method, args);
+            return STATEMENT_FACTORIES.contains(method.getName())
+                    ? timed(method.getReturnType(), (Statement) result)
+                    : result;
+        });
+    }
+
+    private <T> T timed(Class<T> type, Statement statement) {
+        return proxy(type, statement, (method, args) -> {
+            if (!method.getName().startsWith(EXECUTE_PREFIX)) {
+                return invoke(statement, method, args);
+            }
+            long start = System.nanoTime();
+            try {
+                return invoke(statement, method, args);
+            } finally {
+                statementMetrics.record(System.nanoTime() - start);
+            }
+        });
+    }
+
+    private static <T> T proxy(Class<T> type, Object target, Handler handler) {
+        return type.cast(Proxy.newProxyInstance(StatementTimingDataSource.class.getClassLoader(),
+                new Class<?>[]{type}, (proxy, method, args) -> switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "toString" -> target.toString();
+                    default -> handler.handle(method, args);
+                }));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Object handle(Method method, Object[] args) throws Throwable;
+    }
+}
@@ -0,0 +1,153 @@
+package userservice.datasource.sharding;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Merges what several sources produce, each on its own thread, into one stream ordered by
+ * {@code order}, given each source produces in that order. Sources run ahead of the consumer by
+ * at most {@code buffer} elements each. Closing the stream stops the sources that are still
+ * running, and a failing source fails the stream.
+ */
+final class MergedStream<T> implements Iterator<T>, AutoCloseable {
+    private static final Object END = new Object();
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+    //region Fields
+    private final List<BlockingQueue<Object>> queues = new ArrayList<>();
+    private final PriorityQueue<Head> heads;
+    private boolean started;
+    private volatile boolean closed;
+    //endregion
+
+    private MergedStream(Comparator<? super T> order) {
+        this.heads = new PriorityQueue<>((a, b) -> order.compare(a.element, b.element));
+    }
+
+    /**
+     * @param sources each passes its elements, in order, to the consumer it is given
+     * @throws java.util.concurrent.RejectedExecutionException if {@code executor} turns a
+     *         source away, after stopping the ones it already took
+     */
+    static <T> Stream<T> of(Executor executor, List<Consumer<Consumer<T>>> sources,
+                            Comparator<? super T> order, int buffer) {
+        MergedStream<T> merged = new MergedStream<>(order);
+        for (Consumer<Consumer<T>> source : sources) {
+            BlockingQueue<Object> queue = new ArrayBlockingQueue<>(buffer);
+            merged.queues.add(queue);
+            try {
+                executor.execute(() -> merged.produce(source, queue));
+            } catch (RuntimeException e) {
+                merged.close();
+                throw e;
+            }
+        }
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged,
+                        Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(merged::close);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!started) {
+            started = true;
+            for (int i = 0; i < queues.size(); i++) {
+                advance(i);
+            }
+        }
+        return !heads.isEmpty();
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Head head = heads.poll();
+        advance(head.source);
+
+        return head.element;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        queues.forEach(BlockingQueue::clear);
+    }
+
+    private void produce(Consumer<Consumer<T>> source, BlockingQueue<Object> queue) {
+        try {
+            source.accept(element -> put(queue, element));
+            put(queue, END);
+        } catch (CancellationException e) {
+            // Closed by the consumer.
+        } catch (RuntimeException | Error e) {
+            if (!closed) {
+                put(queue, new Failure(e));
+            }
+        }
+    }
+
+    private void put(BlockingQueue<Object> queue, Object element) {
+        try {
+            do {
+                if (closed) {
+                    throw new CancellationException();
+                }
+            } while (!queue.offer(element, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void advance(int source) {
+        Object element;
+        try {
+            element = queues.get(source).take();
+        } catch (InterruptedException e) {
+            close();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while merging shard results", e);
+        }
+        if (element instanceof Failure failure) {
+            close();
+            if (failure.error instanceof Error error) {
+                throw error;
+            }
+            throw (RuntimeException) failure.error;
+        }
+        if (element != END) {
+            heads.add(new Head(source, (T) element));
+        }
+    }
+
+    private record Failure(Throwable error) {
+    }
+
+    private final class Head {
+        private final int source;
+        private final T element;
+
+        private Head(int source, T element) {
+            this.source = source;
+            this.element = element;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package userservice.datasource.sharding;
+
+import java.util.function.Supplier;
+import userservice.service.changes.ChangeLogShards;
+
+/**
+ * Reads and cleans up the change log of each shard by binding the calling thread to it.
+ */
+class ShardChangeLog implements ChangeLogShards {
+    //region Fields
+    private final ShardRoutingDataSource routingDataSource;
+    //endregion
+
+    ShardChangeLog(ShardRoutingDataSource routingDataSource) {
+        this.routingDataSource = routingDataSource;
+    }
+
+    @Override
+    public int count() {
+        return routingDataSource.shards().size();
+    }
+
+    @Override
+    public <T> T on(int shard, Supplier<T> query) {
+        boolean release = routingDataSource.bind(shard);
+        try {
+            return query.get();
+        } finally {
+            if (release) {
+                routingDataSource.release();
+            }
+        }
+    }
+}
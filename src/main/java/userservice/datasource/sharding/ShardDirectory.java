@@ -0,0 +1,156 @@
+package userservice.datasource.sharding;
+
+import java.util.Arrays;
+import java.util.List;
+import javax.sql.DataSource;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Where users live: the shard of each id slot, {@code id % SLOTS}, and the ids each email
+ * belongs to, kept in the directory database.
+ * <p>
+ * The slot map is read on {@link #initialize() startup} and {@link #refresh() refreshed}
+ * periodically, so each lookup is an array access. The first instance to start on an empty
+ * directory spreads the slots round robin over the configured shards.
+ */
+public class ShardDirectory {
+    public static final int SLOTS = 1024;
+    private static final Logger logger = LogManager.getLogger(ShardDirectory.class);
+    private static final String LOCK_SLOTS = "lock table shard_slots in exclusive mode";
+    private static final String SELECT_SLOTS = "select slot, shard from shard_slots";
+    private static final String INSERT_SLOTS = "insert into shard_slots (slot, shard)"
+            + " select slot, slot % ? from generate_series(0, ?) slot on conflict do nothing";
+    private static final String INSERT_OWNED_SLOTS = "insert into owned_slots (slot)"
+            + " select slot from generate_series(0, ?) slot where slot % ? = ?"
+            + " on conflict do nothing";
+    private static final String UPDATE_SLOT = "update shard_slots set shard = ? where slot = ?";
+    private static final String INSERT_EMAILS = "insert into user_emails (email, user_id)"
+            + " select * from unnest(?::varchar[], ?::bigint[]) on conflict do nothing";
+    private static final String SELECT_USER_IDS =
+            "select user_id from user_emails where email = ?";
+    private static final String DELETE_EMAILS = "delete from user_emails where user_id = ?";
+    private static final String SELECT_MAX_ID = "select coalesce(max(id), 0) from users";
+
+    //region Fields
+    private final JdbcTemplate directory;
+    private final TransactionOperations directoryTransactions;
+    private final List<JdbcTemplate> shards;
+    private volatile int[] slotShards = new int[0];
+    //endregion
+
+    public ShardDirectory(DataSource directory, List<DataSource> shards) {
+        this.directory = new JdbcTemplate(directory);
+        this.directoryTransactions =
+                new TransactionTemplate(new DataSourceTransactionManager(directory));
+        this.shards = shards.stream().map(JdbcTemplate::new).toList();
+    }
+
+    public static int slotOf(long id) {
+        return (int) Math.floorMod(id, (long) SLOTS);
+    }
+
+    /**
+     * Loads the slot map, first assigning the slots if no instance did yet. The shards are told
+     * which slots they own before the directory is, so a crash in between is repaired by the
+     * next start.
+     */
+    public void initialize() {
+        directoryTransactions.executeWithoutResult(status -> {
+            directory.execute(LOCK_SLOTS);
+            if (loadSlots() == 0) {
+                logger.info("Assigning {} slots to {} shards", SLOTS, shards.size());
+                for (int i = 0; i < shards.size(); i++) {
+                    shards.get(i).update(INSERT_OWNED_SLOTS, SLOTS - 1, shards.size(), i);
+                }
+                directory.update(INSERT_SLOTS, shards.size(), SLOTS - 1);
+            }
+        });
+        if (loadSlots() != SLOTS) {
+            throw new IllegalStateException("shard_slots must hold all " + SLOTS + " slots");
+        }
+        int highest = Arrays.stream(slotShards).max().orElse(0);
+        if (highest >= shards.size()) {
+            throw new IllegalStateException("Slots are assigned to shard " + highest
+                    + " but only " + shards.size() + " shard urls are configured");
+        }
+    }
+
+    public void refresh() {
+        loadSlots();
+    }
+
+    public int shardOf(long id) {
+        return slotShards[slotOf(id)];
+    }
+
+    public int shardOfSlot(int slot) {
+        return slotShards[slot];
+    }
+
+    /**
+     * @return the shard of every slot, as of the last refresh
+     */
+    public int[] slotShards() {
+        return slotShards.clone();
+    }
+
+    public int shardCount() {
+        return shards.size();
+    }
+
+    /**
+     * @return the highest user id on any shard, 0 when there are no users
+     */
+    public long maxUserId() {
+        return shards.stream()
+                .mapToLong(shard -> shard.queryForObject(SELECT_MAX_ID, Long.class))
+                .max()
+                .orElse(0);
+    }
+
+    /**
+     * Points {@code slot} to {@code shard} in the directory; instances pick it up on their next
+     * refresh.
+     */
+    void assign(int slot, int shard) {
+        directory.update(UPDATE_SLOT, shard, slot);
+        loadSlots();
+    }
+
+    /**
+     * Records that each email belongs to the user with the id at the same index. Must be done
+     * before the users are written, so a lookup never misses a committed user.
+     */
+    public void addEmails(List<String> emails, List<Long> userIds) {
+        if (!emails.isEmpty()) {
+            directory.update(INSERT_EMAILS, emails.toArray(String[]::new),
+                    userIds.toArray(Long[]::new));
+        }
+    }
+
+    public List<Long> userIdsByEmail(String email) {
+        return directory.queryForList(SELECT_USER_IDS, Long.class, email);
+    }
+
+    public void removeEmails(Long userId) {
+        directory.update(DELETE_EMAILS, userId);
+    }
+
+    private int loadSlots() {
+        int[] loaded = new int[SLOTS];
+        int[] count = new int[1];
+        directory.query(SELECT_SLOTS, resultSet -> {
+            loaded[resultSet.getInt(1)] = resultSet.getInt(2);
+            count[0]++;
+        });
+        if (count[0] == SLOTS) {
+            slotShards = loaded;
+        }
+        return count[0];
+    }
+}
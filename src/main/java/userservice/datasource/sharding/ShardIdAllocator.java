@@ -0,0 +1,96 @@
+package userservice.datasource.sharding;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.sql.DataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import userservice.model.User;
+
+/**
+ * Gives new users ids that tell their shard: {@code sequence * SLOTS + slot}, with the sequence
+ * numbers taken from the directory's {@code users_seq} in blocks of
+ * {@link User#ID_ALLOCATION_SIZE}, like every other writer does. All users of one call get the
+ * same, randomly picked slot, so a batch is written to a single shard, and batches spread over
+ * all of them.
+ */
+public class ShardIdAllocator {
+    private static final String NEXT_BLOCKS =
+            "select nextval('users_seq') from generate_series(1, ?)";
+    private static final String SKIP_BEYOND = "select setval('users_seq',"
+            + " greatest((select last_value from users_seq), ?))";
+
+    //region Fields
+    private final JdbcTemplate directory;
+    private final ReentrantLock lock = new ReentrantLock();
+    private long next;
+    private long last = -1;
+    //endregion
+
+    public ShardIdAllocator(DataSource directory) {
+        this.directory = new JdbcTemplate(directory);
+    }
+
+    /**
+     * Moves the sequence beyond {@code maxId / SLOTS}, so that ids allocated from then on are
+     * greater than {@code maxId}, which users written before sharding was enabled may have.
+     */
+    public void skipBeyond(long maxId) {
+        directory.queryForObject(SKIP_BEYOND, Long.class, maxId / ShardDirectory.SLOTS + 1);
+    }
+
+    /**
+     * Gives every user without an id a new one, all in the same slot.
+     */
+    public void assignIds(List<User> users) {
+        List<User> unassigned = users.stream().filter(user -> user.getId() == null).toList();
+        if (unassigned.isEmpty()) {
+            return;
+        }
+        int slot = ThreadLocalRandom.current().nextInt(ShardDirectory.SLOTS);
+        long[] sequence = nextSequenceNumbers(unassigned.size());
+        for (int i = 0; i < unassigned.size(); i++) {
+            unassigned.get(i).setId(sequence[i] * ShardDirectory.SLOTS + slot);
+        }
+    }
+
+    private long[] nextSequenceNumbers(int count) {
+        long[] numbers = new long[count];
+        lock.lock();
+        try {
+            int taken = 0;
+            while (taken < count) {
+                if (next > last) {
+                    reserveBlocks(count - taken);
+                }
+                for (; next <= last && taken < count; next++) {
+                    numbers[taken++] = next;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return numbers;
+    }
+
+    /**
+     * Reserves enough blocks for {@code count} numbers; they are contiguous unless other
+     * instances reserved blocks in between, in which case the loop above asks again.
+     */
+    private void reserveBlocks(int count) {
+        List<Long> blocks = new ArrayList<>(directory.queryForList(NEXT_BLOCKS, Long.class,
+                (count - 1) / User.ID_ALLOCATION_SIZE + 1));
+        blocks.sort(null);
+        long first = blocks.get(0);
+        long end = first;
+        for (long block : blocks) {
+            if (block != end) {
+                break;
+            }
+            end = block + User.ID_ALLOCATION_SIZE;
+        }
+        next = Math.max(1, first - User.ID_ALLOCATION_SIZE + 1);
+        last = end - User.ID_ALLOCATION_SIZE;
+    }
+}
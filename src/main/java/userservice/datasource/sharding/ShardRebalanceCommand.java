@@ -0,0 +1,34 @@
+package userservice.datasource.sharding;
+
+import java.sql.SQLException;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Rebalances the shards on startup when {@code user.datasource.shard.rebalance} is set, for
+ * instance after adding a shard url. The instance serves requests meanwhile, and so do the
+ * others, which only need to be restarted with the new url list beforehand.
+ */
+@Component
+@ConditionalOnProperty(name = {"user.datasource.shard.enabled", "user.datasource.shard.rebalance"},
+        havingValue = "true")
+@RequiredArgsConstructor
+public class ShardRebalanceCommand implements ApplicationRunner {
+    private static final Logger logger = LogManager.getLogger(ShardRebalanceCommand.class);
+
+    //region Fields
+    private final ShardRebalancer rebalancer;
+    //endregion
+
+    @Override
+    public void run(ApplicationArguments args) throws SQLException, InterruptedException {
+        List<ShardRebalancer.SlotMove> moves = rebalancer.rebalance();
+        logger.info("Finished rebalancing the shards: {} slots moved", moves.size());
+    }
+}
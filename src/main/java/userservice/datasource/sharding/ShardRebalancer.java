@@ -0,0 +1,301 @@
+package userservice.datasource.sharding;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+import javax.sql.DataSource;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Moves slots between shards until each shard has an even share, while the service keeps
+ * serving them.
+ * <p>
+ * A slot is first copied to its new shard in batches. Then its old shard stops accepting writes
+ * for it, which waits for the writes in progress, the copy is brought up to date and the
+ * directory points the slot to the new shard. Writes in between are turned away with a 503 and
+ * succeed on retry. The old rows stay readable until every instance has refreshed its directory,
+ * and are deleted after that.
+ * <p>
+ * Leftovers of an interrupted run are repaired first. Only one run at a time is allowed, guarded
+ * by an advisory lock in the directory database.
+ */
+public class ShardRebalancer {
+    private static final Logger logger = LogManager.getLogger(ShardRebalancer.class);
+    private static final long LOCK_KEY = 0x7573657273686172L;
+    private static final String TRY_LOCK = "select pg_try_advisory_lock(" + LOCK_KEY + ")";
+    private static final String UNLOCK = "select pg_advisory_unlock(" + LOCK_KEY + ")";
+    private static final String COLUMNS =
+            "id, email, firstname, lastname, birthdate, address, phone_number, version";
+    private static final String REBALANCING = "select set_config('user.rebalancing', 'on', true)";
+    private static final String SELECT_SLOT_ROWS = "select " + COLUMNS + " from users"
+            + " where id % 1024 = ? and id > ? order by id limit ?";
+    private static final String SELECT_SLOT_IDS = "select id from users"
+            + " where id % 1024 = ? and id > ? order by id limit ?";
+    private static final String SELECT_EXISTING_IDS = "select id from users where id = any(?)";
+    private static final String UPSERT = "insert into users (" + COLUMNS + ")"
+            + " values (?, ?, ?, ?, ?, ?, ?, ?) on conflict (id) do update set"
+            + " email = excluded.email, firstname = excluded.firstname,"
+            + " lastname = excluded.lastname, birthdate = excluded.birthdate,"
+            + " address = excluded.address, phone_number = excluded.phone_number,"
+            + " version = excluded.version where users.version is distinct from excluded.version";
+    private static final String DELETE_IDS = "delete from users where id = any(?)";
+    private static final String DELETE_SLOT_BATCH = "delete from users where id in"
+            + " (select id from users where id % 1024 = ? limit ?)";
+    private static final String SELECT_USED_SLOTS = "select slot from generate_series(0, ?) slot"
+            + " where exists (select 1 from users where id % 1024 = slot)";
+    private static final String SELECT_OWNED_SLOTS = "select slot from owned_slots";
+    private static final String OWN_SLOT =
+            "insert into owned_slots (slot) values (?) on conflict do nothing";
+    private static final String DISOWN_SLOT = "delete from owned_slots where slot = ?";
+
+    //region Fields
+    private final ShardDirectory directory;
+    private final DataSource directoryDataSource;
+    private final List<JdbcTemplate> shards;
+    private final List<TransactionOperations> shardTransactions;
+    private final int batchSize;
+    private final Duration grace;
+    //endregion
+
+    public ShardRebalancer(ShardDirectory directory, DataSource directoryDataSource,
+                           List<DataSource> shards, int batchSize, Duration refreshInterval) {
+        this.directory = directory;
+        this.directoryDataSource = directoryDataSource;
+        this.shards = shards.stream().map(JdbcTemplate::new).toList();
+        this.shardTransactions = shards.stream()
+                .map(shard -> (TransactionOperations)
+                        new TransactionTemplate(new DataSourceTransactionManager(shard)))
+                .toList();
+        this.batchSize = batchSize;
+        this.grace = refreshInterval.multipliedBy(2);
+    }
+
+    /**
+     * @return the moves made
+     * @throws IllegalStateException if another instance is rebalancing
+     */
+    public List<SlotMove> rebalance() throws SQLException, InterruptedException {
+        try (Connection lock = directoryDataSource.getConnection()) {
+            if (!query(lock, TRY_LOCK)) {
+                throw new IllegalStateException("Another instance is rebalancing the shards");
+            }
+            try {
+                return rebalanceLocked();
+            } finally {
+                query(lock, UNLOCK);
+            }
+        }
+    }
+
+    /**
+     * Plans the fewest moves that leave every shard with {@code SLOTS / shards} slots, give or
+     * take one.
+     */
+    static List<SlotMove> plan(int[] slotShards, int shards) {
+        int[] counts = new int[shards];
+        for (int shard : slotShards) {
+            counts[shard]++;
+        }
+        // Shards that have the most already keep the remainder, which saves moves.
+        int[] targets = new int[shards];
+        int[] byCount = IntStream.range(0, shards).boxed()
+                .sorted(Comparator.comparingInt((Integer shard) -> -counts[shard])
+                        .thenComparingInt(shard -> shard))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        for (int i = 0; i < shards; i++) {
+            targets[byCount[i]] = slotShards.length / shards
+                    + (i < slotShards.length % shards ? 1 : 0);
+        }
+
+        Deque<Integer> surplus = new ArrayDeque<>();
+        int[] kept = new int[shards];
+        for (int slot = 0; slot < slotShards.length; slot++) {
+            int shard = slotShards[slot];
+            if (++kept[shard] > targets[shard]) {
+                surplus.add(slot);
+            }
+        }
+        List<SlotMove> moves = new ArrayList<>();
+        for (int shard = 0; shard < shards; shard++) {
+            for (int missing = targets[shard] - counts[shard]; missing > 0; missing--) {
+                int slot = surplus.poll();
+                moves.add(new SlotMove(slot, slotShards[slot], shard));
+            }
+        }
+        return moves;
+    }
+
+    private List<SlotMove> rebalanceLocked() throws InterruptedException {
+        directory.refresh();
+        repair();
+        List<SlotMove> moves = plan(directory.slotShards(), shards.size());
+        logger.info("Moving {} slots between {} shards", moves.size(), shards.size());
+
+        Deque<Cleanup> cleanups = new ArrayDeque<>();
+        for (int i = 0; i < moves.size(); i++) {
+            SlotMove move = moves.get(i);
+            long copied = move(move);
+            cleanups.add(new Cleanup(move, System.nanoTime() + grace.toNanos()));
+            logger.info("Moved slot {} ({} rows) from shard {} to shard {}, {} of {}",
+                    move.slot(), copied, move.from(), move.to(), i + 1, moves.size());
+            while (!cleanups.isEmpty() && cleanups.peek().due() <= System.nanoTime()) {
+                Cleanup cleanup = cleanups.poll();
+                deleteSlot(cleanup.move().from(), cleanup.move().slot());
+            }
+        }
+        while (!cleanups.isEmpty()) {
+            Cleanup cleanup = cleanups.poll();
+            long wait = cleanup.due() - System.nanoTime();
+            if (wait > 0) {
+                Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+            }
+            deleteSlot(cleanup.move().from(), cleanup.move().slot());
+        }
+        logger.info("Rebalanced {} slots", moves.size());
+        return moves;
+    }
+
+    /**
+     * Copies the slot to its new shard, fences it on the old one, catches up with the writes
+     * made meanwhile and points the directory to the new shard.
+     *
+     * @return the rows the slot had when it was fenced
+     */
+    private long move(SlotMove move) {
+        int slot = move.slot();
+        shards.get(move.to()).update(OWN_SLOT, slot);
+        copy(slot, move.from(), move.to());
+
+        shards.get(move.from()).update(DISOWN_SLOT, slot);
+        long rows = copy(slot, move.from(), move.to());
+        deleteMissing(slot, move.from(), move.to());
+        directory.assign(slot, move.to());
+
+        return rows;
+    }
+
+    /**
+     * Upserts the slot's rows from one shard into another, in batches by id, leaving rows that
+     * already have the same version alone.
+     */
+    private long copy(int slot, int from, int to) {
+        long copied = 0;
+        long afterId = Long.MIN_VALUE;
+        while (true) {
+            List<Object[]> rows = shards.get(from).query(SELECT_SLOT_ROWS,
+                    (resultSet, rowNum) -> row(resultSet), slot, afterId, batchSize);
+            if (rows.isEmpty()) {
+                return copied;
+            }
+            shardTransactions.get(to).executeWithoutResult(status -> {
+                shards.get(to).queryForObject(REBALANCING, String.class);
+                shards.get(to).batchUpdate(UPSERT, rows);
+            });
+            copied += rows.size();
+            afterId = (Long) rows.get(rows.size() - 1)[0];
+        }
+    }
+
+    /**
+     * Deletes the slot's rows on {@code to} that {@code from} no longer has.
+     */
+    private void deleteMissing(int slot, int from, int to) {
+        long afterId = Long.MIN_VALUE;
+        while (true) {
+            List<Long> ids = shards.get(to).queryForList(SELECT_SLOT_IDS, Long.class,
+                    slot, afterId, batchSize);
+            if (ids.isEmpty()) {
+                return;
+            }
+            List<Long> missing = new ArrayList<>(ids);
+            missing.removeAll(shards.get(from).queryForList(SELECT_EXISTING_IDS, Long.class,
+                    (Object) ids.toArray(Long[]::new)));
+            if (!missing.isEmpty()) {
+                shardTransactions.get(to).executeWithoutResult(status -> {
+                    shards.get(to).queryForObject(REBALANCING, String.class);
+                    shards.get(to).update(DELETE_IDS, (Object) missing.toArray(Long[]::new));
+                });
+            }
+            afterId = ids.get(ids.size() - 1);
+        }
+    }
+
+    private void deleteSlot(int shard, int slot) {
+        int deleted;
+        do {
+            deleted = shardTransactions.get(shard).execute(status -> {
+                shards.get(shard).queryForObject(REBALANCING, String.class);
+                return shards.get(shard).update(DELETE_SLOT_BATCH, slot, batchSize);
+            });
+        } while (deleted > 0);
+    }
+
+    /**
+     * Makes every shard own exactly the slots the directory assigns it and deletes rows of the
+     * other slots, which a run that didn't finish may have left behind.
+     */
+    private void repair() {
+        int[] slotShards = directory.slotShards();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            JdbcTemplate template = shards.get(shard);
+            Set<Integer> owned =
+                    new HashSet<>(template.queryForList(SELECT_OWNED_SLOTS, Integer.class));
+            for (int slot = 0; slot < slotShards.length; slot++) {
+                boolean assigned = slotShards[slot] == shard;
+                if (assigned && !owned.contains(slot)) {
+                    logger.warn("Shard {} didn't own its slot {}, taking it back", shard, slot);
+                    template.update(OWN_SLOT, slot);
+                } else if (!assigned && owned.contains(slot)) {
+                    logger.warn("Shard {} owned slot {} of shard {}, releasing it",
+                            shard, slot, slotShards[slot]);
+                    template.update(DISOWN_SLOT, slot);
+                }
+            }
+            for (int slot : template.queryForList(SELECT_USED_SLOTS, Integer.class,
+                    slotShards.length - 1)) {
+                if (slotShards[slot] != shard) {
+                    logger.warn("Deleting rows of slot {} left on shard {}", slot, shard);
+                    deleteSlot(shard, slot);
+                }
+            }
+        }
+    }
+
+    private static Object[] row(ResultSet resultSet) throws SQLException {
+        Object[] row = new Object[8];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = resultSet.getObject(i + 1);
+        }
+        return row;
+    }
+
+    private static boolean query(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getBoolean(1);
+        }
+    }
+
+    public record SlotMove(int slot, int from, int to) {
+    }
+
+    private record Cleanup(SlotMove move, long due) {
+    }
+}
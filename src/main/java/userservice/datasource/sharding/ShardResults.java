@@ -0,0 +1,95 @@
+package userservice.datasource.sharding;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import userservice.dto.UserResponseDto;
+import userservice.model.User;
+
+/**
+ * Puts the results of a query that ran on every shard back together in the order the query
+ * gives them on a single database.
+ */
+final class ShardResults {
+    static final Comparator<UserResponseDto> BY_BIRTHDATE_AND_ID = Comparator
+            .comparing(UserResponseDto::getBirthdate)
+            .thenComparing(UserResponseDto::getId);
+    static final Comparator<UserResponseDto> BY_ID = Comparator.comparing(UserResponseDto::getId);
+
+    private ShardResults() {
+    }
+
+    /**
+     * Merges lists that are each sorted by {@code order} into the first {@code limit} elements
+     * of their union.
+     */
+    static <T> List<T> merge(List<List<T>> sorted, Comparator<? super T> order, int limit) {
+        PriorityQueue<int[]> heads = new PriorityQueue<>(
+                (a, b) -> order.compare(sorted.get(a[0]).get(a[1]), sorted.get(b[0]).get(b[1])));
+        for (int i = 0; i < sorted.size(); i++) {
+            if (!sorted.get(i).isEmpty()) {
+                heads.add(new int[] {i, 0});
+            }
+        }
+        List<T> merged = new ArrayList<>();
+        while (!heads.isEmpty() && merged.size() < limit) {
+            int[] head = heads.poll();
+            List<T> list = sorted.get(head[0]);
+            merged.add(list.get(head[1]));
+            if (++head[1] < list.size()) {
+                heads.add(head);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * The order of prefix search: by the first matching value, lastname before firstname before
+     * email on ties, then by id. Values compare by code point, like the {@code "C"} collation
+     * compares UTF-8 bytes.
+     */
+    static Comparator<User> prefixOrder(String prefix) {
+        return Comparator.comparing((User user) -> firstMatch(user, prefix))
+                .thenComparing(User::getId);
+    }
+
+    private static Match firstMatch(User user, String prefix) {
+        Match first = null;
+        String[] values = {user.getLastname(), user.getFirstname(), user.getEmail()};
+        for (int field = 0; field < values.length; field++) {
+            if (values[field] == null) {
+                continue;
+            }
+            Match match = new Match(values[field].toLowerCase(Locale.ROOT), field);
+            if (match.value.startsWith(prefix) && (first == null || match.compareTo(first) < 0)) {
+                first = match;
+            }
+        }
+        return first == null ? new Match(prefix, values.length) : first;
+    }
+
+    private record Match(String value, int field) implements Comparable<Match> {
+        @Override
+        public int compareTo(Match other) {
+            int byValue = compareCodePoints(value, other.value);
+            return byValue != 0 ? byValue : Integer.compare(field, other.field);
+        }
+
+        private static int compareCodePoints(String a, String b) {
+            int i = 0;
+            int j = 0;
+            while (i < a.length() && j < b.length()) {
+                int x = a.codePointAt(i);
+                int y = b.codePointAt(j);
+                if (x != y) {
+                    return Integer.compare(x, y);
+                }
+                i += Character.charCount(x);
+                j += Character.charCount(y);
+            }
+            return Integer.compare(a.length() - i, b.length() - j);
+        }
+    }
+}
@@ -0,0 +1,421 @@
+package userservice.datasource.sharding;
+
+import java.lang.reflect.Method;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import userservice.dto.UserResponseDto;
+import userservice.exception.UserShardMovedException;
+import userservice.exception.UserShardsBusyException;
+import userservice.model.User;
+import userservice.repository.UserRepository;
+
+/**
+ * Runs {@code UserRepository} calls on the shards that hold the users involved.
+ * <p>
+ * Calls for one user go to the shard of its id; new users get their ids here first, and their
+ * emails are recorded in the {@link ShardDirectory} before they are written, so a lookup by
+ * email only asks the shards the email's users live on. Everything else runs on all shards in
+ * parallel, each on its own thread and connection, and the results are merged in the order a
+ * single database would return them. While a slot is being moved its rows exist on two shards,
+ * so rows are only taken from the shard the directory assigns their slot to.
+ * <p>
+ * A write that reaches a shard after its slot moved away fails with
+ * {@link UserShardMovedException}, and the directory is refreshed so the retry goes to the new
+ * shard. Every {@code UserRepository} method must have a route, which is checked on startup.
+ * <p>
+ * The parallel queries share {@code threads} threads, one for each shard connection there can
+ * be; a call that finds them all busy fails with {@link UserShardsBusyException} rather than
+ * waiting, since the queries holding them may be streams that only move on as their own callers
+ * read.
+ */
+@Aspect
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ShardRouter {
+    private static final Logger logger = LogManager.getLogger(ShardRouter.class);
+    private static final String SLOT_NOT_OWNED = "SH001";
+    private static final int STREAM_BUFFER = 1000;
+    private static final long IDLE_THREAD_SECONDS = 60;
+    private static final Set<String> ROUTED_METHODS = Set.of("findById", "existsById",
+            "findVersionById", "save", "persistAll", "copyAll", "updatePartial", "deleteById",
+            "findByEmail", "findVersionByEmail", "findAllByIdIn", "findByPrefix",
+            "findByBirthdateRangeAfter", "streamAllAfter", "streamAllIds", "streamAllEmails",
+            "findAll");
+
+    //region Fields
+    private final ShardRoutingDataSource routingDataSource;
+    private final ShardDirectory directory;
+    private final ShardIdAllocator idAllocator;
+    private final TransactionOperations readOnlyTransactions;
+    private final ExecutorService executor;
+    @PersistenceContext
+    private EntityManager entityManager;
+    //endregion
+
+    public ShardRouter(ShardRoutingDataSource routingDataSource, ShardDirectory directory,
+                       ShardIdAllocator idAllocator,
+                       PlatformTransactionManager transactionManager, int threads) {
+        checkRouted(UserRepository.class);
+        this.routingDataSource = routingDataSource;
+        this.directory = directory;
+        this.idAllocator = idAllocator;
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        this.readOnlyTransactions = readOnly;
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, IDLE_THREAD_SECONDS,
+                TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable,
+                            "shard-query-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        this.executor = pool;
+    }
+
+    @Around("execution(* org.springframework.data.repository.Repository+.*(..))"
+            + " && target(userservice.repository.UserRepository)")
+    @SuppressWarnings("unchecked")
+    public Object routeUserRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        Object[] args = joinPoint.getArgs();
+        String method = joinPoint.getSignature().getName();
+
+        return switch (method) {
+            case "findById", "existsById", "findVersionById" ->
+                    onShard(directory.shardOf((Long) args[0]), joinPoint, args);
+            case "save" -> write(List.of((User) args[0]), joinPoint);
+            case "persistAll", "copyAll" -> write((List<User>) args[0], joinPoint);
+            case "updatePartial" -> updatePartial(joinPoint, (Long) args[0], (User) args[1]);
+            case "deleteById" -> deleteById(joinPoint, (Long) args[0]);
+            case "findByEmail", "findVersionByEmail" -> findByEmail(joinPoint, (String) args[0]);
+            case "findAllByIdIn" -> findAllByIdIn(joinPoint, (List<Long>) args[0]);
+            case "findByPrefix" -> findByPrefix(joinPoint, (String) args[0], (int) args[1]);
+            case "findByBirthdateRangeAfter" -> findByBirthdateRangeAfter(joinPoint, args);
+            case "streamAllAfter" -> stream(joinPoint, ShardResults.BY_ID,
+                    (UserResponseDto user) -> user.getId());
+            case "streamAllIds" -> stream(joinPoint, (Long a, Long b) -> 0, (Long id) -> id);
+            case "streamAllEmails" -> stream(joinPoint, (String a, String b) -> 0, null);
+            case "findAll" -> onEveryShard(shard -> owned(shard,
+                    (List<User>) onShard(shard, joinPoint, args), User::getId))
+                    .stream().flatMap(List::stream).toList();
+            default -> throw unsupported(method);
+        };
+    }
+
+    /**
+     * Fails on a repository method there is no route for, which would otherwise only fail once
+     * it is called.
+     */
+    static void checkRouted(Class<?> repository) {
+        for (Method method : repository.getMethods()) {
+            if (!ROUTED_METHODS.contains(method.getName())) {
+                throw unsupported(method.getName());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Saves users that all live on one shard, giving new ones ids there first.
+     */
+    private Object write(List<User> users, ProceedingJoinPoint joinPoint) throws Throwable {
+        idAllocator.assignIds(users);
+        TreeSet<Integer> shards = new TreeSet<>();
+        List<String> emails = new ArrayList<>();
+        List<Long> ids = new ArrayList<>();
+        for (User user : users) {
+            shards.add(directory.shardOf(user.getId()));
+            if (user.getEmail() != null) {
+                emails.add(user.getEmail());
+                ids.add(user.getId());
+            }
+        }
+        if (shards.size() > 1) {
+            throw new IllegalStateException("Users saved together must be on the same shard, "
+                    + "these are on shards " + shards);
+        }
+        if (shards.isEmpty()) {
+            return joinPoint.proceed();
+        }
+        directory.addEmails(emails, ids);
+
+        return write(shards.first(), joinPoint, joinPoint.getArgs());
+    }
+
+    private Object updatePartial(ProceedingJoinPoint joinPoint, Long id, User changes)
+            throws Throwable {
+        if (changes.getEmail() != null) {
+            directory.addEmails(List.of(changes.getEmail()), List.of(id));
+        }
+        return write(directory.shardOf(id), joinPoint, joinPoint.getArgs());
+    }
+
+    private Object deleteById(ProceedingJoinPoint joinPoint, Long id) throws Throwable {
+        Object result = write(directory.shardOf(id), joinPoint, joinPoint.getArgs());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                    new TransactionSynchronization() {
+                        @Override
+                        public void afterCommit() {
+                            removeEmails(id);
+                        }
+                    });
+        } else {
+            removeEmails(id);
+        }
+        return result;
+    }
+
+    /**
+     * Asks each shard the email's users live on, until one has a user with that email now.
+     */
+    private Object findByEmail(ProceedingJoinPoint joinPoint, String email) throws Throwable {
+        TreeSet<Integer> shards = new TreeSet<>();
+        directory.userIdsByEmail(email).forEach(id -> shards.add(directory.shardOf(id)));
+        for (int shard : shards) {
+            Optional<?> result = (Optional<?>) onShard(shard, joinPoint, joinPoint.getArgs());
+            if (result.isPresent()) {
+                return result;
+            }
+        }
+        return Optional.empty();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object findAllByIdIn(ProceedingJoinPoint joinPoint, List<Long> ids) {
+        Map<Integer, List<Long>> idsByShard = new TreeMap<>();
+        for (Long id : ids) {
+            idsByShard.computeIfAbsent(directory.shardOf(id), shard -> new ArrayList<>()).add(id);
+        }
+        List<CompletableFuture<List<User>>> results = new ArrayList<>();
+        idsByShard.forEach((shard, shardIds) -> results.add(async(() ->
+                (List<User>) onShard(shard, joinPoint, new Object[] {shardIds}))));
+
+        return join(results).stream().flatMap(List::stream).toList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object findByPrefix(ProceedingJoinPoint joinPoint, String prefix, int limit) {
+        List<List<User>> results = onEveryShard(shard -> ownedFirst(shard, limit,
+                fetch -> (List<User>) onShard(shard, joinPoint, new Object[] {prefix, fetch}),
+                User::getId));
+
+        return ShardResults.merge(results, ShardResults.prefixOrder(prefix), limit);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object findByBirthdateRangeAfter(ProceedingJoinPoint joinPoint, Object[] args) {
+        Limit limit = (Limit) args[3];
+        int max = limit.isLimited() ? limit.max() : Integer.MAX_VALUE;
+        List<List<UserResponseDto>> results = onEveryShard(shard -> ownedFirst(shard, max,
+                fetch -> {
+                    Object[] shardArgs = args.clone();
+                    shardArgs[3] = limit.isLimited() ? Limit.of(fetch) : limit;
+                    return (List<UserResponseDto>) onShard(shard, joinPoint, shardArgs);
+                }, UserResponseDto::getId));
+
+        return ShardResults.merge(results, ShardResults.BY_BIRTHDATE_AND_ID, max);
+    }
+
+    /**
+     * Streams from every shard at once, each in its own read-only transaction, merged into
+     * {@code order}.
+     *
+     * @param id the user id of a row, to leave out rows of slots the shard doesn't own; null
+     *           for rows that don't tell their user
+     */
+    @SuppressWarnings("unchecked")
+    private <T> Stream<T> stream(ProceedingJoinPoint joinPoint, Comparator<T> order,
+                                 Function<T, Long> id) {
+        List<Consumer<Consumer<T>>> sources = new ArrayList<>();
+        for (int i = 0; i < directory.shardCount(); i++) {
+            int shard = i;
+            sources.add(sink -> {
+                boolean release = routingDataSource.bind(shard);
+                try {
+                    readOnlyTransactions.executeWithoutResult(status -> {
+                        try (Stream<T> rows = (Stream<T>) onShard(shard, joinPoint,
+                                joinPoint.getArgs())) {
+                            rows.filter(row -> id == null
+                                            || directory.shardOf(id.apply(row)) == shard)
+                                    .forEach(sink);
+                        }
+                    });
+                } finally {
+                    if (release) {
+                        routingDataSource.release();
+                    }
+                }
+            });
+        }
+        try {
+            return MergedStream.of(executor, sources, order, STREAM_BUFFER);
+        } catch (RejectedExecutionException e) {
+            throw busy(e);
+        }
+    }
+
+    /**
+     * Returns the first {@code limit} rows the query returns on {@code shard} that belong
+     * there, asking for more while rows of slots being moved take up room.
+     */
+    private <T> List<T> ownedFirst(int shard, int limit, Function<Integer, List<T>> query,
+                                   Function<T, Long> id) {
+        int fetch = limit;
+        while (true) {
+            List<T> rows = query.apply(fetch);
+            List<T> owned = owned(shard, rows, id);
+            if (owned.size() >= limit || rows.size() < fetch || fetch == Integer.MAX_VALUE) {
+                return owned.size() > limit ? owned.subList(0, limit) : owned;
+            }
+            fetch = (int) Math.min(Integer.MAX_VALUE, 2L * fetch);
+        }
+    }
+
+    private <T> List<T> owned(int shard, List<T> rows, Function<T, Long> id) {
+        return rows.stream().filter(row -> directory.shardOf(id.apply(row)) == shard).toList();
+    }
+
+    private Object onShard(int shard, ProceedingJoinPoint joinPoint, Object[] args) {
+        boolean release = routingDataSource.bind(shard);
+        try {
+            return joinPoint.proceed(args);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        } finally {
+            if (release) {
+                routingDataSource.release();
+            }
+        }
+    }
+
+    /**
+     * Runs a write on {@code shard}, flushing it within the transaction, if any, so a write the
+     * shard turns away fails here.
+     */
+    private Object write(int shard, ProceedingJoinPoint joinPoint, Object[] args) {
+        boolean release = routingDataSource.bind(shard);
+        try {
+            Object result = joinPoint.proceed(args);
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                entityManager.flush();
+            }
+            return result;
+        } catch (RuntimeException e) {
+            if (isSlotNotOwned(e)) {
+                directory.refresh();
+                throw new UserShardMovedException("User data is being moved to another shard,"
+                        + " retry shortly", e);
+            }
+            throw e;
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        } finally {
+            if (release) {
+                routingDataSource.release();
+            }
+        }
+    }
+
+    private <R> List<R> onEveryShard(Function<Integer, R> query) {
+        List<CompletableFuture<R>> results = new ArrayList<>();
+        for (int i = 0; i < directory.shardCount(); i++) {
+            int shard = i;
+            results.add(async(() -> query.apply(shard)));
+        }
+        return join(results);
+    }
+
+    private <R> CompletableFuture<R> async(Supplier<R> query) {
+        try {
+            return CompletableFuture.supplyAsync(query, executor);
+        } catch (RejectedExecutionException e) {
+            throw busy(e);
+        }
+    }
+
+    private static <R> List<R> join(List<CompletableFuture<R>> results) {
+        List<R> joined = new ArrayList<>(results.size());
+        for (CompletableFuture<R> result : results) {
+            try {
+                joined.add(result.join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+        return joined;
+    }
+
+    private void removeEmails(Long id) {
+        try {
+            directory.removeEmails(id);
+        } catch (RuntimeException e) {
+            logger.warn("Could not remove the emails of deleted user {}", id, e);
+        }
+    }
+
+    private static boolean isSlotNotOwned(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException
+                    && SLOT_NOT_OWNED.equals(sqlException.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static UserShardsBusyException busy(RejectedExecutionException e) {
+        return new UserShardsBusyException("Every shard connection is in use, retry shortly", e);
+    }
+
+    private static UnsupportedOperationException unsupported(String method) {
+        return new UnsupportedOperationException(
+                "UserRepository." + method + " isn't routed to the shards");
+    }
+}
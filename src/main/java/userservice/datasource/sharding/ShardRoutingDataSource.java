@@ -0,0 +1,105 @@
+package userservice.datasource.sharding;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Sends connections to the shard the current thread is {@link #bind bound} to, and to the
+ * directory database otherwise.
+ * <p>
+ * Within a transaction the first connection decides the database for all of it, so a binding
+ * made in a transaction lasts until it completes, and a transaction that already talked to the
+ * directory can't be bound to a shard any more. Like replica routing, this has to sit behind a
+ * {@code LazyConnectionDataSourceProxy}, so the connection is only fetched once the repository
+ * call that binds the thread runs its first statement.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+    static final int DIRECTORY = -1;
+
+    //region Fields
+    private final List<DataSource> shards;
+    private final ThreadLocal<Integer> boundShard = new ThreadLocal<>();
+    //endregion
+
+    public ShardRoutingDataSource(DataSource directory, List<DataSource> shards) {
+        this.shards = List.copyOf(shards);
+
+        Map<Object, Object> targets = new HashMap<>();
+        for (int i = 0; i < shards.size(); i++) {
+            targets.put(i, shards.get(i));
+        }
+        targets.put(DIRECTORY, directory);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(directory);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Integer shard = boundShard.get();
+        if (shard != null) {
+            return shard;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            bindToTransaction(DIRECTORY);
+        }
+        return DIRECTORY;
+    }
+
+    /**
+     * Binds the current thread to {@code shard}, until the transaction completes if there is
+     * one.
+     *
+     * @return whether the caller has to {@link #release()} the binding itself, which is the
+     * case outside a transaction unless the thread was already bound to the same shard
+     * @throws IllegalStateException if the thread is bound to another shard or the directory
+     */
+    public boolean bind(int shard) {
+        Integer current = boundShard.get();
+        if (current != null) {
+            if (current != shard) {
+                throw new IllegalStateException("Can't use shard " + shard + " while "
+                        + (current == DIRECTORY ? "the directory" : "shard " + current)
+                        + " is in use");
+            }
+            return false;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            bindToTransaction(shard);
+            return false;
+        }
+        boundShard.set(shard);
+        return true;
+    }
+
+    public void release() {
+        boundShard.remove();
+    }
+
+    public List<DataSource> shards() {
+        return shards;
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (DataSource shard : shards) {
+            if (shard instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private void bindToTransaction(int shard) {
+        boundShard.set(shard);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                boundShard.remove();
+            }
+        });
+    }
+}
@@ -0,0 +1,207 @@
+package userservice.datasource.sharding;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import javax.sql.DataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayProperties;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.transaction.PlatformTransactionManager;
+import userservice.service.changes.ChangeLogShards;
+
+/**
+ * Spreads users over the databases in {@code user.datasource.shard.urls}. The
+ * {@code spring.datasource} database becomes the directory, which keeps the slot map, the email
+ * index, the id sequence and the idempotency keys, while each shard logs the changes of its own
+ * users for the {@link userservice.service.changes.UserChangeFeed}.
+ * <p>
+ * Both the directory and every shard get the common migrations, which leaves nothing for
+ * Spring Boot's Flyway to do afterwards, and then {@code db/directory} or {@code db/shard}
+ * respectively, tracked in a history table of their own.
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "user.datasource.shard.enabled", havingValue = "true")
+public class ShardingConfig implements SchedulingConfigurer {
+    private static final String DIRECTORY_POOL = "directory";
+    private static final String SHARD_POOL_PREFIX = "shard-";
+    private static final String DIRECTORY_MIGRATIONS = "classpath:db/directory";
+    private static final String DIRECTORY_HISTORY = "directory_schema_history";
+    private static final String SHARD_MIGRATIONS = "classpath:db/shard";
+    private static final String SHARD_HISTORY = "shard_schema_history";
+
+    //region Fields
+    @Value("${user.datasource.shard.urls}")
+    private List<String> shardUrls;
+    @Value("${user.datasource.shard.username}")
+    private String shardUsername;
+    @Value("${user.datasource.shard.password}")
+    private String shardPassword;
+    @Value("${user.datasource.shard.refresh_interval}")
+    private Duration refreshInterval;
+    @Value("${user.datasource.shard.rebalance_batch_size}")
+    private int rebalanceBatchSize;
+    @Value("${user.datasource.replica.enabled}")
+    private boolean replicasEnabled;
+    @Value("${spring.jpa.open-in-view:true}")
+    private boolean openInView;
+    @Autowired
+    private ObjectProvider<ShardDirectory> shardDirectory;
+    //endregion
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        taskRegistrar.addFixedDelayTask(() -> shardDirectory.getObject().refresh(),
+                refreshInterval);
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource directoryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName(DIRECTORY_POOL);
+
+        return dataSource;
+    }
+
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(HikariDataSource directoryDataSource,
+                                                         DataSourceProperties properties,
+                                                         FlywayProperties flywayProperties,
+                                                         MeterRegistry meterRegistry) {
+        checkSupported();
+        List<String> schemas = flywayProperties.getSchemas();
+        migrate(directoryDataSource, flywayProperties.getLocations(), schemas, null);
+        migrate(directoryDataSource, List.of(DIRECTORY_MIGRATIONS), schemas, DIRECTORY_HISTORY);
+        List<DataSource> shards = new ArrayList<>(shardUrls.size());
+        for (int i = 0; i < shardUrls.size(); i++) {
+            HikariDataSource shard = shard(properties, directoryDataSource, i, meterRegistry);
+            migrate(shard, flywayProperties.getLocations(), List.of(), null);
+            migrate(shard, List.of(SHARD_MIGRATIONS), List.of(), SHARD_HISTORY);
+            shards.add(shard);
+        }
+
+        return new ShardRoutingDataSource(directoryDataSource, shards);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+
+    @Bean
+    public ShardDirectory shardDirectory(HikariDataSource directoryDataSource,
+                                         ShardRoutingDataSource shardRoutingDataSource) {
+        ShardDirectory directory =
+                new ShardDirectory(directoryDataSource, shardRoutingDataSource.shards());
+        directory.initialize();
+
+        return directory;
+    }
+
+    @Bean
+    public ShardIdAllocator shardIdAllocator(HikariDataSource directoryDataSource,
+                                             ShardDirectory shardDirectory) {
+        ShardIdAllocator idAllocator = new ShardIdAllocator(directoryDataSource);
+        idAllocator.skipBeyond(shardDirectory.maxUserId());
+
+        return idAllocator;
+    }
+
+    @Bean
+    public ShardRouter shardRouter(ShardRoutingDataSource shardRoutingDataSource,
+                                   HikariDataSource directoryDataSource,
+                                   ShardDirectory shardDirectory,
+                                   ShardIdAllocator shardIdAllocator,
+                                   PlatformTransactionManager transactionManager) {
+        int connections = shardRoutingDataSource.shards().size()
+                * directoryDataSource.getMaximumPoolSize();
+        return new ShardRouter(shardRoutingDataSource, shardDirectory, shardIdAllocator,
+                transactionManager, connections);
+    }
+
+    @Bean
+    public ChangeLogShards changeLogShards(ShardRoutingDataSource shardRoutingDataSource) {
+        return new ShardChangeLog(shardRoutingDataSource);
+    }
+
+    @Bean
+    public ShardRebalancer shardRebalancer(ShardDirectory shardDirectory,
+                                           HikariDataSource directoryDataSource,
+                                           ShardRoutingDataSource shardRoutingDataSource) {
+        return new ShardRebalancer(shardDirectory, directoryDataSource,
+                shardRoutingDataSource.shards(), rebalanceBatchSize, refreshInterval);
+    }
+
+    /**
+     * Fails on settings sharding can't work with: replicas, whose routing it would replace, and
+     * open session in view, which would hold on to the first connection of a request, so one
+     * request could only ever reach one database.
+     */
+    private void checkSupported() {
+        if (shardUrls.isEmpty()) {
+            throw new IllegalStateException("user.datasource.shard.urls must list the shards");
+        }
+        if (replicasEnabled) {
+            throw new IllegalStateException("user.datasource.shard.enabled can't be combined "
+                    + "with user.datasource.replica.enabled");
+        }
+        if (openInView) {
+            throw new IllegalStateException(
+                    "user.datasource.shard.enabled needs spring.jpa.open-in-view=false");
+        }
+    }
+
+    private HikariDataSource shard(DataSourceProperties properties, HikariDataSource directory,
+                                   int index, MeterRegistry meterRegistry) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setDriverClassName(properties.determineDriverClassName());
+        dataSource.setJdbcUrl(shardUrls.get(index));
+        dataSource.setUsername(shardUsername);
+        dataSource.setPassword(shardPassword);
+        dataSource.setMaximumPoolSize(directory.getMaximumPoolSize());
+        dataSource.setMinimumIdle(directory.getMinimumIdle());
+        dataSource.setConnectionTimeout(directory.getConnectionTimeout());
+        dataSource.setMaxLifetime(directory.getMaxLifetime());
+        dataSource.setPoolName(SHARD_POOL_PREFIX + index);
+        // Not a bean, so Spring Boot doesn't bind its pool metrics.
+        dataSource.setMetricRegistry(meterRegistry);
+
+        return dataSource;
+    }
+
+    /**
+     * @param table the history table, or null for Flyway's default one
+     */
+    private static void migrate(DataSource dataSource, List<String> locations,
+                                List<String> schemas, String table) {
+        FluentConfiguration configuration = Flyway.configure()
+                .dataSource(dataSource)
+                .locations(locations.toArray(String[]::new))
+                .schemas(schemas.toArray(String[]::new));
+        if (table != null) {
+            // The schema isn't empty any more, so start from an empty baseline.
+            configuration.table(table).baselineOnMigrate(true).baselineVersion("0");
+        }
+        configuration.load().migrate();
+    }
+}
@@ -0,0 +1,15 @@
+package userservice.dto;
+
+import java.util.List;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+@Data
+public class UserBatchRequestDto {
+    @Valid
+    @NotEmpty(message = "Users are required")
+    @Size(max = 10000, message = "Batch can't contain more than 10000 users")
+    private List<UserRequestDto> users;
+}
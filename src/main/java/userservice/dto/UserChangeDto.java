@@ -0,0 +1,15 @@
+package userservice.dto;
+
+import java.time.Instant;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import userservice.model.UserChange;
+
+@Data
+@AllArgsConstructor
+public class UserChangeDto {
+    private Long userId;
+    private UserChange.Type type;
+    private Long version;
+    private Instant changedAt;
+}
@@ -0,0 +1,13 @@
+package userservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class UserImportProgressDto {
+    private long read;
+    private long imported;
+    private long rejected;
+    private boolean done;
+}
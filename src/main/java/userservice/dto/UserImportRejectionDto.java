@@ -0,0 +1,11 @@
+package userservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class UserImportRejectionDto {
+    private long line;
+    private String error;
+}
@@ -0,0 +1,14 @@
+package userservice.dto;
+
+import java.util.List;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+@Data
+public class UserLookupRequestDto {
+    @NotEmpty(message = "Ids are required")
+    @Size(max = 1000, message = "Lookup can't contain more than 1000 ids")
+    private List<@NotNull(message = "Ids can't be null") Long> ids;
+}
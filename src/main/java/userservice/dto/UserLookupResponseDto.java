@@ -0,0 +1,12 @@
+package userservice.dto;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class UserLookupResponseDto {
+    private List<UserResponseDto> users;
+    private List<Long> missing;
+}
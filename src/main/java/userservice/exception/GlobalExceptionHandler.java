@@ -1,8 +1,10 @@
 package userservice.exception;
 
 import java.time.LocalDateTime;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -13,6 +15,12 @@ public class GlobalExceptionHandler {
     //region Constants
     private static final String BAD_REQUEST = "Bad Request";
     private static final String NOT_FOUND = "NOT_FOUND";
+    private static final String PRECONDITION_FAILED = "Precondition Failed";
+    private static final String CONFLICT = "Conflict";
+    private static final String UNPROCESSABLE_ENTITY = "Unprocessable Entity";
+    private static final String SERVICE_UNAVAILABLE = "Service Unavailable";
+    private static final String RETRY_AFTER_SECONDS = "1";
+    private static final String CONCURRENT_MODIFICATION = "User was modified concurrently";
     private static final String NULL_POINTER = "Null pointer encountered";
     private static final String EXCEPTION = "An error occurred";
     private static final String DELIMITER = ": ";
@@ -58,6 +66,105 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(apiError, HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler(UserCursorException.class)
+    public ResponseEntity<ApiError> handleUserCursorException(UserCursorException e) {
+        ApiError apiError = new ApiError(LocalDateTime.now(),
+                HttpStatus.BAD_REQUEST.value(),
+                BAD_REQUEST,
+                e.getMessage());
+
+        return new ResponseEntity<>(apiError, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(UserImportException.class)
+    public ResponseEntity<ApiError> handleUserImportException(UserImportException e) {
+        ApiError apiError = new ApiError(LocalDateTime.now(),
+                HttpStatus.BAD_REQUEST.value(),
+                BAD_REQUEST,
+                e.getMessage());
+
+        return new ResponseEntity<>(apiError, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(UserIdempotencyKeyException.class)
+    public ResponseEntity<ApiError> handleUserIdempotencyKeyException(
+            UserIdempotencyKeyException e) {
+        ApiError apiError = new ApiError(LocalDateTime.now(),
+                HttpStatus.BAD_REQUEST.value(),
+                BAD_REQUEST,
+                e.getMessage());
+
+        return new ResponseEntity<>(apiError, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(UserIdempotencyKeyReuseException.class)
+    public ResponseEntity<ApiError> handleUserIdempotencyKeyReuseException(
+            UserIdempotencyKeyReuseException e) {
+        ApiError apiError = new ApiError(LocalDateTime.now(),
+                HttpStatus.UNPROCESSABLE_ENTITY.value(),
+                UNPROCESSABLE_ENTITY,
+                e.getMessage());
+
+        return new ResponseEntity<>(apiError, HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    @ExceptionHandler(UserRequestInProgressException.class)
+    public ResponseEntity<ApiError> handleUserRequestInProgressException(
+            UserRequestInProgressException e) {
+        ApiError apiError = new ApiError(LocalDateTime.now(),
+                HttpStatus.CONFLICT.value(),
+                CONFLICT,
+                e.getMessage());
+
+        return new ResponseEntity<>(apiError, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(UserVersionMismatchException.class)
+    public ResponseEntity<ApiError> handleUserVersionMismatchException(
+            UserVersionMismatchException e) {
+        ApiError apiError = new ApiError(LocalDateTime.now(),
+                HttpStatus.PRECONDITION_FAILED.value(),
+                PRECONDITION_FAILED,
+                e.getMessage());
+
+        return new ResponseEntity<>(apiError, HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @ExceptionHandler(UserShardMovedException.class)
+    public ResponseEntity<ApiError> handleUserShardMovedException(UserShardMovedException e) {
+        ApiError apiError = new ApiError(LocalDateTime.now(),
+                HttpStatus.SERVICE_UNAVAILABLE.value(),
+                SERVICE_UNAVAILABLE,
+                e.getMessage());
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                .body(apiError);
+    }
+
+    @ExceptionHandler(UserShardsBusyException.class)
+    public ResponseEntity<ApiError> handleUserShardsBusyException(UserShardsBusyException e) {
+        ApiError apiError = new ApiError(LocalDateTime.now(),
+                HttpStatus.SERVICE_UNAVAILABLE.value(),
+                SERVICE_UNAVAILABLE,
+                e.getMessage());
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                .body(apiError);
+    }
+
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<ApiError> handleOptimisticLockingFailureException(
+            ObjectOptimisticLockingFailureException e) {
+        ApiError apiError = new ApiError(LocalDateTime.now(),
+                HttpStatus.PRECONDITION_FAILED.value(),
+                PRECONDITION_FAILED,
+                CONCURRENT_MODIFICATION);
+
+        return new ResponseEntity<>(apiError, HttpStatus.PRECONDITION_FAILED);
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ApiError> handleValidationExceptions(MethodArgumentNotValidException e) {
         String errorMessage = e.getBindingResult().getFieldErrors().stream()
@@ -0,0 +1,12 @@
+package userservice.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.BAD_REQUEST,
+        reason = "Cursor is malformed")
+public class UserCursorException extends RuntimeException {
+    public UserCursorException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package userservice.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.BAD_REQUEST,
+        reason = "Idempotency key is malformed")
+public class UserIdempotencyKeyException extends RuntimeException {
+    public UserIdempotencyKeyException(String message) {
+        super(message);
+    }
+}
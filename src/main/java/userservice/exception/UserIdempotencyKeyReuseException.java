@@ -0,0 +1,12 @@
+package userservice.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.UNPROCESSABLE_ENTITY,
+        reason = "Idempotency key was used for a different request")
+public class UserIdempotencyKeyReuseException extends RuntimeException {
+    public UserIdempotencyKeyReuseException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package userservice.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.BAD_REQUEST,
+        reason = "Import file is malformed")
+public class UserImportException extends RuntimeException {
+    public UserImportException(String message) {
+        super(message);
+    }
+}
@@ -7,6 +7,6 @@ import org.springframework.web.bind.annotation.ResponseStatus;
         reason = "User not found")
 public class UserNotFoundException extends RuntimeException {
     public UserNotFoundException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
@@ -0,0 +1,12 @@
+package userservice.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.CONFLICT,
+        reason = "A request with the same idempotency key is still in progress")
+public class UserRequestInProgressException extends RuntimeException {
+    public UserRequestInProgressException(String message) {
+        super(message);
+    }
+}
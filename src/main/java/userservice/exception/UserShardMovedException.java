@@ -0,0 +1,12 @@
+package userservice.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE,
+        reason = "The user is being moved to another shard")
+public class UserShardMovedException extends RuntimeException {
+    public UserShardMovedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
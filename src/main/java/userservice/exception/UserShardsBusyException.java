@@ -0,0 +1,12 @@
+package userservice.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE,
+        reason = "Every shard connection is in use")
+public class UserShardsBusyException extends RuntimeException {
+    public UserShardsBusyException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
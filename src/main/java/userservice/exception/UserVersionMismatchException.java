@@ -0,0 +1,12 @@
+package userservice.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.PRECONDITION_FAILED,
+        reason = "User was modified concurrently")
+public class UserVersionMismatchException extends RuntimeException {
+    public UserVersionMismatchException(String message) {
+        super(message, null, false, false);
+    }
+}
@@ -0,0 +1,23 @@
+package userservice.model;
+
+import java.time.Instant;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+@Entity
+@Data
+@Table(name = "idempotency_keys")
+public class IdempotencyKey {
+    @Id
+    @Column(name = "idempotency_key")
+    private String key;
+    @Column(nullable = false)
+    private String fingerprint;
+    @Column(columnDefinition = "text")
+    private String response;
+    @Column(name = "claimed_at", nullable = false)
+    private Instant claimedAt;
+}
@@ -4,18 +4,23 @@ import java.time.LocalDate;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.Data;
 
 @Entity
 @Data
 @Table(name = "users")
 public class User {
+    /**
+     * Ids Hibernate reserves per call to {@code users_seq}; the sequence is incremented by as
+     * much, and other writers take their ids from the same blocks.
+     */
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @UserId
     private Long id;
     private String email;
     private String firstname;
@@ -25,4 +30,6 @@ public class User {
     private String address;
     @Column(name = "phone_number")
     private String phoneNumber;
+    @Version
+    private Long version;
 }
@@ -0,0 +1,43 @@
+package userservice.model;
+
+import java.time.Instant;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+@Entity
+@Data
+@Table(name = "user_changes")
+public class UserChange {
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    /**
+     * Id of the transaction that made the change. Ids are handed out in order but committed in
+     * any order, so changes are read by (txId, id) and only from finished transactions.
+     */
+    @Column(name = "tx_id", insertable = false, updatable = false,
+            columnDefinition = "bigint not null default pg_current_xact_id()::text::bigint")
+    private Long txId;
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Type type;
+    private Long version;
+    @Column(name = "changed_at", insertable = false, updatable = false,
+            columnDefinition = "timestamp with time zone not null default now()")
+    private Instant changedAt;
+}
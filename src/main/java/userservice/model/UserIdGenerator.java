@@ -0,0 +1,38 @@
+package userservice.model;
+
+import java.util.Properties;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+/**
+ * Takes ids from {@code users_seq} in blocks of {@link User#ID_ALLOCATION_SIZE}, like a pooled
+ * sequence generator, but keeps an id the user already has. With sharding, ids are chosen
+ * before the insert, since the id decides the shard it goes to.
+ */
+public class UserIdGenerator extends SequenceStyleGenerator {
+    private static final String SEQUENCE_NAME = "users_seq";
+
+    @Override
+    public void configure(Type type, Properties parameters, ServiceRegistry serviceRegistry) {
+        parameters.put(SEQUENCE_PARAM, SEQUENCE_NAME);
+        parameters.put(INCREMENT_PARAM, Integer.toString(User.ID_ALLOCATION_SIZE));
+        super.configure(type, parameters, serviceRegistry);
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        Long id = ((User) object).getId();
+        return id != null ? id : super.generate(session, object);
+    }
+
+    /**
+     * Lets Hibernate tell new users from detached ones by their version rather than their id,
+     * so a user with a chosen id is still persisted.
+     */
+    @Override
+    public boolean allowAssignedIdentifiers() {
+        return true;
+    }
+}
@@ -0,0 +1,67 @@
+package userservice.repository;
+
+import java.time.Instant;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import userservice.model.IdempotencyKey;
+import userservice.service.idempotency.IdempotencyRecord;
+
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, String> {
+    /**
+     * Inserts a claim for the key, or takes over an existing row claimed before
+     * {@code expiredBefore}, or unfinished and claimed before {@code abandonedBefore}.
+     *
+     * @return 1 if the key was claimed, 0 if another row holds it
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "insert into idempotency_keys (idempotency_key, fingerprint, claimed_at)"
+            + " values (:key, :fingerprint, :now) on conflict (idempotency_key) do update"
+            + " set fingerprint = excluded.fingerprint, response = null,"
+            + " claimed_at = excluded.claimed_at"
+            + " where idempotency_keys.claimed_at < :expiredBefore"
+            + " or (idempotency_keys.response is null"
+            + " and idempotency_keys.claimed_at < :abandonedBefore)", nativeQuery = true)
+    int claim(@Param("key") String key, @Param("fingerprint") String fingerprint,
+              @Param("now") Instant now, @Param("expiredBefore") Instant expiredBefore,
+              @Param("abandonedBefore") Instant abandonedBefore);
+
+    /**
+     * Not read-only, so with read replicas it reads the primary and sees a claim made a moment
+     * ago. Returns a projection rather than the entity: a managed entity would be served from
+     * the request's persistence context on every later poll, never showing the response.
+     */
+    @Transactional
+    @Query("select new userservice.service.idempotency.IdempotencyRecord(k.fingerprint,"
+            + " k.response, k.claimedAt) from IdempotencyKey k where k.key = :key")
+    Optional<IdempotencyRecord> findByKey(@Param("key") String key);
+
+    /**
+     * Only matches the claim made at {@code claimedAt}, not one that took it over.
+     *
+     * @return 1 if the response was stored, 0 if the claim is gone
+     */
+    @Modifying
+    @Transactional
+    @Query("update IdempotencyKey k set k.response = :response where k.key = :key"
+            + " and k.claimedAt = :claimedAt and k.response is null")
+    int complete(@Param("key") String key, @Param("claimedAt") Instant claimedAt,
+                 @Param("response") String response);
+
+    @Modifying
+    @Transactional
+    @Query("delete from IdempotencyKey k where k.key = :key and k.claimedAt = :claimedAt"
+            + " and k.response is null")
+    void release(@Param("key") String key, @Param("claimedAt") Instant claimedAt);
+
+    @Modifying
+    @Transactional
+    @Query("delete from IdempotencyKey k where k.claimedAt < :before")
+    int deleteClaimedBefore(@Param("before") Instant before);
+}
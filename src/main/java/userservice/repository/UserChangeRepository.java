@@ -0,0 +1,58 @@
+package userservice.repository;
+
+import java.time.Instant;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import userservice.model.UserChange;
+
+@Repository
+public interface UserChangeRepository extends JpaRepository<UserChange, Long> {
+    /**
+     * Records a change of the given type for each of the users, with the version they have
+     * once pending writes are flushed.
+     */
+    @Modifying(flushAutomatically = true)
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Query(value = "insert into user_changes (user_id, type, version)"
+            + " select id, :type, version from users where id = any(:ids) order by id",
+            nativeQuery = true)
+    void appendWritten(@Param("type") String type, @Param("ids") Long[] ids);
+
+    @Modifying(flushAutomatically = true)
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Query(value = "insert into user_changes (user_id, type) select unnest(:ids), 'DELETED'",
+            nativeQuery = true)
+    void appendDeleted(@Param("ids") Long[] ids);
+
+    /**
+     * Returns the changes after the given position, leaving out every transaction that was
+     * still running when the statement began, and with it any change that could still be
+     * committed before the last one returned.
+     */
+    @Transactional(readOnly = true)
+    @Query(value = "select * from user_changes where (tx_id, id) > (:txId, :id)"
+            + " and tx_id < cast(cast(pg_snapshot_xmin(pg_current_snapshot()) as text) as bigint)"
+            + " order by tx_id, id limit :limit", nativeQuery = true)
+    List<UserChange> findCommittedAfter(@Param("txId") long txId, @Param("id") long id,
+                                        @Param("limit") int limit);
+
+    /**
+     * Returns the id of the oldest transaction still running, every transaction before it has
+     * finished.
+     */
+    @Transactional(readOnly = true)
+    @Query(value = "select cast(cast(pg_snapshot_xmin(pg_current_snapshot()) as text) as bigint)",
+            nativeQuery = true)
+    long findOldestRunningTxId();
+
+    @Modifying
+    @Transactional
+    @Query("delete from UserChange c where c.changedAt < :before")
+    int deleteChangedBefore(@Param("before") Instant before);
+}
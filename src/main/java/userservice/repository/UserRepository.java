@@ -3,13 +3,70 @@ package userservice.repository;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
-import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.stereotype.Repository;
+import java.util.stream.Stream;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import userservice.dto.UserResponseDto;
 import userservice.model.User;
 
-@Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+/**
+ * Only declares the methods the service uses, rather than inheriting all of
+ * {@code JpaRepository}, since every one of them needs a route when the users are sharded.
+ */
+public interface UserRepository extends Repository<User, Long>, UserRepositoryCustom {
+    /**
+     * Builds response DTOs straight from the result set, so read-only listings never put
+     * entities or their dirty-checking snapshots into the persistence context.
+     */
+    String SELECT_RESPONSE_DTO = "select new userservice.dto.UserResponseDto(u.id, u.email,"
+            + " u.firstname, u.lastname, u.birthdate, u.address, u.phoneNumber) from User u";
+
+    <S extends User> S save(S user);
+
+    Optional<User> findById(Long id);
+
+    boolean existsById(Long id);
+
+    void deleteById(Long id);
+
+    List<User> findAll();
+
+    @Transactional(readOnly = true)
     Optional<User> findByEmail(String email);
 
-    List<User> findByBirthdateBetween(LocalDate from, LocalDate to);
+    @Transactional(readOnly = true)
+    @Query("select u.version from User u where u.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    @Transactional(readOnly = true)
+    @Query("select u.version from User u where u.email = :email")
+    Optional<Long> findVersionByEmail(@Param("email") String email);
+
+    @Query(SELECT_RESPONSE_DTO
+            + " where u.birthdate <= :to and (u.birthdate, u.id) > (:afterBirthdate, :afterId)"
+            + " order by u.birthdate, u.id")
+    List<UserResponseDto> findByBirthdateRangeAfter(@Param("to") LocalDate to,
+                                         @Param("afterBirthdate") LocalDate afterBirthdate,
+                                         @Param("afterId") Long afterId,
+                                         Limit limit);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")})
+    @Query(SELECT_RESPONSE_DTO + " where u.id > :afterId order by u.id")
+    Stream<UserResponseDto> streamAllAfter(@Param("afterId") Long afterId);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "10000"))
+    @Query("select u.id from User u")
+    Stream<Long> streamAllIds();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "10000"))
+    @Query("select u.email from User u where u.email is not null")
+    Stream<String> streamAllEmails();
 }
@@ -0,0 +1,35 @@
+package userservice.repository;
+
+import java.util.List;
+import java.util.Optional;
+import userservice.model.User;
+
+public interface UserRepositoryCustom {
+    void persistAll(List<User> users);
+
+    /**
+     * Loads the users with the given ids, in no particular order, with a single
+     * {@code id = any(?)} query whose SQL doesn't depend on the number of ids.
+     */
+    List<User> findAllByIdIn(List<Long> ids);
+
+    /**
+     * Returns up to {@code limit} distinct users whose lowercased lastname, firstname or email
+     * starts with {@code prefix}, which must already be lowercase. They are ordered by the
+     * matching value, byte by byte, then lastname before firstname before email, then id.
+     */
+    List<User> findByPrefix(String prefix, int limit);
+
+    /**
+     * Inserts the users with a single COPY, giving each one without an id an id from
+     * {@code users_seq}, and every one version 0.
+     */
+    void copyAll(List<User> users);
+
+    /**
+     * Writes the non-null fields of {@code changes} to the user with the given id in a single
+     * UPDATE statement, bumping its version, and returns the updated row. Returns empty when
+     * there is no such user or, if {@code expectedVersion} is set, its version differs.
+     */
+    Optional<User> updatePartial(Long id, User changes, Long expectedVersion);
+}
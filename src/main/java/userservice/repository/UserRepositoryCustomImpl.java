@@ -0,0 +1,255 @@
+package userservice.repository;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.StringJoiner;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.hibernate.query.NativeQuery;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.annotation.Transactional;
+import userservice.model.User;
+
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+    private static final String RETURNING_COLUMNS =
+            " returning id, email, firstname, lastname, birthdate, address, phone_number, version";
+    private static final String SELECT_BY_IDS = "select * from users where id = any(:ids)";
+    private static final String SELECT_BY_PREFIX = "select id, email, firstname, lastname,"
+            + " birthdate, address, phone_number, version from ("
+            + prefixBranch("lastname", 0) + " union all "
+            + prefixBranch("firstname", 1) + " union all "
+            + prefixBranch("email", 2) + ") matches order by match, field, id";
+    private static final String NEXT_ID_BLOCKS =
+            "select nextval('users_seq') from generate_series(1, ?)";
+    private static final String COPY_USERS = "copy users (id, version, email, firstname, lastname,"
+            + " birthdate, address, phone_number) from stdin with (format csv)";
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    //region Fields
+    @PersistenceContext
+    private EntityManager entityManager;
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size}")
+    private int batchSize;
+    //endregion
+
+    /**
+     * Persists the users in one transaction, flushing every {@code batchSize} entities so
+     * Hibernate sends them as JDBC batches and the persistence context stays small.
+     */
+    @Override
+    @Transactional
+    public void persistAll(List<User> users) {
+        for (int i = 0; i < users.size(); i++) {
+            entityManager.persist(users.get(i));
+
+            if ((i + 1) % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @SuppressWarnings("unchecked")
+    public List<User> findAllByIdIn(List<Long> ids) {
+        return entityManager.createNativeQuery(SELECT_BY_IDS, User.class)
+                .setParameter("ids", ids.toArray(Long[]::new))
+                .getResultList();
+    }
+
+    /**
+     * Reads each column's index range {@code [prefix, next prefix)} rather than using LIKE, so
+     * the index is still used when PostgreSQL switches the statement to a generic plan.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    @SuppressWarnings("unchecked")
+    public List<User> findByPrefix(String prefix, int limit) {
+        List<User> users = entityManager.createNativeQuery(SELECT_BY_PREFIX, User.class)
+                .setParameter("from", prefix)
+                .setParameter("to", nextPrefix(prefix))
+                .setParameter("limit", limit)
+                .getResultList();
+
+        return users.stream().distinct().limit(limit).toList();
+    }
+
+    @Override
+    @Transactional
+    public void copyAll(List<User> users) {
+        if (users.isEmpty()) {
+            return;
+        }
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            assignIds(connection, users);
+            copy(connection, users);
+        });
+    }
+
+    @Override
+    @Transactional
+    @SuppressWarnings("unchecked")
+    public Optional<User> updatePartial(Long id, User changes, Long expectedVersion) {
+        Map<String, Object> columns = new LinkedHashMap<>();
+        putIfPresent(columns, "email", changes.getEmail());
+        putIfPresent(columns, "firstname", changes.getFirstname());
+        putIfPresent(columns, "lastname", changes.getLastname());
+        putIfPresent(columns, "birthdate", changes.getBirthdate());
+        putIfPresent(columns, "address", changes.getAddress());
+        putIfPresent(columns, "phone_number", changes.getPhoneNumber());
+
+        StringJoiner assignments = new StringJoiner(", ", "update users set ", " where id = :id");
+        columns.keySet().forEach(column -> assignments.add(column + " = :" + column));
+        assignments.add("version = version + 1");
+        String condition = expectedVersion == null ? "" : " and version = :expectedVersion";
+
+        NativeQuery<Object[]> query = entityManager
+                .createNativeQuery(assignments + condition + RETURNING_COLUMNS)
+                .unwrap(NativeQuery.class)
+                .addScalar("id", Long.class)
+                .addScalar("email", String.class)
+                .addScalar("firstname", String.class)
+                .addScalar("lastname", String.class)
+                .addScalar("birthdate", LocalDate.class)
+                .addScalar("address", String.class)
+                .addScalar("phone_number", String.class)
+                .addScalar("version", Long.class);
+        columns.forEach(query::setParameter);
+        query.setParameter("id", id);
+        if (expectedVersion != null) {
+            query.setParameter("expectedVersion", expectedVersion);
+        }
+
+        return query.getResultList().stream().findFirst().map(UserRepositoryCustomImpl::toUser);
+    }
+
+    /**
+     * Selects the first {@code limit} users by one column's value, walking its
+     * {@code (lower(column) collate "C", id)} index.
+     */
+    private static String prefixBranch(String column, int field) {
+        String value = "lower(" + column + ") collate \"C\"";
+        return "(select *, " + value + " as match, " + field + " as field from users"
+                + " where " + value + " >= :from and " + value + " < :to"
+                + " order by " + value + ", id limit :limit)";
+    }
+
+    /**
+     * Returns the smallest string greater than every string starting with {@code prefix},
+     * comparing code points the way the {@code "C"} collation compares UTF-8 bytes.
+     */
+    private static String nextPrefix(String prefix) {
+        int[] codePoints = prefix.codePoints().toArray();
+        for (int i = codePoints.length - 1; i >= 0; i--) {
+            if (codePoints[i] < Character.MAX_CODE_POINT) {
+                codePoints[i] = codePoints[i] == Character.MIN_SURROGATE - 1
+                        ? Character.MAX_SURROGATE + 1
+                        : codePoints[i] + 1;
+                return new String(codePoints, 0, i + 1);
+            }
+        }
+        return prefix + Character.toString(Character.MAX_CODE_POINT);
+    }
+
+    /**
+     * Reserves id blocks the way Hibernate's pooled optimizer does: a sequence value {@code v}
+     * stands for the ids {@code v - ID_ALLOCATION_SIZE + 1} to {@code v}. Users that already
+     * have an id keep it.
+     */
+    private static void assignIds(Connection connection, List<User> allUsers)
+            throws SQLException {
+        List<User> users = allUsers.stream().filter(user -> user.getId() == null).toList();
+        int assigned = 0;
+        try (PreparedStatement statement = connection.prepareStatement(NEXT_ID_BLOCKS)) {
+            while (assigned < users.size()) {
+                int remaining = users.size() - assigned;
+                statement.setInt(1, (remaining - 1) / User.ID_ALLOCATION_SIZE + 1);
+                try (ResultSet blocks = statement.executeQuery()) {
+                    while (blocks.next() && assigned < users.size()) {
+                        long last = blocks.getLong(1);
+                        long id = Math.max(1, last - User.ID_ALLOCATION_SIZE + 1);
+                        for (; id <= last && assigned < users.size(); id++) {
+                            users.get(assigned++).setId(id);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static void copy(Connection connection, List<User> users) throws SQLException {
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new PGCopyOutputStream(pgConnection, COPY_USERS), StandardCharsets.UTF_8),
+                COPY_BUFFER_SIZE)) {
+            for (User user : users) {
+                user.setVersion(0L);
+                writer.write(user.getId() + "," + user.getVersion());
+                writeCsvValue(writer, user.getEmail());
+                writeCsvValue(writer, user.getFirstname());
+                writeCsvValue(writer, user.getLastname());
+                writeCsvValue(writer, user.getBirthdate());
+                writeCsvValue(writer, user.getAddress());
+                writeCsvValue(writer, user.getPhoneNumber());
+                writer.write('\n');
+            }
+        } catch (IOException e) {
+            if (e.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes a comma and the value, quoted so that only a missing value is read back as NULL.
+     */
+    private static void writeCsvValue(Writer writer, Object value) throws IOException {
+        writer.write(',');
+        if (value != null) {
+            writer.write('"');
+            writer.write(value.toString().replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+
+    private static void putIfPresent(Map<String, Object> columns, String column, Object value) {
+        if (value != null) {
+            columns.put(column, value);
+        }
+    }
+
+    private static User toUser(Object[] row) {
+        User user = new User();
+
+        user.setId((Long) row[0]);
+        user.setEmail((String) row[1]);
+        user.setFirstname((String) row[2]);
+        user.setLastname((String) row[3]);
+        user.setBirthdate((LocalDate) row[4]);
+        user.setAddress((String) row[5]);
+        user.setPhoneNumber((String) row[6]);
+        user.setVersion((Long) row[7]);
+
+        return user;
+    }
+}
@@ -2,26 +2,69 @@ package userservice.service;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import org.springframework.data.domain.Slice;
 import userservice.dto.UserRequestDto;
+import userservice.dto.UserResponseDto;
 import userservice.dto.UserUpdateDto;
 import userservice.model.User;
+import userservice.service.pagination.BirthdateCursor;
 
 public interface UserService {
     User get(Long id);
 
     List<User> getAll();
 
+    /**
+     * Returns the users that exist among the given ids, keyed by id in the order the ids were
+     * given; missing ids are left out rather than reported as errors.
+     */
+    Map<Long, User> getByIds(List<Long> ids);
+
+    /**
+     * Returns at most {@code limit} users whose lastname, firstname or email starts with the
+     * prefix, ignoring case, ranked by the matching value; a blank prefix matches nobody.
+     */
+    List<User> findByPrefix(String prefix, int limit);
+
+    /**
+     * Passes every user with an id greater than {@code afterId} to the consumer in id order,
+     * reading them through a forward-only cursor.
+     */
+    void exportAll(Long afterId, Consumer<UserResponseDto> consumer);
+
     User save(User user);
 
+    /**
+     * Saves the valid users in batched chunks and assigns their ids.
+     *
+     * @return rejection messages keyed by the index of the rejected user
+     */
+    Map<Integer, String> saveAll(List<User> users);
+
     User update(User user);
 
     void delete(Long id);
 
     User findByEmail(String email);
 
-    List<User> findByBirthDateRange(LocalDate birthDateFrom, LocalDate birthDateTo);
+    Long getVersion(Long id);
+
+    Long getVersionByEmail(String email);
+
+    /**
+     * Returns at most {@code limit} users born in the range, ordered by (birthdate, id) and
+     * starting right after {@code after}, or at the beginning of the range when it is null.
+     */
+    Slice<UserResponseDto> findByBirthDateRange(LocalDate birthDateFrom, LocalDate birthDateTo,
+                                                BirthdateCursor after, int limit);
 
-    User updatePartial(Long id, UserUpdateDto requestDto);
+    /**
+     * Applies the present fields of the request; when {@code expectedVersion} is not null the
+     * update only happens if the user still has that version.
+     */
+    User updatePartial(Long id, UserUpdateDto requestDto, Long expectedVersion);
 
-    User updateComplete(Long id, UserRequestDto requestDto);
+    User updateComplete(Long id, UserRequestDto requestDto, Long expectedVersion);
 }
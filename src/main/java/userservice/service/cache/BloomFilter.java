@@ -0,0 +1,68 @@
+package userservice.service.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free Bloom filter over 64-bit key hashes. {@link #mightContain} never returns false
+ * for a key that was {@link #put}; it returns true for absent keys at roughly the configured
+ * false positive rate as long as no more than the expected number of keys was added.
+ */
+public class BloomFilter {
+    //region Fields
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    //endregion
+
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        long n = Math.max(1, expectedInsertions);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+
+        bits = new AtomicLongArray(Math.toIntExact((m + 63) / 64));
+        bitCount = bits.length() * 64L;
+        hashCount = Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+    }
+
+    public static long hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        h *= 0xD6E8FEB86659FD93L;
+        return h ^ (h >>> 32);
+    }
+
+    public static long hash(String key) {
+        long h = 0xCBF29CE484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001B3L;
+        }
+        return hash(h);
+    }
+
+    public void put(long hash) {
+        long combined = hash;
+        long increment = (hash >>> 32) | 1;
+        for (int i = 0; i < hashCount; i++, combined += increment) {
+            long bit = Math.floorMod(combined, bitCount);
+            int index = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long word = bits.get(index);
+            while ((word & mask) == 0 && !bits.compareAndSet(index, word, word | mask)) {
+                word = bits.get(index);
+            }
+        }
+    }
+
+    public boolean mightContain(long hash) {
+        long combined = hash;
+        long increment = (hash >>> 32) | 1;
+        for (int i = 0; i < hashCount; i++, combined += increment) {
+            long bit = Math.floorMod(combined, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,49 @@
+package userservice.service.cache;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+import userservice.dto.UserChangeDto;
+import userservice.dto.UserChangesDto;
+import userservice.service.changes.UserChangeFeed;
+
+/**
+ * Evicts users from the {@link UserCache} as the change feed reports changes to them, so writes
+ * made by other instances and the reactive service reach this instance's cache about
+ * {@code user.changes.poll_interval} after they commit, or once older transactions still open
+ * then have finished. Writes that bypass the change log, like plain SQL, only show once
+ * {@code user.cache.ttl} expires the entry.
+ * <p>
+ * The subscription starts before the cache serves anything, from the changes not yet committed
+ * then, so no change to a user that could be cached is missed.
+ */
+@Component
+public class ChangeFeedEvictions {
+    //region Fields
+    private final UserChangeFeed changeFeed;
+    private final UserCache userCache;
+    private Runnable unsubscribe;
+    //endregion
+
+    public ChangeFeedEvictions(UserChangeFeed changeFeed, UserCache userCache) {
+        this.changeFeed = changeFeed;
+        this.userCache = userCache;
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        unsubscribe = changeFeed.subscribe(changeFeed.current(), this::evict);
+    }
+
+    @PreDestroy
+    public void unsubscribe() {
+        unsubscribe.run();
+    }
+
+    private boolean evict(UserChangesDto batch) {
+        for (UserChangeDto change : batch.getChanges()) {
+            userCache.evict(change.getUserId());
+        }
+        return true;
+    }
+}
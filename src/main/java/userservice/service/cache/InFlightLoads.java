@@ -0,0 +1,105 @@
+package userservice.service.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongFunction;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import userservice.model.User;
+
+/**
+ * Coalesces concurrent database loads of the same user: the first caller for an id or email runs
+ * the query and every caller arriving while it runs waits for its result instead of querying too.
+ * <p>
+ * A caller only joins a load that started no earlier than the {@link UserCache#stamp() cache
+ * stamp} the caller saw on arrival. Once a write has committed and invalidated the cache, the next
+ * caller replaces the load in flight with its own, so no one who arrives after a write gets the
+ * row from before it. The map is only ever updated with single atomic operations, and no lock is
+ * held while a query runs. Waiters get copies, the caller that ran the query gets the loaded user
+ * itself. Loads of a user that is {@link UserCache#isSettling(Long) settling} aren't shared, as
+ * another caller's query may read a replica that hasn't replayed the write yet.
+ */
+@Component
+public class InFlightLoads {
+    //region Fields
+    private final UserCache userCache;
+    private final ConcurrentMap<Long, Load> loadsById = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Load> loadsByEmail = new ConcurrentHashMap<>();
+    private final Counter coalescedById;
+    private final Counter coalescedByEmail;
+    //endregion
+
+    public InFlightLoads(UserCache userCache, MeterRegistry meterRegistry) {
+        this.userCache = userCache;
+        this.coalescedById = coalescedCounter(meterRegistry, "id");
+        this.coalescedByEmail = coalescedCounter(meterRegistry, "email");
+    }
+
+    /**
+     * @param loader queries the user, given the cache stamp taken before the load started
+     */
+    public User loadById(Long id, LongFunction<User> loader) {
+        if (userCache.isSettling(id)) {
+            return loader.apply(userCache.stamp());
+        }
+        return load(loadsById, id, loader, coalescedById);
+    }
+
+    /**
+     * @param loader queries the user, given the cache stamp taken before the load started
+     */
+    public User loadByEmail(String email, LongFunction<User> loader) {
+        if (userCache.isSettling(email)) {
+            return loader.apply(userCache.stamp());
+        }
+        return load(loadsByEmail, email, loader, coalescedByEmail);
+    }
+
+    private <K> User load(ConcurrentMap<K, Load> loads, K key, LongFunction<User> loader,
+                          Counter coalesced) {
+        Load load = new Load(userCache.stamp(), new CompletableFuture<>());
+        Load current = loads.putIfAbsent(key, load);
+        while (current != null) {
+            if (current.stamp() >= load.stamp()) {
+                coalesced.increment();
+                return UserCache.copy(await(current));
+            }
+            current = loads.replace(key, current, load) ? null : loads.putIfAbsent(key, load);
+        }
+
+        try {
+            User user = loader.apply(load.stamp());
+            load.result().complete(user);
+            return user;
+        } catch (RuntimeException | Error e) {
+            load.result().completeExceptionally(e);
+            throw e;
+        } finally {
+            loads.remove(key, load);
+        }
+    }
+
+    private static User await(Load load) {
+        try {
+            return load.result().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static Counter coalescedCounter(MeterRegistry meterRegistry, String key) {
+        return Counter.builder("user.loads.coalesced")
+                .description("User lookups answered by a database load already in flight")
+                .tag("key", key)
+                .register(meterRegistry);
+    }
+
+    private record Load(long stamp, CompletableFuture<User> result) {
+    }
+}
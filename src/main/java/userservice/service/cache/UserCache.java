@@ -0,0 +1,159 @@
+package userservice.service.cache;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import userservice.model.User;
+
+/**
+ * Bounded in-process cache of users by id, with a secondary email to id mapping.
+ * <p>
+ * Readers take a {@link #stamp()} before querying the database and hand it back to
+ * {@link #put(User, long)}; the entry is dropped if any write invalidated the cache in
+ * between, so a load racing with a write can't leave the pre-write row behind.
+ * <p>
+ * With read replicas, a load that starts after a write's eviction can still read a replica that
+ * hasn't replayed the write. For the longest a healthy replica can lag behind,
+ * {@code user.datasource.replica.max_lag} plus {@code lag_check_interval}, an evicted user is
+ * therefore {@link #isSettling(Long) settling}: it isn't cached, and loads of it aren't shared.
+ * Cached users are copies, callers are free to mutate what they get back.
+ */
+@Component
+public class UserCache {
+    //region Fields
+    private final Cache<Long, User> usersById;
+    private final Cache<String, Long> idsByEmail;
+    private final Cache<Object, Boolean> settling;
+    private final AtomicLong invalidations = new AtomicLong();
+    //endregion
+
+    @Autowired
+    public UserCache(@Value("${user.cache.maximum_size}") long maximumSize,
+                     @Value("${user.cache.ttl}") Duration ttl,
+                     @Value("${user.datasource.replica.enabled}") boolean replicasEnabled,
+                     @Value("${user.datasource.replica.max_lag}") Duration replicaMaxLag,
+                     @Value("${user.datasource.replica.lag_check_interval}")
+                     Duration replicaLagCheckInterval,
+                     MeterRegistry meterRegistry) {
+        this(maximumSize, ttl,
+                replicasEnabled ? replicaMaxLag.plus(replicaLagCheckInterval) : Duration.ZERO,
+                meterRegistry);
+    }
+
+    /**
+     * @param settleTime how long an evicted user is settling, zero without replicas
+     */
+    UserCache(long maximumSize, Duration ttl, Duration settleTime, MeterRegistry meterRegistry) {
+        usersById = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        idsByEmail = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        settling = settleTime.isZero() ? null : Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(settleTime)
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, usersById, "users.by_id");
+        CaffeineCacheMetrics.monitor(meterRegistry, idsByEmail, "users.id_by_email");
+    }
+
+    public long stamp() {
+        return invalidations.get();
+    }
+
+    public Optional<User> get(Long id) {
+        return Optional.ofNullable(usersById.getIfPresent(id)).map(UserCache::copy);
+    }
+
+    public Optional<User> getByEmail(String email) {
+        Long id = idsByEmail.getIfPresent(email);
+        if (id == null) {
+            return Optional.empty();
+        }
+        User user = usersById.getIfPresent(id);
+        if (user == null || !Objects.equals(email, user.getEmail())) {
+            idsByEmail.invalidate(email);
+            return Optional.empty();
+        }
+        return Optional.of(copy(user));
+    }
+
+    public void put(User user, long stamp) {
+        if (invalidations.get() != stamp || isSettling(user.getId())) {
+            return;
+        }
+        usersById.put(user.getId(), copy(user));
+        if (user.getEmail() != null) {
+            idsByEmail.put(user.getEmail(), user.getId());
+        }
+        if (invalidations.get() != stamp) {
+            evict(user.getId(), user.getEmail());
+        }
+    }
+
+    /**
+     * Removes the user and every email it is known under; must be called after the write commits.
+     */
+    public void evict(Long id, String... emails) {
+        invalidations.incrementAndGet();
+        settle(id);
+
+        User cached = usersById.asMap().remove(id);
+        if (cached != null && cached.getEmail() != null) {
+            idsByEmail.invalidate(cached.getEmail());
+            settle(cached.getEmail());
+        }
+        for (String email : emails) {
+            if (email != null) {
+                idsByEmail.invalidate(email);
+                settle(email);
+            }
+        }
+    }
+
+    /**
+     * Whether the user was evicted too recently for every replica to have the write.
+     */
+    public boolean isSettling(Long id) {
+        return settling != null && settling.getIfPresent(id) != null;
+    }
+
+    public boolean isSettling(String email) {
+        return settling != null && settling.getIfPresent(email) != null;
+    }
+
+    private void settle(Object key) {
+        if (settling != null) {
+            settling.put(key, Boolean.TRUE);
+        }
+    }
+
+    static User copy(User user) {
+        User copy = new User();
+
+        copy.setId(user.getId());
+        copy.setEmail(user.getEmail());
+        copy.setFirstname(user.getFirstname());
+        copy.setLastname(user.getLastname());
+        copy.setBirthdate(user.getBirthdate());
+        copy.setAddress(user.getAddress());
+        copy.setPhoneNumber(user.getPhoneNumber());
+        copy.setVersion(user.getVersion());
+
+        return copy;
+    }
+}
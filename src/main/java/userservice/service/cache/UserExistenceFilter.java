@@ -0,0 +1,176 @@
+package userservice.service.cache;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import userservice.repository.UserRepository;
+
+/**
+ * Bloom filters over the ids and emails of existing users, used to answer lookups of
+ * users that definitely don't exist without querying the database.
+ * <p>
+ * The filters are rebuilt from the table every {@code user.bloom.refresh_interval}, which is how
+ * rows written by other instances, the import command or plain SQL get in, and deleted users
+ * drop out. A miss is only trusted while the last rebuild started less than
+ * {@code user.bloom.max_age} ago; before the first one, or when rebuilds fail, every key is
+ * reported as possibly present. Lookups of rows written by others since the last rebuild are
+ * therefore answered 404 until the next one, so the filter is only correct when this instance
+ * is the only writer, and is off unless {@code user.bloom.enabled} is set.
+ * <p>
+ * Writers of this instance add the email before the insert and the id in its transaction, so
+ * their rows are never missed. Keys added during a rebuild go into both the old and the new
+ * filters, and the old ones are still consulted until the next rebuild, which covers rows whose
+ * transaction hadn't committed yet when the scan started.
+ */
+@Component
+public class UserExistenceFilter {
+    private static final Logger logger = LogManager.getLogger(UserExistenceFilter.class);
+
+    //region Fields
+    private final UserRepository userRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final boolean enabled;
+    private final long expectedInsertions;
+    private final double falsePositiveRate;
+    private final Duration refreshInterval;
+    private final long maxAgeNanos;
+    private final ScheduledExecutorService rebuilder;
+    private volatile Generation generation;
+    private volatile Filters building;
+    //endregion
+
+    public UserExistenceFilter(UserRepository userRepository,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${user.bloom.enabled}") boolean enabled,
+                               @Value("${user.bloom.expected_insertions}") long expectedInsertions,
+                               @Value("${user.bloom.false_positive_rate}") double falsePositiveRate,
+                               @Value("${user.bloom.refresh_interval}") Duration refreshInterval,
+                               @Value("${user.bloom.max_age}") Duration maxAge) {
+        this.userRepository = userRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.enabled = enabled;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+        this.refreshInterval = refreshInterval;
+        this.maxAgeNanos = maxAge.toNanos();
+        this.generation = enabled ? new Generation(newFilters(), null, 0, false) : null;
+        this.rebuilder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "user-existence-filter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        rebuild();
+        rebuilder.scheduleWithFixedDelay(this::rebuild, refreshInterval.toMillis(),
+                refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuilder.shutdownNow();
+    }
+
+    /**
+     * Scans the table into new filters and swaps them in.
+     */
+    void rebuild() {
+        Filters filters = newFilters();
+        building = filters;
+        long startedAt = System.nanoTime();
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<Long> existingIds = userRepository.streamAllIds()) {
+                    existingIds.forEach(id -> filters.ids().put(BloomFilter.hash(id)));
+                }
+                try (Stream<String> existingEmails = userRepository.streamAllEmails()) {
+                    existingEmails.forEach(
+                            email -> filters.emails().put(BloomFilter.hash(email)));
+                }
+            });
+        } catch (RuntimeException e) {
+            building = null;
+            logger.warn("Couldn't rebuild the user existence filter", e);
+            return;
+        }
+        boolean first = !generation.built();
+        generation = new Generation(filters, generation.current(), startedAt, true);
+        building = null;
+
+        if (first) {
+            logger.info("User existence filter is ready");
+        }
+    }
+
+    public void addId(Long id) {
+        if (enabled && id != null) {
+            add(Filters::ids, BloomFilter.hash(id));
+        }
+    }
+
+    public void addEmail(String email) {
+        if (enabled && email != null) {
+            add(Filters::emails, BloomFilter.hash(email));
+        }
+    }
+
+    public boolean mightContainId(Long id) {
+        return mightContain(Filters::ids, BloomFilter.hash(id));
+    }
+
+    public boolean mightContainEmail(String email) {
+        return mightContain(Filters::emails, BloomFilter.hash(email));
+    }
+
+    private void add(Function<Filters, BloomFilter> filter, long hash) {
+        filter.apply(generation.current()).put(hash);
+        Filters next = building;
+        if (next != null) {
+            filter.apply(next).put(hash);
+        }
+    }
+
+    private boolean mightContain(Function<Filters, BloomFilter> filter, long hash) {
+        Generation current = generation;
+        if (current == null || !current.built()
+                || System.nanoTime() - current.builtAt() > maxAgeNanos) {
+            return true;
+        }
+        Filters previous = current.previous();
+        return filter.apply(current.current()).mightContain(hash)
+                || previous != null && filter.apply(previous).mightContain(hash);
+    }
+
+    private Filters newFilters() {
+        return new Filters(new BloomFilter(expectedInsertions, falsePositiveRate),
+                new BloomFilter(expectedInsertions, falsePositiveRate));
+    }
+
+    private record Filters(BloomFilter ids, BloomFilter emails) {
+    }
+
+    /**
+     * @param builtAt the {@link System#nanoTime} the scan behind {@code current} started
+     * @param built   false until the first scan has finished
+     */
+    private record Generation(Filters current, Filters previous, long builtAt, boolean built) {
+    }
+}
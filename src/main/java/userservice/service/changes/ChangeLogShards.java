@@ -0,0 +1,16 @@
+package userservice.service.changes;
+
+import java.util.function.Supplier;
+
+/**
+ * The databases the change log is spread over when users are sharded, each shard keeping the
+ * changes of its own users in the transactions that make them.
+ */
+public interface ChangeLogShards {
+    int count();
+
+    /**
+     * Runs {@code query}, and the repository calls in it, against the log of {@code shard}.
+     */
+    <T> T on(int shard, Supplier<T> query);
+}
@@ -0,0 +1,232 @@
+package userservice.service.changes;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import userservice.dto.UserChangeDto;
+import userservice.dto.UserChangesDto;
+import userservice.exception.UserCursorException;
+import userservice.model.UserChange;
+import userservice.repository.UserChangeRepository;
+import userservice.service.pagination.ChangeCursor;
+
+/**
+ * Log of user changes, written in the transactions that make them, and its delivery to
+ * subscribers in batches of at most {@code user.changes.batch_size}.
+ * <p>
+ * A single dispatcher thread reads the log once per distinct subscriber position whenever a
+ * local transaction that recorded a change commits, and every {@code user.changes.poll_interval}
+ * to pick up changes made by other instances. Changes older than {@code user.changes.retention}
+ * are deleted.
+ * <p>
+ * While users are sharded each shard logs the changes of its users, and a subscriber's cursor
+ * keeps a position in every shard's log. A batch then holds up to a batch from each shard, one
+ * shard after the other, so changes to a user arrive in order unless its slot moved to another
+ * shard between them.
+ */
+@Component
+public class UserChangeFeed {
+    private static final Logger logger = LogManager.getLogger(UserChangeFeed.class);
+    private static final Duration CLEANUP_INTERVAL = Duration.ofHours(1);
+    private static final ChangeLogShards SINGLE_LOG = new ChangeLogShards() {
+        @Override
+        public int count() {
+            return 1;
+        }
+
+        @Override
+        public <T> T on(int shard, Supplier<T> query) {
+            return query.get();
+        }
+    };
+
+    //region Fields
+    private final UserChangeRepository changeRepository;
+    private final int batchSize;
+    private final Duration retention;
+    private final ChangeLogShards shards;
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean dispatchPending = new AtomicBoolean();
+    private final ScheduledExecutorService dispatcher;
+    //endregion
+
+    public UserChangeFeed(UserChangeRepository changeRepository,
+                          @Value("${user.changes.batch_size}") int batchSize,
+                          @Value("${user.changes.poll_interval}") Duration pollInterval,
+                          @Value("${user.changes.retention}") Duration retention,
+                          ObjectProvider<ChangeLogShards> shards) {
+        this.changeRepository = changeRepository;
+        this.batchSize = batchSize;
+        this.retention = retention;
+        this.shards = shards.getIfAvailable(() -> SINGLE_LOG);
+        this.dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "user-changes");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        dispatcher.scheduleWithFixedDelay(this::dispatch,
+                pollInterval.toMillis(), pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+        dispatcher.scheduleWithFixedDelay(this::deleteExpired,
+                CLEANUP_INTERVAL.toMillis(), CLEANUP_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Appends a change for each of the users to the log; must be called in the transaction
+     * that writes them, after the write, which puts it in the log of their shard.
+     */
+    public void record(UserChange.Type type, List<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        Long[] ids = userIds.toArray(Long[]::new);
+        if (type == UserChange.Type.DELETED) {
+            changeRepository.appendDeleted(ids);
+        } else {
+            changeRepository.appendWritten(type.name(), ids);
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                signal();
+            }
+        });
+    }
+
+    /**
+     * Passes every batch of changes after {@code after} to the listener until it declines
+     * further batches or the returned action is run. Empty batches are never passed.
+     *
+     * @throws UserCursorException if {@code after} has positions for more shards than there are
+     */
+    public Runnable subscribe(ChangeCursor after, UserChangeListener listener) {
+        if (after.positions().size() > shards.count()) {
+            throw new UserCursorException("Invalid cursor: " + after.encode());
+        }
+        Subscription subscription = new Subscription(listener, after);
+        subscriptions.add(subscription);
+        signal();
+
+        return () -> subscriptions.remove(subscription);
+    }
+
+    /**
+     * Returns a cursor past the changes of every transaction that has finished by now, from
+     * which a subscriber only gets the changes committed from now on.
+     */
+    public ChangeCursor current() {
+        List<ChangeCursor.Position> positions = new ArrayList<>();
+        for (int shard = 0; shard < shards.count(); shard++) {
+            long txId = shards.on(shard, changeRepository::findOldestRunningTxId);
+            positions.add(new ChangeCursor.Position(txId, 0));
+        }
+        return new ChangeCursor(positions);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+    }
+
+    private void signal() {
+        if (!subscriptions.isEmpty() && dispatchPending.compareAndSet(false, true)) {
+            dispatcher.execute(this::dispatch);
+        }
+    }
+
+    private void dispatch() {
+        dispatchPending.set(false);
+        boolean more = false;
+        try {
+            Map<ChangeCursor, List<Subscription>> subscriptionsByCursor = subscriptions.stream()
+                    .collect(Collectors.groupingBy(subscription -> subscription.cursor));
+            for (Map.Entry<ChangeCursor, List<Subscription>> entry
+                    : subscriptionsByCursor.entrySet()) {
+                ChangeCursor cursor = entry.getKey();
+                ChangeCursor next = cursor;
+                List<UserChange> changes = new ArrayList<>();
+                for (int shard = 0; shard < shards.count(); shard++) {
+                    ChangeCursor.Position position = cursor.position(shard);
+                    List<UserChange> shardChanges = shards.on(shard, () -> changeRepository
+                            .findCommittedAfter(position.txId(), position.id(), batchSize));
+                    if (!shardChanges.isEmpty()) {
+                        next = next.after(shard, shardChanges.get(shardChanges.size() - 1));
+                        changes.addAll(shardChanges);
+                        more |= shardChanges.size() == batchSize;
+                    }
+                }
+                if (changes.isEmpty()) {
+                    continue;
+                }
+                ChangeCursor delivered = next;
+                UserChangesDto batch = new UserChangesDto(
+                        changes.stream().map(UserChangeFeed::toDto).toList(), next.encode());
+                entry.getValue().forEach(subscription -> deliver(subscription, batch, delivered));
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Could not read user changes", e);
+        }
+        if (more) {
+            signal();
+        }
+    }
+
+    private void deliver(Subscription subscription, UserChangesDto batch, ChangeCursor next) {
+        try {
+            if (subscription.listener.onChanges(batch)) {
+                subscription.cursor = next;
+                return;
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Dropping user change subscriber", e);
+        }
+        subscriptions.remove(subscription);
+    }
+
+    private void deleteExpired() {
+        try {
+            Instant before = Instant.now().minus(retention);
+            int deleted = 0;
+            for (int shard = 0; shard < shards.count(); shard++) {
+                deleted += shards.on(shard, () -> changeRepository.deleteChangedBefore(before));
+            }
+            logger.info("Deleted {} user changes older than {}", deleted, retention);
+        } catch (RuntimeException e) {
+            logger.warn("Could not delete expired user changes", e);
+        }
+    }
+
+    private static UserChangeDto toDto(UserChange change) {
+        return new UserChangeDto(change.getUserId(), change.getType(), change.getVersion(),
+                change.getChangedAt());
+    }
+
+    private static final class Subscription {
+        private final UserChangeListener listener;
+        private volatile ChangeCursor cursor;
+
+        private Subscription(UserChangeListener listener, ChangeCursor cursor) {
+            this.listener = listener;
+            this.cursor = cursor;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package userservice.service.changes;
+
+import userservice.dto.UserChangesDto;
+
+/**
+ * Receives batches of changes from {@link UserChangeFeed}, always on the feed's dispatcher
+ * thread, so it must not block for long.
+ */
+@FunctionalInterface
+public interface UserChangeListener {
+    /**
+     * @return whether to keep receiving the batches that follow
+     */
+    boolean onChanges(UserChangesDto batch);
+}
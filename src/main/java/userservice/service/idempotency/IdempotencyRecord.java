@@ -0,0 +1,10 @@
+package userservice.service.idempotency;
+
+import java.time.Instant;
+
+/**
+ * What is known about an idempotency key: the fingerprint of the request that claimed it at
+ * {@code claimedAt}, and its JSON response, which stays null while the request runs.
+ */
+public record IdempotencyRecord(String fingerprint, String response, Instant claimedAt) {
+}
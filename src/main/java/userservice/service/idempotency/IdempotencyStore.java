@@ -0,0 +1,33 @@
+package userservice.service.idempotency;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Keeps the outcome of requests by idempotency key for {@code user.idempotency.ttl}, letting
+ * only one request per key run among everything that shares the store.
+ */
+public interface IdempotencyStore {
+    /**
+     * Claims the key at {@code claimedAt} for a request with the given fingerprint, unless it has
+     * a record that is neither expired nor an unfinished claim older than
+     * {@code user.idempotency.lease}.
+     *
+     * @param claimedAt the current time, which identifies the claim from then on
+     * @return empty if the key was claimed, otherwise its record
+     */
+    Optional<IdempotencyRecord> claim(String key, String fingerprint, Instant claimedAt);
+
+    /**
+     * Stores the response of the request that claimed the key at {@code claimedAt}.
+     *
+     * @return false if the claim was taken over by another request in the meantime
+     */
+    boolean complete(String key, Instant claimedAt, String response);
+
+    /**
+     * Drops the claim made at {@code claimedAt} by a request that failed, so the key can be used
+     * again. Does nothing if the claim was taken over in the meantime.
+     */
+    void release(String key, Instant claimedAt);
+}
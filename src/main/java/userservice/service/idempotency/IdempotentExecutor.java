@@ -0,0 +1,231 @@
+package userservice.service.idempotency;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import userservice.exception.UserIdempotencyKeyException;
+import userservice.exception.UserIdempotencyKeyReuseException;
+import userservice.exception.UserRequestInProgressException;
+
+/**
+ * Runs a request at most once per idempotency key while the key's record lives in the
+ * {@link IdempotencyStore}; repeats of the same request get the stored response instead.
+ * <p>
+ * A repeat that arrives while the first request still runs waits for it, for up to
+ * {@code user.idempotency.wait_timeout}: on the same instance through the first request's
+ * future, on another instance by polling the store. A request whose body differs from the
+ * one that used the key is rejected.
+ * <p>
+ * Claims are identified by the time they were made, so a request whose claim was taken over
+ * after {@code user.idempotency.lease} can't complete or release the new one. If the response
+ * can't be stored after {@code COMPLETE_ATTEMPTS} tries the request fails, and the key stays
+ * claimed until the lease runs out.
+ */
+@Component
+public class IdempotentExecutor {
+    private static final Logger logger = LogManager.getLogger(IdempotentExecutor.class);
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final long POLL_INTERVAL_MILLIS = 50;
+    private static final int COMPLETE_ATTEMPTS = 3;
+
+    //region Fields
+    private final IdempotencyStore store;
+    private final ObjectMapper objectMapper;
+    private final Duration waitTimeout;
+    private final ConcurrentMap<String, CompletableFuture<IdempotencyRecord>> inFlight =
+            new ConcurrentHashMap<>();
+    //endregion
+
+    public IdempotentExecutor(IdempotencyStore store, ObjectMapper objectMapper,
+                              @Value("${user.idempotency.wait_timeout}") Duration waitTimeout) {
+        this.store = store;
+        this.objectMapper = objectMapper;
+        this.waitTimeout = waitTimeout;
+    }
+
+    /**
+     * @param request      the request body, which must serialize the same way on every repeat
+     * @param responseType the type the stored JSON response is read back as
+     */
+    public <T> Result<T> execute(String key, Object request, Class<T> responseType,
+                                 Supplier<T> action) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new UserIdempotencyKeyException("Idempotency key must have 1 to "
+                    + MAX_KEY_LENGTH + " characters");
+        }
+        String fingerprint = fingerprint(request);
+
+        CompletableFuture<IdempotencyRecord> flight = new CompletableFuture<>();
+        CompletableFuture<IdempotencyRecord> running = inFlight.putIfAbsent(key, flight);
+        if (running != null) {
+            return replay(key, await(key, running), fingerprint, responseType);
+        }
+        try {
+            // Stored with microsecond precision, so that the claim can be matched later
+            Instant claimedAt = Instant.now().truncatedTo(ChronoUnit.MICROS);
+            IdempotencyRecord record = claim(key, fingerprint, claimedAt);
+            if (record != null) {
+                flight.complete(record);
+                return replay(key, record, fingerprint, responseType);
+            }
+
+            T response = run(key, claimedAt, action);
+            String json = toJson(response);
+            complete(key, claimedAt, json);
+            flight.complete(new IdempotencyRecord(fingerprint, json, claimedAt));
+            return new Result<>(response, false);
+        } catch (RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * @return null once the key is claimed, otherwise the record of the request that holds it,
+     * waiting for it to finish when it runs on another instance
+     */
+    private IdempotencyRecord claim(String key, String fingerprint, Instant claimedAt) {
+        long deadline = System.nanoTime() + waitTimeout.toNanos();
+        while (true) {
+            Optional<IdempotencyRecord> record = store.claim(key, fingerprint, claimedAt);
+            if (record.isEmpty()) {
+                return null;
+            }
+            if (record.get().response() != null
+                    || !record.get().fingerprint().equals(fingerprint)) {
+                return record.get();
+            }
+            if (System.nanoTime() - deadline > 0) {
+                throw inProgress(key);
+            }
+            try {
+                Thread.sleep(POLL_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw inProgress(key);
+            }
+        }
+    }
+
+    private <T> T run(String key, Instant claimedAt, Supplier<T> action) {
+        try {
+            return action.get();
+        } catch (RuntimeException e) {
+            try {
+                store.release(key, claimedAt);
+            } catch (RuntimeException releaseFailure) {
+                e.addSuppressed(releaseFailure);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Stores the response, retrying failures; releasing the key instead would let a repeat run
+     * the request again.
+     */
+    private void complete(String key, Instant claimedAt, String json) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                if (!store.complete(key, claimedAt, json)) {
+                    logger.warn("Claim of idempotency key {} was taken over before the request"
+                            + " finished", key);
+                }
+                return;
+            } catch (RuntimeException e) {
+                if (attempt == COMPLETE_ATTEMPTS) {
+                    throw new IllegalStateException("Could not store the response for"
+                            + " idempotency key " + key, e);
+                }
+                logger.warn("Could not store the response for idempotency key {}, retrying",
+                        key, e);
+            }
+            try {
+                Thread.sleep(POLL_INTERVAL_MILLIS * attempt);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while storing the response for"
+                        + " idempotency key " + key, e);
+            }
+        }
+    }
+
+    private IdempotencyRecord await(String key, CompletableFuture<IdempotencyRecord> running) {
+        try {
+            return running.get(waitTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw inProgress(key);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw inProgress(key);
+        }
+    }
+
+    private <T> Result<T> replay(String key, IdempotencyRecord record, String fingerprint,
+                                 Class<T> responseType) {
+        if (!record.fingerprint().equals(fingerprint)) {
+            throw new UserIdempotencyKeyReuseException("Idempotency key " + key
+                    + " was already used for a different request");
+        }
+        try {
+            return new Result<>(objectMapper.readValue(record.response(), responseType), true);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored response for idempotency key " + key
+                    + " is not valid JSON", e);
+        }
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            return Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256")
+                    .digest(objectMapper.writeValueAsBytes(request)));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Request can't be serialized", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String toJson(Object response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Response can't be serialized", e);
+        }
+    }
+
+    private static UserRequestInProgressException inProgress(String key) {
+        return new UserRequestInProgressException("A request with idempotency key " + key
+                + " is still in progress");
+    }
+
+    /**
+     * @param replayed whether the value is the stored response of an earlier request
+     */
+    public record Result<T>(T value, boolean replayed) {
+    }
+}
@@ -0,0 +1,76 @@
+package userservice.service.idempotency;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Per-instance store holding at most {@code user.idempotency.maximum_size} keys.
+ */
+@Component
+@ConditionalOnProperty(name = "user.idempotency.store", havingValue = "memory",
+        matchIfMissing = true)
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+    //region Fields
+    private final ConcurrentMap<String, IdempotencyRecord> records;
+    private final Duration lease;
+    //endregion
+
+    public InMemoryIdempotencyStore(@Value("${user.idempotency.maximum_size}") long maximumSize,
+                                    @Value("${user.idempotency.ttl}") Duration ttl,
+                                    @Value("${user.idempotency.lease}") Duration lease) {
+        this.records = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .<String, IdempotencyRecord>build()
+                .asMap();
+        this.lease = lease;
+    }
+
+    @Override
+    public Optional<IdempotencyRecord> claim(String key, String fingerprint, Instant claimedAt) {
+        IdempotencyRecord claim = new IdempotencyRecord(fingerprint, null, claimedAt);
+        while (true) {
+            IdempotencyRecord current = records.putIfAbsent(key, claim);
+            if (current == null) {
+                return Optional.empty();
+            }
+            boolean abandoned = current.response() == null
+                    && current.claimedAt().isBefore(claim.claimedAt().minus(lease));
+            if (!abandoned) {
+                return Optional.of(current);
+            }
+            if (records.replace(key, current, claim)) {
+                return Optional.empty();
+            }
+        }
+    }
+
+    @Override
+    public boolean complete(String key, Instant claimedAt, String response) {
+        AtomicBoolean completed = new AtomicBoolean();
+        records.computeIfPresent(key, (k, record) -> {
+            if (!isClaim(record, claimedAt)) {
+                return record;
+            }
+            completed.set(true);
+            return new IdempotencyRecord(record.fingerprint(), response, record.claimedAt());
+        });
+        return completed.get();
+    }
+
+    @Override
+    public void release(String key, Instant claimedAt) {
+        records.computeIfPresent(key, (k, record) -> isClaim(record, claimedAt) ? null : record);
+    }
+
+    private static boolean isClaim(IdempotencyRecord record, Instant claimedAt) {
+        return record.response() == null && record.claimedAt().equals(claimedAt);
+    }
+}
@@ -0,0 +1,68 @@
+package userservice.service.idempotency;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import userservice.repository.IdempotencyKeyRepository;
+
+/**
+ * Store in the {@code idempotency_keys} table, shared by every instance. Expired rows are
+ * deleted by the first claim after each {@code CLEANUP_INTERVAL}.
+ */
+@Component
+@ConditionalOnProperty(name = "user.idempotency.store", havingValue = "jdbc")
+public class JdbcIdempotencyStore implements IdempotencyStore {
+    private static final Duration CLEANUP_INTERVAL = Duration.ofMinutes(10);
+
+    //region Fields
+    private final IdempotencyKeyRepository keyRepository;
+    private final Duration ttl;
+    private final Duration lease;
+    private final AtomicReference<Instant> nextCleanup = new AtomicReference<>(Instant.MIN);
+    //endregion
+
+    public JdbcIdempotencyStore(IdempotencyKeyRepository keyRepository,
+                                @Value("${user.idempotency.ttl}") Duration ttl,
+                                @Value("${user.idempotency.lease}") Duration lease) {
+        this.keyRepository = keyRepository;
+        this.ttl = ttl;
+        this.lease = lease;
+    }
+
+    @Override
+    public Optional<IdempotencyRecord> claim(String key, String fingerprint, Instant claimedAt) {
+        deleteExpired(claimedAt);
+        while (true) {
+            if (keyRepository.claim(key, fingerprint, claimedAt, claimedAt.minus(ttl),
+                    claimedAt.minus(lease)) == 1) {
+                return Optional.empty();
+            }
+            // Absent when the claim was released in between; try again.
+            Optional<IdempotencyRecord> current = keyRepository.findByKey(key);
+            if (current.isPresent()) {
+                return current;
+            }
+        }
+    }
+
+    @Override
+    public boolean complete(String key, Instant claimedAt, String response) {
+        return keyRepository.complete(key, claimedAt, response) == 1;
+    }
+
+    @Override
+    public void release(String key, Instant claimedAt) {
+        keyRepository.release(key, claimedAt);
+    }
+
+    private void deleteExpired(Instant now) {
+        Instant due = nextCleanup.get();
+        if (now.isAfter(due) && nextCleanup.compareAndSet(due, now.plus(CLEANUP_INTERVAL))) {
+            keyRepository.deleteClaimedBefore(now.minus(ttl));
+        }
+    }
+}
@@ -1,33 +1,81 @@
 package userservice.service.impl;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionOperations;
 import userservice.dto.UserRequestDto;
+import userservice.dto.UserResponseDto;
 import userservice.dto.UserUpdateDto;
 import userservice.exception.UserAgeException;
-import userservice.exception.UserBirthdateException;
 import userservice.exception.UserEmptyFieldsException;
 import userservice.exception.UserNotFoundException;
+import userservice.exception.UserVersionMismatchException;
 import userservice.model.User;
+import userservice.model.UserChange;
 import userservice.repository.UserRepository;
 import userservice.service.UserService;
+import userservice.service.cache.InFlightLoads;
+import userservice.service.cache.UserCache;
+import userservice.service.cache.UserExistenceFilter;
+import userservice.service.changes.UserChangeFeed;
+import userservice.service.mapper.UserMapper;
+import userservice.service.pagination.BirthdateCursor;
+import userservice.service.validation.UserValidator;
 
 @Service
 @RequiredArgsConstructor
 public class UserServiceImpl implements UserService {
     //region Fields
     private final UserRepository userRepository;
-    @Value("${user.min_age}")
-    private int minAge;
+    private final UserCache userCache;
+    private final InFlightLoads inFlightLoads;
+    private final UserExistenceFilter existenceFilter;
+    private final UserValidator userValidator;
+    private final UserMapper userMapper;
+    private final UserChangeFeed changeFeed;
+    private final TransactionOperations transactionOperations;
+    @Value("${user.batch.chunk_size}")
+    private int batchChunkSize;
+    @Value("${user.search.max_page_size}")
+    private int maxPageSize;
+    @Value("${user.lookup.chunk_size}")
+    private int lookupChunkSize;
+    @Value("${user.prefix_search.max_limit}")
+    private int maxPrefixSearchLimit;
     //endregion
 
     @Override
     public User get(Long id) {
-        return userRepository.findById(id).orElseThrow(
-                () -> new UserNotFoundException("User with id " + id + " not found"));
+        return userCache.get(id).orElseGet(() -> {
+            if (!existenceFilter.mightContainId(id)) {
+                throw new UserNotFoundException("User with id " + id + " not found");
+            }
+            return inFlightLoads.loadById(id, stamp -> {
+                User user = userRepository.findById(id).orElseThrow(
+                        () -> new UserNotFoundException("User with id " + id + " not found"));
+                userCache.put(user, stamp);
+
+                return user;
+            });
+        });
     }
 
     @Override
@@ -35,19 +83,106 @@ public class UserServiceImpl implements UserService {
         return userRepository.findAll();
     }
 
+    @Override
+    public Map<Long, User> getByIds(List<Long> ids) {
+        Map<Long, User> found = new HashMap<>();
+        Set<Long> seen = new HashSet<>();
+        List<Long> uncached = new ArrayList<>();
+        for (Long id : ids) {
+            if (!seen.add(id)) {
+                continue;
+            }
+            userCache.get(id).ifPresentOrElse(user -> found.put(id, user), () -> {
+                if (existenceFilter.mightContainId(id)) {
+                    uncached.add(id);
+                }
+            });
+        }
+
+        long stamp = userCache.stamp();
+        for (int from = 0; from < uncached.size(); from += lookupChunkSize) {
+            List<Long> chunk =
+                    uncached.subList(from, Math.min(from + lookupChunkSize, uncached.size()));
+            for (User user : userRepository.findAllByIdIn(chunk)) {
+                found.put(user.getId(), user);
+                userCache.put(user, stamp);
+            }
+        }
+
+        Map<Long, User> users = new LinkedHashMap<>();
+        for (Long id : ids) {
+            User user = found.get(id);
+            if (user != null) {
+                users.put(id, user);
+            }
+        }
+        return users;
+    }
+
+    @Override
+    public List<User> findByPrefix(String prefix, int limit) {
+        String normalizedPrefix = prefix.strip().toLowerCase(Locale.ROOT);
+        if (normalizedPrefix.isEmpty()) {
+            return List.of();
+        }
+
+        return userRepository.findByPrefix(normalizedPrefix,
+                Math.max(1, Math.min(limit, maxPrefixSearchLimit)));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportAll(Long afterId, Consumer<UserResponseDto> consumer) {
+        try (Stream<UserResponseDto> users = userRepository.streamAllAfter(afterId)) {
+            users.forEach(consumer);
+        }
+    }
+
     @Override
     public User save(User user) {
-        if (user.getFirstname() == null
-                || user.getLastname() == null
-                || user.getBirthdate() == null
-                || user.getEmail() == null) {
+        userValidator.checkRequiredFields(user);
+        userValidator.checkAge(user);
 
-            throw new UserEmptyFieldsException("One or more fields are missing: "
-                    + "email, firstname, lastname, birthdate");
+        existenceFilter.addEmail(user.getEmail());
+        User savedUser = transactionOperations.execute(status -> {
+            User saved = userRepository.save(user);
+            existenceFilter.addId(saved.getId());
+            changeFeed.record(UserChange.Type.CREATED, List.of(saved.getId()));
+            return saved;
+        });
+        userCache.evict(savedUser.getId(), savedUser.getEmail());
+
+        return savedUser;
+    }
+
+    @Override
+    public Map<Integer, String> saveAll(List<User> users) {
+        Map<Integer, String> rejected = new LinkedHashMap<>();
+        List<User> accepted = new ArrayList<>(users.size());
+
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            try {
+                userValidator.checkRequiredFields(user);
+                userValidator.checkAge(user);
+                accepted.add(user);
+            } catch (UserEmptyFieldsException | UserAgeException e) {
+                rejected.put(i, e.getMessage());
+            }
+        }
+
+        for (int from = 0; from < accepted.size(); from += batchChunkSize) {
+            List<User> chunk = accepted.subList(from, Math.min(from + batchChunkSize, accepted.size()));
+            chunk.forEach(user -> existenceFilter.addEmail(user.getEmail()));
+            transactionOperations.executeWithoutResult(status -> {
+                userRepository.persistAll(chunk);
+                chunk.forEach(user -> existenceFilter.addId(user.getId()));
+                changeFeed.record(UserChange.Type.CREATED,
+                        chunk.stream().map(User::getId).toList());
+            });
         }
-        checkAge(user);
 
-        return userRepository.save(user);
+        return rejected;
     }
 
     @Override
@@ -55,54 +190,113 @@ public class UserServiceImpl implements UserService {
         if (user.getId() == null) {
             throw new UserNotFoundException("Can't update a null user");
         }
-        return userRepository.save(user);
+        existenceFilter.addEmail(user.getEmail());
+        User updatedUser = transactionOperations.execute(status -> {
+            User updated = userRepository.save(user);
+            changeFeed.record(UserChange.Type.UPDATED, List.of(updated.getId()));
+            return updated;
+        });
+        userCache.evict(user.getId(), user.getEmail());
+
+        return updatedUser;
     }
 
     @Override
     public void delete(Long id) {
-        userRepository.deleteById(id);
+        transactionOperations.executeWithoutResult(status -> {
+            userRepository.deleteById(id);
+            changeFeed.record(UserChange.Type.DELETED, List.of(id));
+        });
+        userCache.evict(id);
     }
 
     @Override
     public User findByEmail(String email) {
-        return userRepository.findByEmail(email).orElseThrow(
-                () -> new UserNotFoundException("User with email: " + email + " not found"));
+        return userCache.getByEmail(email).orElseGet(() -> {
+            if (!existenceFilter.mightContainEmail(email)) {
+                throw new UserNotFoundException("User with email: " + email + " not found");
+            }
+            return inFlightLoads.loadByEmail(email, stamp -> {
+                User user = userRepository.findByEmail(email).orElseThrow(() ->
+                        new UserNotFoundException("User with email: " + email + " not found"));
+                userCache.put(user, stamp);
+
+                return user;
+            });
+        });
     }
 
     @Override
-    public List<User> findByBirthDateRange(LocalDate birthDateFrom, LocalDate birthDateTo) {
-        if (birthDateFrom != null && birthDateTo != null && birthDateFrom.isBefore(birthDateTo)) {
-            return userRepository.findByBirthdateBetween(birthDateFrom, birthDateTo);
-        } else {
-            throw new UserBirthdateException("All fields are required "
-                    + "and birthdate from should be less than birthdate to");
-        }
+    public Long getVersion(Long id) {
+        return userCache.get(id).map(User::getVersion).orElseGet(() -> {
+            if (!existenceFilter.mightContainId(id)) {
+                throw new UserNotFoundException("User with id " + id + " not found");
+            }
+            return userRepository.findVersionById(id).orElseThrow(
+                    () -> new UserNotFoundException("User with id " + id + " not found"));
+        });
     }
 
     @Override
-    public User updatePartial(Long id, UserUpdateDto requestDto) {
-        User user = get(id);
+    public Long getVersionByEmail(String email) {
+        return userCache.getByEmail(email).map(User::getVersion).orElseGet(() -> {
+            if (!existenceFilter.mightContainEmail(email)) {
+                throw new UserNotFoundException("User with email: " + email + " not found");
+            }
+            return userRepository.findVersionByEmail(email).orElseThrow(
+                    () -> new UserNotFoundException("User with email: " + email + " not found"));
+        });
+    }
 
-        if (requestDto.getEmail() != null && !requestDto.getEmail().isEmpty())
-            user.setEmail(requestDto.getEmail());
-        if (requestDto.getFirstname() != null && !requestDto.getFirstname().isEmpty())
-            user.setFirstname(requestDto.getFirstname());
-        if (requestDto.getLastname() != null && !requestDto.getLastname().isEmpty())
-            user.setLastname(requestDto.getLastname());
-        if (requestDto.getBirthdate() != null) user.setBirthdate(requestDto.getBirthdate());
-        if (requestDto.getAddress() != null && !requestDto.getAddress().isEmpty())
-            user.setAddress(requestDto.getAddress());
-        if (requestDto.getPhoneNumber() != null)
-            user.setPhoneNumber(requestDto.getPhoneNumber());
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<UserResponseDto> findByBirthDateRange(LocalDate birthDateFrom,
+                                                       LocalDate birthDateTo,
+                                                       BirthdateCursor after, int limit) {
+        userValidator.checkBirthdateRange(birthDateFrom, birthDateTo);
+        int pageSize = Math.max(1, Math.min(limit, maxPageSize));
+        BirthdateCursor start = after == null || after.birthdate().isBefore(birthDateFrom)
+                ? new BirthdateCursor(birthDateFrom, Long.MIN_VALUE)
+                : after;
 
-        checkAge(user);
+        List<UserResponseDto> users = userRepository.findByBirthdateRangeAfter(
+                birthDateTo, start.birthdate(), start.id(), Limit.of(pageSize + 1));
+        boolean hasNext = users.size() > pageSize;
 
-        return update(user);
+        return new SliceImpl<>(hasNext ? users.subList(0, pageSize) : users,
+                Pageable.ofSize(pageSize), hasNext);
     }
 
     @Override
-    public User updateComplete(Long id, UserRequestDto requestDto) {
+    public User updatePartial(Long id, UserUpdateDto requestDto, Long expectedVersion) {
+        User changes = userMapper.toChanges(requestDto);
+        userValidator.checkAge(changes);
+
+        if (changes.equals(new User())) {
+            User user = get(id);
+            checkVersion(user, expectedVersion);
+            return user;
+        }
+        existenceFilter.addEmail(changes.getEmail());
+        Optional<User> updated = transactionOperations.execute(status -> {
+            Optional<User> result = userRepository.updatePartial(id, changes, expectedVersion);
+            result.ifPresent(user -> changeFeed.record(UserChange.Type.UPDATED, List.of(id)));
+            return result;
+        });
+        User updatedUser = updated.orElseThrow(
+                () -> expectedVersion != null && userRepository.existsById(id)
+                        ? new UserVersionMismatchException("User with id " + id
+                        + " doesn't have version " + expectedVersion)
+                        : new UserNotFoundException("User with id " + id + " not found"));
+        userCache.evict(id, updatedUser.getEmail());
+
+        return updatedUser;
+    }
+
+    @Override
+    public User updateComplete(Long id, UserRequestDto requestDto, Long expectedVersion) {
         User user = get(id);
+        checkVersion(user, expectedVersion);
 
         user.setEmail(requestDto.getEmail());
         user.setFirstname(requestDto.getFirstname());
@@ -111,18 +305,15 @@ public class UserServiceImpl implements UserService {
         user.setAddress(requestDto.getAddress());
         user.setPhoneNumber(requestDto.getPhoneNumber());
 
-        checkAge(user);
+        userValidator.checkAge(user);
 
         return update(user);
     }
 
-    private void checkAge(User user) {
-        LocalDate currentDate = LocalDate.now();
-        LocalDate acceptableAge = currentDate.minusYears(minAge);
-
-        if (user.getBirthdate() != null) {
-            if (user.getBirthdate().isAfter(acceptableAge))
-                throw new UserAgeException("User must be at least " + minAge + " years old.");
+    private void checkVersion(User user, Long expectedVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(user.getVersion())) {
+            throw new UserVersionMismatchException("User with id " + user.getId()
+                    + " doesn't have version " + expectedVersion);
         }
     }
 }
@@ -0,0 +1,147 @@
+package userservice.service.importing;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+import userservice.dto.UserImportProgressDto;
+import userservice.dto.UserImportRejectionDto;
+import userservice.dto.UserRequestDto;
+import userservice.exception.UserAgeException;
+import userservice.exception.UserEmptyFieldsException;
+import userservice.exception.UserImportException;
+import userservice.model.User;
+import userservice.model.UserChange;
+import userservice.repository.UserRepository;
+import userservice.service.cache.UserExistenceFilter;
+import userservice.service.changes.UserChangeFeed;
+import userservice.service.mapper.UserMapper;
+import userservice.service.validation.UserValidator;
+
+/**
+ * Imports users from CSV in chunks of {@code user.import.chunk_size} rows: each chunk is
+ * validated in parallel with the rules of {@code POST /users} and its valid rows are written
+ * with one COPY, so memory use doesn't depend on the size of the input.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserCsvImporter {
+    private static final String DELIMITER = ": ";
+    private static final String SEPARATOR = ", ";
+
+    //region Fields
+    private final UserRepository userRepository;
+    private final UserExistenceFilter existenceFilter;
+    private final UserValidator userValidator;
+    private final UserMapper userMapper;
+    private final Validator validator;
+    private final UserChangeFeed changeFeed;
+    private final TransactionOperations transactionOperations;
+    @Value("${user.import.chunk_size}")
+    private int chunkSize;
+    //endregion
+
+    /**
+     * Reads the header, so a malformed file is reported before anything is imported.
+     */
+    public UserCsvReader open(Reader reader) throws IOException {
+        return new UserCsvReader(reader);
+    }
+
+    /**
+     * Imports the remaining rows of the reader. Every chunk is committed on its own, so if
+     * this fails the rows reported by the last progress update stay imported.
+     */
+    public UserImportProgressDto importAll(UserCsvReader csvReader, UserImportListener listener)
+            throws IOException {
+        List<UserCsvReader.Row> rows = new ArrayList<>(chunkSize);
+        long read = 0;
+        long imported = 0;
+
+        for (UserCsvReader.Row row = csvReader.next(); row != null; row = csvReader.next()) {
+            rows.add(row);
+            if (rows.size() == chunkSize) {
+                read += rows.size();
+                imported += importChunk(csvReader, rows, listener);
+                listener.onProgress(new UserImportProgressDto(read, imported, read - imported,
+                        false));
+                rows.clear();
+            }
+        }
+        read += rows.size();
+        if (!rows.isEmpty()) {
+            imported += importChunk(csvReader, rows, listener);
+        }
+        UserImportProgressDto summary =
+                new UserImportProgressDto(read, imported, read - imported, true);
+        listener.onProgress(summary);
+
+        return summary;
+    }
+
+    /**
+     * @return the number of imported rows
+     */
+    private int importChunk(UserCsvReader csvReader, List<UserCsvReader.Row> rows,
+                            UserImportListener listener) {
+        List<CheckedRow> checkedRows = rows.parallelStream()
+                .map(row -> check(csvReader, row))
+                .toList();
+
+        List<User> users = new ArrayList<>(checkedRows.size());
+        for (CheckedRow checkedRow : checkedRows) {
+            if (checkedRow.user() != null) {
+                users.add(checkedRow.user());
+            } else {
+                listener.onRejected(new UserImportRejectionDto(checkedRow.line(),
+                        checkedRow.error()));
+            }
+        }
+
+        users.forEach(user -> existenceFilter.addEmail(user.getEmail()));
+        transactionOperations.executeWithoutResult(status -> {
+            userRepository.copyAll(users);
+            users.forEach(user -> existenceFilter.addId(user.getId()));
+            changeFeed.record(UserChange.Type.CREATED, users.stream().map(User::getId).toList());
+        });
+
+        return users.size();
+    }
+
+    private CheckedRow check(UserCsvReader csvReader, UserCsvReader.Row row) {
+        try {
+            UserRequestDto requestDto = csvReader.toDto(row);
+            Set<ConstraintViolation<UserRequestDto>> violations = validator.validate(requestDto);
+            if (!violations.isEmpty()) {
+                return new CheckedRow(row.line(), null, describe(violations));
+            }
+            User user = userMapper.toModel(requestDto);
+            userValidator.checkRequiredFields(user);
+            userValidator.checkAge(user);
+
+            return new CheckedRow(row.line(), user, null);
+        } catch (UserImportException | UserEmptyFieldsException | UserAgeException e) {
+            return new CheckedRow(row.line(), null, e.getMessage());
+        }
+    }
+
+    private static String describe(Set<ConstraintViolation<UserRequestDto>> violations) {
+        return violations.stream()
+                .sorted(Comparator.comparing(violation -> violation.getPropertyPath().toString()))
+                .map(violation -> violation.getPropertyPath() + DELIMITER + violation.getMessage())
+                .distinct()
+                .collect(Collectors.joining(SEPARATOR));
+    }
+
+    private record CheckedRow(long line, User user, String error) {
+    }
+}
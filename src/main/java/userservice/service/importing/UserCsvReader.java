@@ -0,0 +1,227 @@
+package userservice.service.importing;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import userservice.dto.UserRequestDto;
+import userservice.exception.UserImportException;
+
+/**
+ * Reads users from CSV (RFC 4180) one record at a time. The first record names the columns,
+ * which may be any of {@link #COLUMNS} in any order; empty values are treated as missing.
+ * <p>
+ * A record longer than {@link #MAX_RECORD_LENGTH} characters is skipped without being kept in
+ * memory, and comes back as a row without values that {@link #toDto} rejects.
+ * <p>
+ * Reading is not thread safe, but {@link #toDto} may be called from any thread.
+ */
+public class UserCsvReader implements Closeable {
+    public static final List<String> COLUMNS =
+            List.of("email", "firstname", "lastname", "birthdate", "address", "phone_number");
+    /**
+     * Several times what the longest valid record takes: six values of up to 255 characters.
+     */
+    public static final int MAX_RECORD_LENGTH = 8 * 1024;
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+    private static final String BYTE_ORDER_MARK = "\uFEFF";
+    private static final int EOF = -1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    //region Fields
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private final int columnCount;
+    private final int[] positions;
+    private long line = 1;
+    //endregion
+
+    /**
+     * @throws UserImportException if the header is missing or names an unknown column
+     */
+    public UserCsvReader(Reader reader) throws IOException {
+        this.reader = reader;
+        Row header = next();
+        if (header == null) {
+            throw new UserImportException("CSV header is missing");
+        }
+        if (header.error() != null) {
+            throw new UserImportException("CSV header: " + header.error());
+        }
+        this.columnCount = header.values().size();
+        this.positions = new int[COLUMNS.size()];
+        Arrays.fill(positions, -1);
+
+        for (int i = 0; i < columnCount; i++) {
+            String name = header.values().get(i).replace(BYTE_ORDER_MARK, "").trim().toLowerCase();
+            int column = COLUMNS.indexOf(name);
+            if (column < 0 || positions[column] >= 0) {
+                throw new UserImportException("Unknown or repeated CSV column: " + name
+                        + ", expected some of " + COLUMNS);
+            }
+            positions[column] = i;
+        }
+    }
+
+    /**
+     * Returns the next non-blank record, or null at the end of the input.
+     *
+     * @throws UserImportException if the input ends within a quoted value
+     */
+    public Row next() throws IOException {
+        int c;
+        do {
+            c = read();
+            if (c == '\r' || c == '\n') {
+                skipLineBreak(c);
+            }
+        } while (c == '\r' || c == '\n');
+        if (c == EOF) {
+            return null;
+        }
+
+        long recordLine = line;
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        int valuesLength = 0;
+        boolean tooLong = false;
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        while (true) {
+            if (valuesLength + value.length() > MAX_RECORD_LENGTH) {
+                tooLong = true;
+                values.clear();
+                value.setLength(0);
+                valuesLength = 0;
+            }
+            if (quoted) {
+                if (c == EOF) {
+                    throw new UserImportException(
+                            "Unterminated quoted value at line " + recordLine);
+                }
+                if (c == '"') {
+                    int next = read();
+                    if (next == '"') {
+                        value.append('"');
+                    } else {
+                        quoted = false;
+                        c = next;
+                        continue;
+                    }
+                } else {
+                    if (c == '\n' || (c == '\r' && peek() != '\n')) {
+                        line++;
+                    }
+                    value.append((char) c);
+                }
+            } else if (c == '"' && value.isEmpty() && !wasQuoted) {
+                quoted = true;
+                wasQuoted = true;
+            } else if (c == ',' || c == '\r' || c == '\n' || c == EOF) {
+                values.add(value.toString());
+                valuesLength += value.length() + 1;
+                value.setLength(0);
+                wasQuoted = false;
+                if (c != ',') {
+                    skipLineBreak(c);
+                    return tooLong
+                            ? new Row(recordLine, List.of(),
+                                    "Record is longer than " + MAX_RECORD_LENGTH + " characters")
+                            : new Row(recordLine, values, null);
+                }
+            } else {
+                value.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    /**
+     * Maps a record to a request DTO, without validating the values themselves.
+     *
+     * @throws UserImportException if the record is too long, has the wrong number of values
+     *                             or an unparsable birthdate
+     */
+    public UserRequestDto toDto(Row row) {
+        if (row.error() != null) {
+            throw new UserImportException(row.error());
+        }
+        if (row.values().size() != columnCount) {
+            throw new UserImportException("Expected " + columnCount + " values but found "
+                    + row.values().size());
+        }
+        UserRequestDto requestDto = new UserRequestDto();
+
+        requestDto.setEmail(value(row, 0));
+        requestDto.setFirstname(value(row, 1));
+        requestDto.setLastname(value(row, 2));
+        requestDto.setBirthdate(parseDate(value(row, 3)));
+        requestDto.setAddress(value(row, 4));
+        requestDto.setPhoneNumber(value(row, 5));
+
+        return requestDto;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private String value(Row row, int column) {
+        int index = positions[column];
+        String value = index < 0 ? "" : row.values().get(index);
+
+        return value.isEmpty() ? null : value;
+    }
+
+    private static LocalDate parseDate(String value) {
+        try {
+            return value == null ? null : LocalDate.parse(value.trim(), DATE_FORMAT);
+        } catch (DateTimeParseException e) {
+            throw new UserImportException("birthdate: Expected format dd.MM.yyyy but was "
+                    + value);
+        }
+    }
+
+    private void skipLineBreak(int c) throws IOException {
+        if (c == '\r' && peek() == '\n') {
+            read();
+        }
+        if (c == '\r' || c == '\n') {
+            line++;
+        }
+    }
+
+    private int read() throws IOException {
+        int c = peek();
+        if (c != EOF) {
+            position++;
+        }
+        return c;
+    }
+
+    private int peek() throws IOException {
+        if (position == limit) {
+            int read = reader.read(buffer);
+            if (read <= 0) {
+                return EOF;
+            }
+            position = 0;
+            limit = read;
+        }
+        return buffer[position];
+    }
+
+    /**
+     * A record and the line it starts on, or why it was skipped.
+     */
+    public record Row(long line, List<String> values, String error) {
+    }
+}
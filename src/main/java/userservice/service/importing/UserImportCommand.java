@@ -0,0 +1,77 @@
+package userservice.service.importing;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import lombok.RequiredArgsConstructor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import userservice.dto.UserImportProgressDto;
+import userservice.dto.UserImportRejectionDto;
+
+/**
+ * Imports the CSV file named by {@code user.import.file} on startup, logging progress and
+ * writing rejected rows as {@code line,error} to {@code user.import.errors}, which defaults
+ * to the file name with a {@code .rejected.csv} suffix.
+ */
+@Component
+@ConditionalOnProperty("user.import.file")
+@RequiredArgsConstructor
+public class UserImportCommand implements ApplicationRunner {
+    private static final Logger logger = LogManager.getLogger(UserImportCommand.class);
+    private static final String ERRORS_SUFFIX = ".rejected.csv";
+    private static final String ERRORS_HEADER = "line,error\n";
+
+    //region Fields
+    private final UserCsvImporter csvImporter;
+    @Value("${user.import.file}")
+    private String file;
+    @Value("${user.import.errors:}")
+    private String errors;
+    //endregion
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        Path input = Path.of(file);
+        Path errorReport = errors.isEmpty() ? Path.of(file + ERRORS_SUFFIX) : Path.of(errors);
+        logger.info("Importing users from {}", input);
+
+        UserImportProgressDto summary;
+        try (UserCsvReader csvReader =
+                     csvImporter.open(Files.newBufferedReader(input, StandardCharsets.UTF_8));
+             Writer errorWriter = Files.newBufferedWriter(errorReport, StandardCharsets.UTF_8)) {
+            errorWriter.write(ERRORS_HEADER);
+            summary = csvImporter.importAll(csvReader, new UserImportListener() {
+                @Override
+                public void onRejected(UserImportRejectionDto rejection) {
+                    try {
+                        errorWriter.write(rejection.getLine() + ",\""
+                                + rejection.getError().replace("\"", "\"\"") + "\"\n");
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+
+                @Override
+                public void onProgress(UserImportProgressDto progress) {
+                    if (progress.isDone()) {
+                        return;
+                    }
+                    logger.info("Read {} rows: {} imported, {} rejected",
+                            progress.getRead(), progress.getImported(), progress.getRejected());
+                }
+            });
+        }
+
+        logger.info("Finished importing {}: {} imported, {} rejected (see {})",
+                input, summary.getImported(), summary.getRejected(), errorReport);
+    }
+}
@@ -0,0 +1,16 @@
+package userservice.service.importing;
+
+import userservice.dto.UserImportProgressDto;
+import userservice.dto.UserImportRejectionDto;
+
+/**
+ * Receives the outcome of an import as it runs, always on the importing thread.
+ */
+public interface UserImportListener {
+    void onRejected(UserImportRejectionDto rejection);
+
+    /**
+     * Called after every full chunk has been written, and at the end with {@code done} set.
+     */
+    void onProgress(UserImportProgressDto progress);
+}
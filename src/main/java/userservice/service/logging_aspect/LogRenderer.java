@@ -0,0 +1,75 @@
+package userservice.service.logging_aspect;
+
+import java.time.temporal.TemporalAccessor;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.BaseStream;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.ResponseEntity;
+import userservice.dto.UserResponseDto;
+import userservice.model.User;
+
+/**
+ * Renders intercepted arguments and results for the log without dumping personal data or
+ * whole collections: users are reduced to their id, collections and strings to their size,
+ * and any other object to its type. A string can be any user field, from a name to a search
+ * prefix, so none is logged as is.
+ */
+final class LogRenderer {
+    private LogRenderer() {
+    }
+
+    static String renderAll(Object[] values) {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(render(values[i]));
+        }
+        return builder.append(']').toString();
+    }
+
+    static String render(Object value) {
+        if (value == null) {
+            return "null";
+        }
+        if (value instanceof CharSequence string) {
+            return "String(length=" + string.length() + ")";
+        }
+        if (value instanceof Number || value instanceof Boolean
+                || value instanceof TemporalAccessor || value instanceof Enum<?>) {
+            return value.toString();
+        }
+        if (value instanceof User user) {
+            return "User(id=" + user.getId() + ")";
+        }
+        if (value instanceof UserResponseDto responseDto) {
+            return "UserResponseDto(id=" + responseDto.getId() + ")";
+        }
+        if (value instanceof Optional<?> optional) {
+            return optional.map(present -> "Optional[" + render(present) + "]").orElse("Optional.empty");
+        }
+        if (value instanceof ResponseEntity<?> responseEntity) {
+            return "ResponseEntity(status=" + responseEntity.getStatusCode().value()
+                    + ", body=" + render(responseEntity.getBody()) + ")";
+        }
+        if (value instanceof Slice<?> slice) {
+            return "Slice(size=" + slice.getNumberOfElements() + ", hasNext=" + slice.hasNext() + ")";
+        }
+        if (value instanceof Collection<?> collection) {
+            return value.getClass().getSimpleName() + "(size=" + collection.size() + ")";
+        }
+        if (value instanceof Map<?, ?> map) {
+            return value.getClass().getSimpleName() + "(size=" + map.size() + ")";
+        }
+        if (value instanceof BaseStream<?, ?>) {
+            return "Stream";
+        }
+        if (value.getClass().isArray()) {
+            return value.getClass().getComponentType().getSimpleName() + "[]";
+        }
+        return value.getClass().getSimpleName();
+    }
+}
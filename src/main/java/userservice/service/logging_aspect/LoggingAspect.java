@@ -1,46 +1,149 @@
 package userservice.service.logging_aspect;
 
-import java.util.Arrays;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 @Aspect
 @Component
+@RequiredArgsConstructor
 public class LoggingAspect {
     private static final Logger logger = LogManager.getLogger(LoggingAspect.class);
 
-    @Pointcut("within(@org.springframework.stereotype.Repository *)" +
-            " || within(@org.springframework.stereotype.Service *)" +
-            " || within(@org.springframework.web.bind.annotation.RestController *)")
-    public void applicationPackagePointcut() {
+    //region Constants
+    static final String METHOD_TIMER = "user.method";
+    static final String METHOD_ERRORS = "user.method.errors";
+    private static final String LAYER_REPOSITORY = "repository";
+    private static final String LAYER_SERVICE = "service";
+    private static final String LAYER_CONTROLLER = "controller";
+    //endregion
+
+    //region Fields
+    private final MeterRegistry meterRegistry;
+    private final Map<Method, MethodMetrics> methodMetrics = new ConcurrentHashMap<>();
+    @Value("${user.logging.enabled}")
+    private boolean loggingEnabled;
+    @Value("${user.logging.sample_rate.repository}")
+    private double repositorySampleRate;
+    @Value("${user.logging.sample_rate.service}")
+    private double serviceSampleRate;
+    @Value("${user.logging.sample_rate.controller}")
+    private double controllerSampleRate;
+    //endregion
+
+    @Pointcut("within(@org.springframework.stereotype.Repository *)")
+    public void repositoryPointcut() {
+    }
+
+    @Pointcut("within(@org.springframework.stereotype.Service *)")
+    public void servicePointcut() {
+    }
+
+    @Pointcut("within(@org.springframework.web.bind.annotation.RestController *)")
+    public void controllerPointcut() {
     }
 
-    @Around("applicationPackagePointcut()")
-    public Object logAround(ProceedingJoinPoint joinPoint) throws Throwable {
-        long startTime = System.currentTimeMillis();
+    @Around("repositoryPointcut()")
+    public Object logAroundRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return logAround(joinPoint, LAYER_REPOSITORY, repositorySampleRate);
+    }
+
+    @Around("servicePointcut()")
+    public Object logAroundService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return logAround(joinPoint, LAYER_SERVICE, serviceSampleRate);
+    }
 
-        logger.info("Start method: {} with arguments = {}",
-                joinPoint.getSignature().toShortString(), Arrays.toString(joinPoint.getArgs()));
+    @Around("controllerPointcut()")
+    public Object logAroundController(ProceedingJoinPoint joinPoint) throws Throwable {
+        return logAround(joinPoint, LAYER_CONTROLLER, controllerSampleRate);
+    }
+
+    private Object logAround(ProceedingJoinPoint joinPoint, String layer, double sampleRate)
+            throws Throwable {
+        MethodMetrics metrics = metricsFor(joinPoint, layer);
+        boolean sampled = isSampled(sampleRate);
+        long startTime = System.nanoTime();
+
+        if (sampled) {
+            logger.info("Start method: {} with arguments = {}",
+                    joinPoint.getSignature().toShortString(),
+                    LogRenderer.renderAll(joinPoint.getArgs()));
+        }
 
         try {
             Object result = joinPoint.proceed();
-            long endTime = System.currentTimeMillis();
+            long executionTime = System.nanoTime() - startTime;
+            metrics.timer().record(executionTime, TimeUnit.NANOSECONDS);
 
-            logger.info("End method: {} with result = {}. Execution time = {} ms",
-                    joinPoint.getSignature().toShortString(), result, endTime - startTime);
+            if (sampled) {
+                logger.info("End method: {} with result = {}. Execution time = {} us",
+                        joinPoint.getSignature().toShortString(), LogRenderer.render(result),
+                        TimeUnit.NANOSECONDS.toMicros(executionTime));
+            }
 
             return result;
-        } catch (IllegalArgumentException e) {
-            logger.error("Illegal argument: {} in {}. ",
-                    Arrays.toString(joinPoint.getArgs()),
-                    joinPoint.getSignature().toShortString());
+        } catch (Throwable e) {
+            metrics.timer().record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+            metrics.errors().increment();
 
+            if (e instanceof IllegalArgumentException) {
+                logger.error("Illegal argument: {} in {}. ",
+                        LogRenderer.renderAll(joinPoint.getArgs()),
+                        joinPoint.getSignature().toShortString());
+            }
             throw e;
         }
     }
+
+    private boolean isSampled(double sampleRate) {
+        return loggingEnabled
+                && logger.isInfoEnabled()
+                && (sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    private MethodMetrics metricsFor(ProceedingJoinPoint joinPoint, String layer) {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        MethodMetrics metrics = methodMetrics.get(method);
+
+        return metrics != null
+                ? metrics
+                : methodMetrics.computeIfAbsent(method, key -> register(key, layer));
+    }
+
+    private MethodMetrics register(Method method, String layer) {
+        String className = method.getDeclaringClass().getSimpleName();
+        Timer timer = Timer.builder(METHOD_TIMER)
+                .description("Execution time of intercepted controller, service and repository methods")
+                .tag("layer", layer)
+                .tag("class", className)
+                .tag("method", method.getName())
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .register(meterRegistry);
+        Counter errors = Counter.builder(METHOD_ERRORS)
+                .description("Intercepted method calls that ended with an exception")
+                .tag("layer", layer)
+                .tag("class", className)
+                .tag("method", method.getName())
+                .register(meterRegistry);
+
+        return new MethodMetrics(timer, errors);
+    }
+
+    private record MethodMetrics(Timer timer, Counter errors) {
+    }
 }
@@ -3,6 +3,7 @@ package userservice.service.mapper;
 import org.springframework.stereotype.Component;
 import userservice.dto.UserRequestDto;
 import userservice.dto.UserResponseDto;
+import userservice.dto.UserUpdateDto;
 import userservice.model.User;
 
 @Component
@@ -33,4 +34,26 @@ public class UserMapper {
 
         return user;
     }
+
+    /**
+     * Returns a user holding only the fields a partial update should change: blank strings
+     * count as absent, except for the phone number.
+     */
+    public User toChanges(UserUpdateDto updateDto) {
+        User changes = new User();
+
+        if (updateDto.getEmail() != null && !updateDto.getEmail().isEmpty())
+            changes.setEmail(updateDto.getEmail());
+        if (updateDto.getFirstname() != null && !updateDto.getFirstname().isEmpty())
+            changes.setFirstname(updateDto.getFirstname());
+        if (updateDto.getLastname() != null && !updateDto.getLastname().isEmpty())
+            changes.setLastname(updateDto.getLastname());
+        if (updateDto.getBirthdate() != null) changes.setBirthdate(updateDto.getBirthdate());
+        if (updateDto.getAddress() != null && !updateDto.getAddress().isEmpty())
+            changes.setAddress(updateDto.getAddress());
+        if (updateDto.getPhoneNumber() != null)
+            changes.setPhoneNumber(updateDto.getPhoneNumber());
+
+        return changes;
+    }
 }
@@ -0,0 +1,36 @@
+package userservice.service.pagination;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import userservice.exception.UserCursorException;
+import userservice.dto.UserResponseDto;
+
+/**
+ * Position of the last user returned by a birthdate range page, ordered by (birthdate, id).
+ * Clients only see it as an opaque URL-safe token.
+ */
+public record BirthdateCursor(LocalDate birthdate, Long id) {
+    private static final String DELIMITER = ":";
+
+    public static BirthdateCursor of(UserResponseDto user) {
+        return new BirthdateCursor(user.getBirthdate(), user.getId());
+    }
+
+    public static BirthdateCursor decode(String token) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = value.split(DELIMITER, 2);
+
+            return new BirthdateCursor(LocalDate.parse(parts[0]), Long.parseLong(parts[1]));
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new UserCursorException("Invalid cursor: " + token);
+        }
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((birthdate + DELIMITER + id).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,77 @@
+package userservice.service.pagination;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.Collectors;
+import userservice.exception.UserCursorException;
+import userservice.model.UserChange;
+
+/**
+ * Position of the last change delivered from the change feed in each shard's log, ordered by
+ * (transaction id, id) within a log; there is a single log unless users are sharded. Clients
+ * only see it as an opaque URL-safe token.
+ */
+public record ChangeCursor(List<Position> positions) {
+    public static final ChangeCursor START = new ChangeCursor(0, 0);
+    private static final String DELIMITER = ":";
+    private static final String SHARD_DELIMITER = ",";
+
+    public ChangeCursor {
+        positions = List.copyOf(positions);
+    }
+
+    public ChangeCursor(long txId, long id) {
+        this(List.of(new Position(txId, id)));
+    }
+
+    /**
+     * Returns the position in the log of {@code shard}, which is the start for a shard the
+     * cursor doesn't know yet.
+     */
+    public Position position(int shard) {
+        return shard < positions.size() ? positions.get(shard) : Position.START;
+    }
+
+    /**
+     * Returns this cursor moved past {@code change} in the log of {@code shard}.
+     */
+    public ChangeCursor after(int shard, UserChange change) {
+        List<Position> moved = new ArrayList<>(positions);
+        while (moved.size() <= shard) {
+            moved.add(Position.START);
+        }
+        moved.set(shard, new Position(change.getTxId(), change.getId()));
+
+        return new ChangeCursor(moved);
+    }
+
+    public static ChangeCursor decode(String token) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            List<Position> positions = new ArrayList<>();
+            for (String position : value.split(SHARD_DELIMITER, -1)) {
+                String[] parts = position.split(DELIMITER, 2);
+                positions.add(new Position(Long.parseLong(parts[0]), Long.parseLong(parts[1])));
+            }
+
+            return new ChangeCursor(positions);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new UserCursorException("Invalid cursor: " + token);
+        }
+    }
+
+    public String encode() {
+        String value = positions.stream()
+                .map(position -> position.txId() + DELIMITER + position.id())
+                .collect(Collectors.joining(SHARD_DELIMITER));
+
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public record Position(long txId, long id) {
+        public static final Position START = new Position(0, 0);
+    }
+}
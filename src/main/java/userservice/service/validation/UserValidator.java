@@ -0,0 +1,48 @@
+package userservice.service.validation;
+
+import java.time.LocalDate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import userservice.exception.UserAgeException;
+import userservice.exception.UserBirthdateException;
+import userservice.exception.UserEmptyFieldsException;
+import userservice.model.User;
+
+/**
+ * Business rules for user data, shared by the servlet and the reactive API.
+ */
+@Component
+public class UserValidator {
+    //region Fields
+    @Value("${user.min_age}")
+    private int minAge;
+    //endregion
+
+    public void checkRequiredFields(User user) {
+        if (user.getFirstname() == null
+                || user.getLastname() == null
+                || user.getBirthdate() == null
+                || user.getEmail() == null) {
+
+            throw new UserEmptyFieldsException("One or more fields are missing: "
+                    + "email, firstname, lastname, birthdate");
+        }
+    }
+
+    public void checkAge(User user) {
+        LocalDate currentDate = LocalDate.now();
+        LocalDate acceptableAge = currentDate.minusYears(minAge);
+
+        if (user.getBirthdate() != null) {
+            if (user.getBirthdate().isAfter(acceptableAge))
+                throw new UserAgeException("User must be at least " + minAge + " years old.");
+        }
+    }
+
+    public void checkBirthdateRange(LocalDate birthDateFrom, LocalDate birthDateTo) {
+        if (birthDateFrom == null || birthDateTo == null || !birthDateFrom.isBefore(birthDateTo)) {
+            throw new UserBirthdateException("All fields are required "
+                    + "and birthdate from should be less than birthdate to");
+        }
+    }
+}
@@ -0,0 +1,18 @@
+-- Applied to the directory database only when user.datasource.shard.enabled is set.
+
+-- Which shard each of the 1024 id slots (id % 1024) lives on.
+create table shard_slots (
+    slot integer not null,
+    shard integer not null,
+    primary key (slot)
+);
+
+-- Every email a user has had, so that findByEmail only asks the shards the ids live on.
+-- Stale entries are harmless, lookups still compare the email on the shard.
+create table user_emails (
+    email varchar(255) not null,
+    user_id bigint not null,
+    primary key (email, user_id)
+);
+
+create index idx_user_emails_user_id on user_emails (user_id);
@@ -0,0 +1,43 @@
+-- Schema as Hibernate generated it with ddl-auto=create-drop, plus the indexes queries need.
+create sequence users_seq start with 1 increment by 50;
+
+create table users (
+    id bigint not null,
+    email varchar(255),
+    firstname varchar(255),
+    lastname varchar(255),
+    birthdate date,
+    address varchar(255),
+    phone_number varchar(255),
+    version bigint,
+    primary key (id)
+);
+
+-- findByEmail, findVersionByEmail
+create index idx_users_email on users (email);
+-- Birthdate range search, paged by (birthdate, id)
+create index idx_users_birthdate_id on users (birthdate, id);
+-- Prefix search walks these in byte order.
+create index idx_users_lastname_prefix on users (lower(lastname) collate "C", id);
+create index idx_users_firstname_prefix on users (lower(firstname) collate "C", id);
+create index idx_users_email_prefix on users (lower(email) collate "C", id);
+
+create table user_changes (
+    id bigint generated by default as identity,
+    tx_id bigint not null default pg_current_xact_id()::text::bigint,
+    user_id bigint not null,
+    type varchar(255) not null check (type in ('CREATED', 'UPDATED', 'DELETED')),
+    version bigint,
+    changed_at timestamp with time zone not null default now(),
+    primary key (id)
+);
+
+create index idx_user_changes_tx_id_id on user_changes (tx_id, id);
+
+create table idempotency_keys (
+    idempotency_key varchar(255) not null,
+    fingerprint varchar(255) not null,
+    response text,
+    claimed_at timestamp(6) with time zone not null,
+    primary key (idempotency_key)
+);
@@ -0,0 +1,29 @@
+-- Applied to every shard, after the common migrations, when user.datasource.shard.enabled is set.
+
+-- The slots this shard accepts writes for. The rebalancer deletes a slot here before moving it,
+-- which waits for the writers holding it and turns later ones away.
+create table owned_slots (
+    slot integer not null,
+    primary key (slot)
+);
+
+-- Copying and cleaning up a slot walks its rows by id.
+create index idx_users_slot_id on users ((id % 1024), id);
+
+create function check_slot_owned() returns trigger as $$
+declare
+    user_id bigint := case when tg_op = 'DELETE' then old.id else new.id end;
+begin
+    if coalesce(current_setting('user.rebalancing', true), '') <> 'on' then
+        perform 1 from owned_slots where slot = user_id % 1024 for key share;
+        if not found then
+            raise exception 'Slot % of user % is not on this shard', user_id % 1024, user_id
+                using errcode = 'SH001';
+        end if;
+    end if;
+    return case when tg_op = 'DELETE' then old else new end;
+end;
+$$ language plpgsql;
+
+create trigger users_slot_owned before insert or update or delete on users
+    for each row execute function check_slot_owned();
@@ -0,0 +1,119 @@
+package userservice.concurrency;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class AdmissionControlFilterTest {
+    private SimpleMeterRegistry meterRegistry;
+    private AimdLimit readLimit;
+    private AdmissionControlFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        readLimit = new AimdLimit(1, 1, 10, 0.5, Duration.ofSeconds(10));
+        filter = new AdmissionControlFilter(readLimit,
+                new AimdLimit(1, 1, 10, 0.5, Duration.ofSeconds(10)), meterRegistry);
+    }
+
+    @Test
+    void readOverLimitIsRejectedTest() throws Exception {
+        MockHttpServletResponse inner = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/users/1"),
+                new MockHttpServletResponse(), (request, response) -> filter.doFilter(
+                        new MockHttpServletRequest("GET", "/users/2"), inner,
+                        new MockFilterChain()));
+
+        assertEquals(503, inner.getStatus());
+        assertEquals("1", inner.getHeader(HttpHeaders.RETRY_AFTER));
+        assertEquals(1.0, meterRegistry.get(AdmissionControlFilter.REJECTED)
+                .tag(AdmissionControlFilter.BUDGET, "read").counter().count());
+        assertEquals(readLimit.getLimit(), meterRegistry.get(AdmissionControlFilter.LIMIT)
+                .tag(AdmissionControlFilter.BUDGET, "read").gauge().value());
+    }
+
+    @Test
+    void writesHaveTheirOwnBudgetTest() throws Exception {
+        MockHttpServletResponse inner = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(new MockHttpServletRequest("GET", "/users/1"),
+                new MockHttpServletResponse(), (request, response) -> filter.doFilter(
+                        new MockHttpServletRequest("POST", "/users"), inner, chain));
+
+        assertNotNull(chain.getRequest());
+        assertEquals(200, inner.getStatus());
+    }
+
+    @Test
+    void actuatorIsNotLimitedTest() throws Exception {
+        MockHttpServletResponse inner = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(new MockHttpServletRequest("GET", "/users/1"),
+                new MockHttpServletResponse(), (request, response) -> filter.doFilter(
+                        new MockHttpServletRequest("GET", "/actuator/health"), inner, chain));
+
+        assertNotNull(chain.getRequest());
+        assertEquals(200, inner.getStatus());
+    }
+
+    @Test
+    void serverErrorCutsTheLimitTest() throws Exception {
+        AimdLimit limit = new AimdLimit(4, 1, 10, 0.5, Duration.ofSeconds(10));
+        filter = new AdmissionControlFilter(limit, limit, new SimpleMeterRegistry());
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/users/1"),
+                new MockHttpServletResponse(),
+                (request, response) -> ((MockHttpServletResponse) response).setStatus(500));
+
+        assertEquals(2, limit.getLimit());
+        assertEquals(0, limit.getInFlight());
+    }
+
+    @Test
+    void permitIsReleasedWhenRequestFailsTest() throws Exception {
+        assertThrows(IllegalStateException.class, () -> filter.doFilter(
+                new MockHttpServletRequest("GET", "/users/1"), new MockHttpServletResponse(),
+                (request, response) -> {
+                    throw new IllegalStateException();
+                }));
+
+        assertEquals(0, readLimit.getInFlight());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/users/1"), response,
+                new MockFilterChain());
+        assertEquals(200, response.getStatus());
+    }
+
+    @Test
+    void asyncRequestHoldsPermitWithoutMovingLimitTest() throws Exception {
+        MockHttpServletRequest export = new MockHttpServletRequest("GET", "/users/export");
+        export.setAsyncSupported(true);
+        filter.doFilter(export, new MockHttpServletResponse(),
+                (request, response) -> request.startAsync());
+
+        assertEquals(1, readLimit.getInFlight());
+        export.getAsyncContext().complete();
+        assertEquals(0, readLimit.getInFlight());
+        assertEquals(1, readLimit.getLimit());
+    }
+
+    @Test
+    void longPollReleasesPermitWhenHandlerReturnsTest() throws Exception {
+        MockHttpServletRequest poll = new MockHttpServletRequest("GET", "/users/changes");
+        poll.setAsyncSupported(true);
+        filter.doFilter(poll, new MockHttpServletResponse(), (request, response) -> {
+            LongPolls.mark(request);
+            request.startAsync();
+        });
+
+        assertEquals(0, readLimit.getInFlight());
+    }
+}
@@ -0,0 +1,81 @@
+package userservice.concurrency;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class AimdLimitTest {
+
+    @Test
+    void limitCapsConcurrentRequestsTest() {
+        AimdLimit limit = new AimdLimit(2, 1, 10, 0.5, Duration.ofSeconds(10));
+
+        assertNotEquals(-1, limit.tryAcquire());
+        assertNotEquals(-1, limit.tryAcquire());
+        assertEquals(-1, limit.tryAcquire());
+        limit.release();
+        assertNotEquals(-1, limit.tryAcquire());
+    }
+
+    @Test
+    void fastRequestsUsingTheLimitRaiseItToMaximumTest() {
+        AimdLimit limit = new AimdLimit(4, 1, 10, 0.5, Duration.ofSeconds(10));
+
+        for (int round = 0; round < 100; round++) {
+            long[] started = new long[limit.getLimit()];
+            for (int i = 0; i < started.length; i++) {
+                started[i] = limit.tryAcquire();
+            }
+            for (long startedAt : started) {
+                limit.release(startedAt, false);
+            }
+        }
+
+        assertEquals(10, limit.getLimit());
+    }
+
+    @Test
+    void mostlyIdleLimitStaysTest() {
+        AimdLimit limit = new AimdLimit(4, 1, 10, 0.5, Duration.ofSeconds(10));
+
+        for (int i = 0; i < 100; i++) {
+            limit.release(limit.tryAcquire(), false);
+        }
+
+        assertEquals(4, limit.getLimit());
+    }
+
+    @Test
+    void failuresCutTheLimitOncePerRoundTest() {
+        AimdLimit limit = new AimdLimit(8, 1, 10, 0.5, Duration.ofSeconds(10));
+        long first = limit.tryAcquire();
+        long second = limit.tryAcquire();
+
+        limit.release(first, true);
+        limit.release(second, true);
+        assertEquals(4, limit.getLimit());
+
+        limit.release(limit.tryAcquire(), true);
+        assertEquals(2, limit.getLimit());
+    }
+
+    @Test
+    void slowRequestsCutTheLimitDownToMinimumTest() {
+        AimdLimit limit = new AimdLimit(8, 3, 10, 0.5, Duration.ZERO);
+
+        for (int i = 0; i < 5; i++) {
+            limit.release(limit.tryAcquire(), false);
+        }
+
+        assertEquals(3, limit.getLimit());
+    }
+
+    @Test
+    void invalidLimitsAreRejectedTest() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new AimdLimit(1, 2, 10, 0.5, Duration.ZERO));
+        assertThrows(IllegalArgumentException.class,
+                () -> new AimdLimit(2, 1, 10, 1.0, Duration.ZERO));
+    }
+}
@@ -0,0 +1,94 @@
+package userservice.concurrency;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class ConnectionPoolLimitFilterTest {
+    private SimpleMeterRegistry meterRegistry;
+    private ConnectionPoolLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new ConnectionPoolLimitFilter(1, Duration.ofMillis(10), meterRegistry);
+    }
+
+    @Test
+    void requestWithinLimitPassesTest() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(new MockHttpServletRequest(), response, chain);
+
+        assertNotNull(chain.getRequest());
+        assertEquals(200, response.getStatus());
+    }
+
+    @Test
+    void requestOverLimitIsRejectedTest() throws Exception {
+        MockHttpServletResponse inner = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest(), new MockHttpServletResponse(),
+                (request, response) -> filter.doFilter(
+                        new MockHttpServletRequest(), inner, new MockFilterChain()));
+
+        assertEquals(503, inner.getStatus());
+        assertEquals("1", inner.getHeader(HttpHeaders.RETRY_AFTER));
+        assertEquals(1.0, meterRegistry.counter(ConnectionPoolLimitFilter.REJECTED).count());
+    }
+
+    @Test
+    void permitIsReleasedWhenRequestFailsTest() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        assertThrows(IllegalStateException.class, () -> filter.doFilter(
+                new MockHttpServletRequest(), new MockHttpServletResponse(),
+                (request, response) -> {
+                    calls.incrementAndGet();
+                    throw new IllegalStateException();
+                }));
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest(), response, new MockFilterChain());
+        assertEquals(200, response.getStatus());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void asyncRequestHoldsPermitUntilCompleteTest() throws Exception {
+        MockHttpServletRequest streaming = new MockHttpServletRequest();
+        streaming.setAsyncSupported(true);
+        filter.doFilter(streaming, new MockHttpServletResponse(),
+                (request, response) -> request.startAsync());
+
+        MockHttpServletResponse whileStreaming = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest(), whileStreaming, new MockFilterChain());
+        assertEquals(503, whileStreaming.getStatus());
+
+        streaming.getAsyncContext().complete();
+        MockHttpServletResponse afterwards = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest(), afterwards, new MockFilterChain());
+        assertEquals(200, afterwards.getStatus());
+    }
+
+    @Test
+    void longPollReleasesPermitWhenHandlerReturnsTest() throws Exception {
+        MockHttpServletRequest poll = new MockHttpServletRequest();
+        poll.setAsyncSupported(true);
+        filter.doFilter(poll, new MockHttpServletResponse(), (request, response) -> {
+            LongPolls.mark(request);
+            request.startAsync();
+        });
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest(), response, new MockFilterChain());
+        assertEquals(200, response.getStatus());
+    }
+}
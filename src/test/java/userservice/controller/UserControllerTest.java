@@ -1,5 +1,8 @@
 package userservice.controller;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -10,18 +13,45 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import userservice.dto.UserChangeDto;
+import userservice.dto.UserChangesDto;
+import userservice.dto.UserImportProgressDto;
+import userservice.dto.UserImportRejectionDto;
 import userservice.dto.UserRequestDto;
 import userservice.dto.UserResponseDto;
+import userservice.exception.UserImportException;
+import userservice.exception.UserVersionMismatchException;
 import userservice.model.User;
+import userservice.model.UserChange;
 import userservice.service.UserService;
+import userservice.service.changes.UserChangeFeed;
+import userservice.service.changes.UserChangeListener;
+import userservice.service.idempotency.IdempotentExecutor;
+import userservice.service.importing.UserCsvImporter;
+import userservice.service.importing.UserCsvReader;
+import userservice.service.importing.UserImportListener;
 import userservice.service.mapper.UserMapper;
+import userservice.service.pagination.BirthdateCursor;
+import userservice.service.pagination.ChangeCursor;
 
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
 
 @ExtendWith(SpringExtension.class)
 @WebMvcTest(UserController.class)
@@ -33,9 +63,18 @@ class UserControllerTest {
     @MockBean
     private UserService userService;
 
+    @MockBean
+    private UserCsvImporter csvImporter;
+
     @MockBean
     private UserMapper dtoMapper;
 
+    @MockBean
+    private UserChangeFeed changeFeed;
+
+    @MockBean
+    private IdempotentExecutor idempotentExecutor;
+
     User user;
     UserResponseDto responseDto;
 
@@ -46,6 +85,7 @@ class UserControllerTest {
         user.setFirstname("John");
         user.setLastname("Doe");
         user.setEmail("john@example.com");
+        user.setVersion(3L);
         user.setBirthdate(LocalDate.of(2000, 1, 1));
 
         responseDto = new UserResponseDto();
@@ -70,11 +110,58 @@ class UserControllerTest {
                                 + "\"birthdate\": \"01.01.2000\" }"))
                 .andExpect(status().isCreated())
                 .andExpect(jsonPath("$.firstname").value("John"));
+        verifyNoInteractions(idempotentExecutor);
+    }
+
+    @Test
+    void createUserWithIdempotencyKeyTest() throws Exception {
+        when(idempotentExecutor.execute(eq("key-1"), any(UserRequestDto.class),
+                eq(UserResponseDto.class), any()))
+                .thenReturn(new IdempotentExecutor.Result<>(responseDto, true));
+
+        mockMvc.perform(post("/users")
+                        .header("Idempotency-Key", "key-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{ \"firstname\": \"John\", "
+                                + "\"lastname\": \"Doe\", "
+                                + "\"email\": \"john@example.com\", "
+                                + "\"birthdate\": \"01.01.2000\" }"))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andExpect(jsonPath("$.id").value(1));
+        verify(userService, never()).save(any(User.class));
+    }
+
+    @Test
+    void createUsersBatchTest() throws Exception {
+        when(dtoMapper.toModel(any(UserRequestDto.class))).thenReturn(user, new User());
+        when(userService.saveAll(anyList())).thenReturn(Map.of(1, "User must be at least 18 years old."));
+
+        mockMvc.perform(post("/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{ \"users\": [ "
+                                + "{ \"firstname\": \"John\", \"lastname\": \"Doe\", "
+                                + "\"email\": \"john@example.com\", \"birthdate\": \"01.01.2000\" }, "
+                                + "{ \"firstname\": \"Jane\", \"lastname\": \"Doe\", "
+                                + "\"email\": \"jane@example.com\", \"birthdate\": \"01.01.2020\" } ] }"))
+                .andExpect(status().isMultiStatus())
+                .andExpect(jsonPath("$[0].status").value("CREATED"))
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[1].status").value("REJECTED"));
+    }
+
+    @Test
+    void createUsersBatchWithInvalidItemTest() throws Exception {
+        mockMvc.perform(post("/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{ \"users\": [ { \"firstname\": \"John\" } ] }"))
+                .andExpect(status().isBadRequest());
     }
 
     @Test
     void updateUserTest() throws Exception {
-        when(userService.updateComplete(anyLong(), any(UserRequestDto.class))).thenReturn(user);
+        when(userService.updateComplete(anyLong(), any(UserRequestDto.class), isNull()))
+                .thenReturn(user);
         when(dtoMapper.toDto(any(User.class))).thenReturn(responseDto);
 
         mockMvc.perform(put("/users/1")
@@ -84,9 +171,45 @@ class UserControllerTest {
                                 + "\"email\": \"john@example.com\", "
                                 + "\"birthdate\": \"01.01.2000\" }"))
                 .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""))
                 .andExpect(jsonPath("$.firstname").value("John"));
     }
 
+    @Test
+    void updateUserWithIfMatchTest() throws Exception {
+        when(userService.updatePartial(anyLong(), any(), eq(3L))).thenReturn(user);
+        when(dtoMapper.toDto(any(User.class))).thenReturn(responseDto);
+
+        mockMvc.perform(patch("/users/1")
+                        .header(HttpHeaders.IF_MATCH, "\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{ \"firstname\": \"John\" }"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""));
+    }
+
+    @Test
+    void updateUserWithStaleIfMatchTest() throws Exception {
+        when(userService.updatePartial(anyLong(), any(), eq(2L)))
+                .thenThrow(new UserVersionMismatchException("stale"));
+
+        mockMvc.perform(patch("/users/1")
+                        .header(HttpHeaders.IF_MATCH, "\"2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{ \"firstname\": \"John\" }"))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void updateUserWithWeakIfMatchTest() throws Exception {
+        mockMvc.perform(patch("/users/1")
+                        .header(HttpHeaders.IF_MATCH, "W/\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{ \"firstname\": \"John\" }"))
+                .andExpect(status().isPreconditionFailed());
+        verify(userService, never()).updatePartial(anyLong(), any(), any());
+    }
+
     @Test
     void deleteUserTest() throws Exception {
         doNothing().when(userService).delete(anyLong());
@@ -97,16 +220,230 @@ class UserControllerTest {
 
     @Test
     void findByBirthDateRangeTest() throws Exception {
-        List<User> users = Collections.singletonList(user);
+        List<UserResponseDto> users = Collections.singletonList(responseDto);
         when(userService.findByBirthDateRange(
                 any(LocalDate.class),
-                any(LocalDate.class)))
-                .thenReturn(users);
-        when(dtoMapper.toDto(any(User.class))).thenReturn(responseDto);
+                any(LocalDate.class),
+                isNull(),
+                anyInt()))
+                .thenReturn(new SliceImpl<>(users, Pageable.ofSize(1), true));
 
-        mockMvc.perform(get("/users/search?from=01.01.1990&to=01.01.2000"))
+        mockMvc.perform(get("/users/search?from=01.01.1990&to=01.01.2000&limit=1"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$[0].firstname").value("John"));
+                .andExpect(jsonPath("$.items[0].firstname").value("John"))
+                .andExpect(jsonPath("$.next").value(BirthdateCursor.of(responseDto).encode()));
+        verify(dtoMapper, never()).toDto(any(User.class));
+    }
+
+    @Test
+    void findByBirthDateRangeWithCursorTest() throws Exception {
+        BirthdateCursor cursor = BirthdateCursor.of(responseDto);
+        when(userService.findByBirthDateRange(
+                any(LocalDate.class),
+                any(LocalDate.class),
+                eq(cursor),
+                anyInt()))
+                .thenReturn(new SliceImpl<>(Collections.emptyList(), Pageable.ofSize(1), false));
+
+        mockMvc.perform(get("/users/search?from=01.01.1990&to=01.01.2000&cursor=" + cursor.encode()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items").isEmpty())
+                .andExpect(jsonPath("$.next").doesNotExist());
+    }
+
+    @Test
+    void findByBirthDateRangeWithInvalidCursorTest() throws Exception {
+        mockMvc.perform(get("/users/search?from=01.01.1990&to=01.01.2000&cursor=not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void findByPrefixTest() throws Exception {
+        when(userService.findByPrefix("jo", 5)).thenReturn(List.of(user));
+        when(dtoMapper.toDto(user)).thenReturn(responseDto);
+
+        mockMvc.perform(get("/users/autocomplete?prefix=jo&limit=5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].lastname").value("Doe"));
+    }
+
+    @Test
+    void pollChangesTest() throws Exception {
+        ChangeCursor since = new ChangeCursor(700, 41);
+        UserChangesDto batch = new UserChangesDto(List.of(new UserChangeDto(1L,
+                UserChange.Type.UPDATED, 4L, Instant.parse("2024-05-01T10:00:00Z"))),
+                new ChangeCursor(701, 42).encode());
+        when(changeFeed.subscribe(eq(since), any())).thenAnswer(invocation -> {
+            UserChangeListener listener = invocation.getArgument(1);
+            assertFalse(listener.onChanges(batch));
+            return (Runnable) () -> { };
+        });
+
+        MvcResult result = mockMvc.perform(get("/users/changes?since=" + since.encode()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changes[0].userId").value(1))
+                .andExpect(jsonPath("$.changes[0].type").value("UPDATED"))
+                .andExpect(jsonPath("$.changes[0].version").value(4))
+                .andExpect(jsonPath("$.next").value(batch.getNext()));
+    }
+
+    @Test
+    void streamChangesResumesFromLastEventIdTest() throws Exception {
+        ChangeCursor lastEventId = new ChangeCursor(700, 41);
+        UserChangesDto batch = new UserChangesDto(List.of(new UserChangeDto(1L,
+                UserChange.Type.DELETED, null, Instant.parse("2024-05-01T10:00:00Z"))),
+                new ChangeCursor(701, 42).encode());
+        when(changeFeed.subscribe(eq(lastEventId), any())).thenAnswer(invocation -> {
+            UserChangeListener listener = invocation.getArgument(1);
+            assertTrue(listener.onChanges(batch));
+            return (Runnable) () -> { };
+        });
+
+        String body = mockMvc.perform(get("/users/changes")
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .header("Last-Event-ID", lastEventId.encode()))
+                .andExpect(request().asyncStarted())
+                .andReturn().getResponse().getContentAsString();
+
+        assertTrue(body.startsWith("id:" + batch.getNext() + "\nevent:changes\ndata:[{"));
+    }
+
+    @Test
+    void pollChangesWithInvalidCursorTest() throws Exception {
+        mockMvc.perform(get("/users/changes?since=not-a-cursor"))
+                .andExpect(status().isBadRequest());
+        verify(changeFeed, never()).subscribe(any(), any());
+    }
+
+    @Test
+    void exportUsersTest() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<UserResponseDto> consumer = invocation.getArgument(1);
+            consumer.accept(responseDto);
+            consumer.accept(responseDto);
+            return null;
+        }).when(userService).exportAll(eq(0L), any());
+
+        MvcResult result = mockMvc.perform(get("/users/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[1].startsWith("{\"id\":1,"));
+        assertTrue(body.endsWith("\n"));
+    }
+
+    @Test
+    void exportUsersGzipTest() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<UserResponseDto> consumer = invocation.getArgument(1);
+            consumer.accept(responseDto);
+            return null;
+        }).when(userService).exportAll(eq(5L), any());
+
+        MvcResult result = mockMvc.perform(get("/users/export?afterId=5")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        byte[] body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn().getResponse().getContentAsByteArray();
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertTrue(new String(in.readAllBytes(), StandardCharsets.UTF_8).contains("\"firstname\":\"John\""));
+        }
+    }
+
+    @Test
+    void exportUsersOnlyGzipsWhenAcceptedTest() throws Exception {
+        for (String acceptEncoding : List.of("gzip;q=0", "x-gzip-foo, deflate", "*;q=0",
+                "gzip; q=0.0, *", "br")) {
+            MvcResult result = mockMvc.perform(get("/users/export")
+                            .header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding))
+                    .andReturn();
+            mockMvc.perform(asyncDispatch(result))
+                    .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING));
+        }
+        for (String acceptEncoding : List.of("GZIP;q=0.5", "x-gzip", "deflate, *")) {
+            MvcResult result = mockMvc.perform(get("/users/export")
+                            .header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding))
+                    .andReturn();
+            mockMvc.perform(asyncDispatch(result))
+                    .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"));
+        }
+    }
+
+    @Test
+    void lookupUsersTest() throws Exception {
+        Map<Long, User> found = new LinkedHashMap<>();
+        found.put(1L, user);
+        when(userService.getByIds(List.of(9L, 1L, 9L))).thenReturn(found);
+        when(dtoMapper.toDto(user)).thenReturn(responseDto);
+
+        mockMvc.perform(post("/users/lookup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"ids\":[9,1,9]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users.length()").value(1))
+                .andExpect(jsonPath("$.users[0].id").value(1))
+                .andExpect(jsonPath("$.missing").value(9));
+    }
+
+    @Test
+    void lookupUsersWithoutIdsTest() throws Exception {
+        mockMvc.perform(post("/users/lookup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"ids\":[]}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void importUsersTest() throws Exception {
+        UserCsvReader csvReader = new UserCsvReader(new StringReader("email\n"));
+        when(csvImporter.open(any())).thenReturn(csvReader);
+        doAnswer(invocation -> {
+            UserImportListener listener = invocation.getArgument(1);
+            listener.onRejected(new UserImportRejectionDto(3, "Email should be valid"));
+            listener.onProgress(new UserImportProgressDto(2, 1, 1, true));
+            return null;
+        }).when(csvImporter).importAll(eq(csvReader), any());
+
+        MvcResult result = mockMvc.perform(post("/users/import")
+                        .contentType("text/csv")
+                        .content("email\njohn@example.com\nnot-an-email\n"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("{\"line\":3,\"error\":\"Email should be valid\"}", lines[0]);
+        assertEquals("{\"read\":2,\"imported\":1,\"rejected\":1,\"done\":true}", lines[1]);
+    }
+
+    @Test
+    void importUsersWithMalformedHeaderTest() throws Exception {
+        when(csvImporter.open(any())).thenThrow(new UserImportException("Unknown CSV column"));
+
+        mockMvc.perform(post("/users/import")
+                        .contentType("text/csv")
+                        .content("mail\njohn@example.com\n"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Unknown CSV column"));
     }
 
     @Test
@@ -116,9 +453,32 @@ class UserControllerTest {
 
         mockMvc.perform(get("/users/1"))
                 .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""))
                 .andExpect(jsonPath("$.firstname").value("John"));
     }
 
+    @Test
+    void findByIdNotModifiedTest() throws Exception {
+        when(userService.getVersion(1L)).thenReturn(3L);
+
+        mockMvc.perform(get("/users/1").header(HttpHeaders.IF_NONE_MATCH, "\"2\", W/\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""))
+                .andExpect(content().string(""));
+        verify(userService, never()).get(anyLong());
+    }
+
+    @Test
+    void findByIdModifiedTest() throws Exception {
+        when(userService.getVersion(1L)).thenReturn(3L);
+        when(userService.get(1L)).thenReturn(user);
+        when(dtoMapper.toDto(any(User.class))).thenReturn(responseDto);
+
+        mockMvc.perform(get("/users/1").header(HttpHeaders.IF_NONE_MATCH, "\"2\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""));
+    }
+
     @Test
     void findByEmailTest() throws Exception {
         when(userService.findByEmail(anyString())).thenReturn(user);
@@ -128,4 +488,14 @@ class UserControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.firstname").value("John"));
     }
+
+    @Test
+    void findByEmailNotModifiedTest() throws Exception {
+        when(userService.getVersionByEmail("john@example.com")).thenReturn(3L);
+
+        mockMvc.perform(get("/users?email=john@example.com")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+                .andExpect(status().isNotModified());
+        verify(userService, never()).findByEmail(anyString());
+    }
 }
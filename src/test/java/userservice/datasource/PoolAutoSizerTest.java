@@ -0,0 +1,114 @@
+package userservice.datasource;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+class PoolAutoSizerTest {
+    private HikariConfigMXBean config;
+    private HikariPoolMXBean poolState;
+    private StatementMetrics statementMetrics;
+    private Timer acquire;
+    private PoolAutoSizer autoSizer;
+
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        HikariDataSource pool = mock(HikariDataSource.class);
+        config = mock(HikariConfigMXBean.class);
+        poolState = mock(HikariPoolMXBean.class);
+        when(pool.getPoolName()).thenReturn("primary");
+        when(pool.getHikariConfigMXBean()).thenReturn(config);
+        when(pool.getHikariPoolMXBean()).thenReturn(poolState);
+        when(config.getMaximumPoolSize()).thenReturn(8);
+        when(poolState.getActiveConnections()).thenReturn(8);
+        statementMetrics = new StatementMetrics(meterRegistry, new StaticListableBeanFactory()
+                .getBeanProvider(EntityManagerFactory.class));
+        acquire = meterRegistry.timer(PoolAutoSizer.ACQUIRE_TIMER, "pool", "primary");
+        autoSizer = new PoolAutoSizer(pool, statementMetrics, meterRegistry, 4, 10,
+                Duration.ofMillis(5), 3.0, Duration.ofHours(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        autoSizer.shutdown();
+    }
+
+    @Test
+    void slowAcquiresGrowThePoolTest() {
+        runStatements(10, Duration.ofMillis(1));
+        acquire.record(20, TimeUnit.MILLISECONDS);
+
+        assertEquals(10, autoSizer.resize());
+        verify(config).setMaximumPoolSize(10);
+        verify(config).setMinimumIdle(10);
+        verify(poolState, never()).softEvictConnections();
+    }
+
+    @Test
+    void waitingRequestsGrowThePoolTest() {
+        when(poolState.getThreadsAwaitingConnection()).thenReturn(3);
+        runStatements(10, Duration.ofMillis(1));
+
+        assertEquals(10, autoSizer.resize());
+    }
+
+    @Test
+    void slowerStatementsShrinkThePoolTest() {
+        runStatements(10, Duration.ofMillis(1));
+        assertEquals(8, autoSizer.resize());
+
+        runStatements(10, Duration.ofMillis(5));
+        acquire.record(20, TimeUnit.MILLISECONDS);
+
+        assertEquals(7, autoSizer.resize());
+        verify(config).setMaximumPoolSize(7);
+        verify(config).setMinimumIdle(4);
+        verify(poolState, never()).softEvictConnections();
+    }
+
+    @Test
+    void mostlyIdlePoolShrinksTest() {
+        when(poolState.getActiveConnections()).thenReturn(2);
+        runStatements(10, Duration.ofMillis(1));
+
+        assertEquals(7, autoSizer.resize());
+    }
+
+    @Test
+    void intervalWithoutStatementsIsSkippedTest() {
+        when(poolState.getActiveConnections()).thenReturn(0);
+
+        assertEquals(8, autoSizer.resize());
+        verify(config, never()).setMaximumPoolSize(anyInt());
+    }
+
+    @Test
+    void sizeStaysWithinBoundsTest() {
+        when(config.getMaximumPoolSize()).thenReturn(4);
+        when(poolState.getActiveConnections()).thenReturn(0);
+        runStatements(10, Duration.ofMillis(1));
+
+        assertEquals(4, autoSizer.resize());
+        verify(config, never()).setMaximumPoolSize(anyInt());
+    }
+
+    private void runStatements(int count, Duration latency) {
+        for (int i = 0; i < count; i++) {
+            statementMetrics.record(latency.toNanos());
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package userservice.datasource;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import javax.sql.DataSource;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class ReplicaRoutingDataSourceTest {
+    private PrimaryStickiness stickiness;
+
+    @BeforeEach
+    void setUp() {
+        stickiness = new PrimaryStickiness(Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        stickiness.clear();
+    }
+
+    @Test
+    void readOnlyTransactionsGoToHealthyReplicasRoundRobinTest() throws SQLException {
+        ReplicaRoutingDataSource dataSource = routing(replicaWithLag(0), replicaWithLag(1));
+        dataSource.checkReplicas();
+        readOnlyTransaction();
+
+        assertEquals("replica-0", dataSource.determineCurrentLookupKey());
+        assertEquals("replica-1", dataSource.determineCurrentLookupKey());
+        assertEquals("replica-0", dataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    void writesGoToPrimaryAndPinLaterReadsTest() throws SQLException {
+        ReplicaRoutingDataSource dataSource = routing(replicaWithLag(0));
+        dataSource.checkReplicas();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, dataSource.determineCurrentLookupKey());
+
+        readOnlyTransaction();
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, dataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    void pinIsRestoredFromCookieTest() throws SQLException {
+        ReplicaRoutingDataSource dataSource = routing(replicaWithLag(0));
+        dataSource.checkReplicas();
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setCookies(new Cookie(PrimaryStickiness.COOKIE,
+                Long.toString(System.currentTimeMillis() + 60_000)));
+        stickiness.restore(request);
+        readOnlyTransaction();
+
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, dataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    void pinFromCookieIsCappedAtWindowTest() throws Exception {
+        stickiness = new PrimaryStickiness(Duration.ofMillis(50));
+        ReplicaRoutingDataSource dataSource = routing(replicaWithLag(0));
+        dataSource.checkReplicas();
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setCookies(new Cookie(PrimaryStickiness.COOKIE, Long.toString(Long.MAX_VALUE)));
+        stickiness.restore(request);
+        readOnlyTransaction();
+        assertTrue(stickiness.isPinned());
+
+        Thread.sleep(100);
+        assertEquals("replica-0", dataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    void expiredPinIsIgnoredTest() throws SQLException {
+        ReplicaRoutingDataSource dataSource = routing(replicaWithLag(0));
+        dataSource.checkReplicas();
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setCookies(new Cookie(PrimaryStickiness.COOKIE,
+                Long.toString(System.currentTimeMillis() - 1)));
+        stickiness.restore(request);
+        readOnlyTransaction();
+
+        assertEquals("replica-0", dataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    void laggingReplicaFallsBackToPrimaryTest() throws SQLException {
+        ReplicaRoutingDataSource dataSource = routing(replicaWithLag(30));
+        dataSource.checkReplicas();
+        readOnlyTransaction();
+
+        assertEquals(0, dataSource.healthyReplicaCount());
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, dataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    void replicaNotStreamingFallsBackToPrimaryTest() throws SQLException {
+        DataSource replica = replicaWithLag(0);
+        ResultSet resultSet = replica.getConnection().createStatement().executeQuery("");
+        when(resultSet.wasNull()).thenReturn(true);
+        ReplicaRoutingDataSource dataSource = routing(replica);
+        dataSource.checkReplicas();
+        readOnlyTransaction();
+
+        assertEquals(0, dataSource.healthyReplicaCount());
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, dataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    void unreachableReplicaFallsBackToPrimaryTest() throws SQLException {
+        DataSource replica = mock(DataSource.class);
+        when(replica.getConnection()).thenThrow(new SQLException("Connection refused"));
+        ReplicaRoutingDataSource dataSource = routing(replica);
+        dataSource.checkReplicas();
+        readOnlyTransaction();
+
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, dataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    void replicasAreUnusedBeforeFirstCheckTest() throws SQLException {
+        ReplicaRoutingDataSource dataSource = routing(replicaWithLag(0));
+        readOnlyTransaction();
+
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, dataSource.determineCurrentLookupKey());
+    }
+
+    private ReplicaRoutingDataSource routing(DataSource... replicas) {
+        return new ReplicaRoutingDataSource(mock(DataSource.class), List.of(replicas),
+                stickiness, Duration.ofSeconds(5));
+    }
+
+    private void readOnlyTransaction() {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    }
+
+    private DataSource replicaWithLag(double lagSeconds) throws SQLException {
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getDouble(1)).thenReturn(lagSeconds);
+        Statement statement = mock(Statement.class);
+        when(statement.executeQuery(anyString())).thenReturn(resultSet);
+        Connection connection = mock(Connection.class);
+        when(connection.createStatement()).thenReturn(statement);
+        DataSource replica = mock(DataSource.class);
+        when(replica.getConnection()).thenReturn(connection);
+
+        return replica;
+    }
+}
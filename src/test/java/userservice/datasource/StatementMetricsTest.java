@@ -0,0 +1,125 @@
+package userservice.datasource;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import javax.sql.DataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import userservice.model.User;
+import userservice.repository.UserRepository;
+
+class StatementMetricsTest {
+    private SimpleMeterRegistry meterRegistry;
+    private StatementMetrics statementMetrics;
+    private Connection connection;
+    private PreparedStatement statement;
+    private DataSource dataSource;
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        meterRegistry = new SimpleMeterRegistry();
+        entityManagerFactory = mock(EntityManagerFactory.class);
+        statementMetrics = new StatementMetrics(meterRegistry,
+                new StaticListableBeanFactory(Map.of("entityManagerFactory", entityManagerFactory))
+                        .getBeanProvider(EntityManagerFactory.class));
+        connection = mock(Connection.class);
+        statement = mock(PreparedStatement.class);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(mock(ResultSet.class));
+        DataSource target = mock(DataSource.class);
+        when(target.getConnection()).thenReturn(connection);
+        dataSource = statementMetrics.wrap(target);
+    }
+
+    @Test
+    void statementIsTimedUnderItsRepositoryMethodTest() throws Throwable {
+        ProceedingJoinPoint joinPoint = mock(ProceedingJoinPoint.class);
+        MethodSignature signature = mock(MethodSignature.class);
+        when(joinPoint.getSignature()).thenReturn(signature);
+        when(joinPoint.getTarget()).thenReturn(Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{UserRepository.class}, (proxy, method, args) -> null));
+        when(signature.getMethod())
+                .thenReturn(UserRepository.class.getMethod("findByEmail", String.class));
+        when(joinPoint.proceed()).thenAnswer(invocation ->
+                dataSource.getConnection().prepareStatement("select 1").executeQuery());
+
+        statementMetrics.attributeToRepositoryMethod(joinPoint);
+
+        assertEquals(1, meterRegistry.get(StatementMetrics.STATEMENT_TIMER)
+                .tag("class", "UserRepository").tag("method", "findByEmail").timer().count());
+        assertEquals(1, statementMetrics.totals().count());
+    }
+
+    @Test
+    void writesScheduledBySaveAreTimedUnderItTest() throws Throwable {
+        ProceedingJoinPoint joinPoint = mock(ProceedingJoinPoint.class);
+        MethodSignature signature = mock(MethodSignature.class);
+        when(joinPoint.getSignature()).thenReturn(signature);
+        when(joinPoint.getTarget()).thenReturn(Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{UserRepository.class}, (proxy, method, args) -> null));
+        when(signature.getMethod())
+                .thenReturn(UserRepository.class.getMethod("save", User.class));
+        EntityManager entityManager = mock(EntityManager.class);
+        doAnswer(invocation -> dataSource.getConnection().prepareStatement("insert into users")
+                .executeUpdate()).when(entityManager).flush();
+
+        TransactionSynchronizationManager.bindResource(entityManagerFactory,
+                new EntityManagerHolder(entityManager));
+        try {
+            statementMetrics.attributeToRepositoryMethod(joinPoint);
+        } finally {
+            TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+        }
+
+        verify(entityManager).flush();
+        assertEquals(1, meterRegistry.get(StatementMetrics.STATEMENT_TIMER)
+                .tag("class", "UserRepository").tag("method", "save").timer().count());
+    }
+
+    @Test
+    void statementOutsideRepositoryIsUnattributedTest() throws SQLException {
+        dataSource.getConnection().prepareStatement("update users set version = 1")
+                .executeQuery();
+
+        assertEquals(1, meterRegistry.get(StatementMetrics.STATEMENT_TIMER)
+                .tag("method", "none").timer().count());
+    }
+
+    @Test
+    void failingStatementIsTimedTest() throws SQLException {
+        when(statement.executeUpdate()).thenThrow(new SQLException("deadlock detected"));
+
+        assertThrows(SQLException.class,
+                () -> dataSource.getConnection().prepareStatement("delete").executeUpdate());
+        assertEquals(1, statementMetrics.totals().count());
+    }
+
+    @Test
+    void otherCallsPassThroughTest() throws SQLException {
+        PGConnection pgConnection = mock(PGConnection.class);
+        when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+        Connection wrapped = dataSource.getConnection();
+
+        assertSame(pgConnection, wrapped.unwrap(PGConnection.class));
+        wrapped.prepareStatement("select 1").setFetchSize(100);
+        verify(statement).setFetchSize(100);
+        assertEquals(0, statementMetrics.totals().count());
+    }
+}
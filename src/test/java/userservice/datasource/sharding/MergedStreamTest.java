@@ -0,0 +1,105 @@
+package userservice.datasource.sharding;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class MergedStreamTest {
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void sourcesAreMergedInOrderTest() {
+        List<Consumer<Consumer<Long>>> sources = List.of(
+                sink -> LongStream.range(0, 1000).map(i -> i * 3).forEach(sink::accept),
+                sink -> {
+                },
+                sink -> LongStream.range(0, 1000).map(i -> i * 3 + 1).forEach(sink::accept));
+
+        try (Stream<Long> merged = MergedStream.of(executor, sources, Comparator.naturalOrder(),
+                10)) {
+            List<Long> values = merged.toList();
+
+            assertEquals(2000, values.size());
+            for (int i = 1; i < values.size(); i++) {
+                assertTrue(values.get(i - 1) < values.get(i));
+            }
+        }
+    }
+
+    @Test
+    void failingSourceFailsStreamTest() {
+        List<Consumer<Consumer<Long>>> sources = List.of(
+                sink -> sink.accept(1L),
+                sink -> {
+                    throw new IllegalStateException("Shard unavailable");
+                });
+
+        try (Stream<Long> merged = MergedStream.of(executor, sources, Comparator.naturalOrder(),
+                10)) {
+            IllegalStateException e = assertThrows(IllegalStateException.class, merged::toList);
+            assertEquals("Shard unavailable", e.getMessage());
+        }
+    }
+
+    @Test
+    void closingStopsSourcesTest() throws InterruptedException {
+        CountDownLatch stopped = new CountDownLatch(1);
+        List<Consumer<Consumer<Long>>> sources = List.of(sink -> {
+            try {
+                for (long i = 0; ; i++) {
+                    sink.accept(i);
+                }
+            } finally {
+                stopped.countDown();
+            }
+        });
+
+        try (Stream<Long> merged = MergedStream.of(executor, sources, Comparator.naturalOrder(),
+                10)) {
+            assertEquals(List.of(0L, 1L, 2L), merged.limit(3).toList());
+        }
+        assertTrue(stopped.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void rejectedSourceStopsTheOthersTest() throws InterruptedException {
+        ThreadPoolExecutor oneThread = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+                new SynchronousQueue<>());
+        CountDownLatch stopped = new CountDownLatch(1);
+        List<Consumer<Consumer<Long>>> sources = List.of(sink -> {
+            try {
+                for (long i = 0; ; i++) {
+                    sink.accept(i);
+                }
+            } finally {
+                stopped.countDown();
+            }
+        }, sink -> sink.accept(0L));
+
+        try {
+            assertThrows(RejectedExecutionException.class, () -> MergedStream.of(oneThread,
+                    sources, Comparator.naturalOrder(), 10));
+            assertTrue(stopped.await(5, TimeUnit.SECONDS));
+        } finally {
+            oneThread.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package userservice.datasource.sharding;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class ShardRebalancerTest {
+    @Test
+    void addedShardsGetEvenShareTest() {
+        int[] slotShards = new int[ShardDirectory.SLOTS];
+
+        List<ShardRebalancer.SlotMove> moves = ShardRebalancer.plan(slotShards, 3);
+
+        assertEquals(682, moves.size());
+        assertTrue(moves.stream().allMatch(move -> move.from() == 0 && move.to() != 0));
+        assertArrayEquals(new int[] {342, 341, 341}, counts(apply(slotShards, moves), 3));
+    }
+
+    @Test
+    void onlySurplusSlotsMoveTest() {
+        int[] slotShards = new int[ShardDirectory.SLOTS];
+        for (int slot = 0; slot < slotShards.length; slot++) {
+            slotShards[slot] = slot % 2;
+        }
+
+        List<ShardRebalancer.SlotMove> moves = ShardRebalancer.plan(slotShards, 3);
+
+        assertEquals(341, moves.size());
+        assertTrue(moves.stream().allMatch(move -> move.to() == 2));
+        int[] counts = counts(apply(slotShards, moves), 3);
+        assertEquals(1024, Arrays.stream(counts).sum());
+        assertTrue(Arrays.stream(counts).allMatch(count -> count == 341 || count == 342));
+    }
+
+    @Test
+    void balancedShardsNeedNoMovesTest() {
+        int[] slotShards = new int[ShardDirectory.SLOTS];
+        for (int slot = 0; slot < slotShards.length; slot++) {
+            slotShards[slot] = slot % 3;
+        }
+
+        assertEquals(List.of(), ShardRebalancer.plan(slotShards, 3));
+    }
+
+    private static int[] apply(int[] slotShards, List<ShardRebalancer.SlotMove> moves) {
+        int[] moved = slotShards.clone();
+        for (ShardRebalancer.SlotMove move : moves) {
+            assertEquals(move.from(), moved[move.slot()]);
+            moved[move.slot()] = move.to();
+        }
+        return moved;
+    }
+
+    private static int[] counts(int[] slotShards, int shards) {
+        int[] counts = new int[shards];
+        for (int shard : slotShards) {
+            counts[shard]++;
+        }
+        return counts;
+    }
+}
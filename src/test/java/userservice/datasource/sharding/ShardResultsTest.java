@@ -0,0 +1,54 @@
+package userservice.datasource.sharding;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import userservice.model.User;
+
+class ShardResultsTest {
+    @Test
+    void mergeKeepsOrderAndLimitTest() {
+        List<List<Integer>> sorted = List.of(List.of(1, 4, 7), List.of(), List.of(2, 3, 9));
+
+        assertEquals(List.of(1, 2, 3, 4, 7), ShardResults.merge(sorted,
+                Comparator.naturalOrder(), 5));
+        assertEquals(List.of(1, 2, 3, 4, 7, 9), ShardResults.merge(sorted,
+                Comparator.naturalOrder(), 10));
+    }
+
+    @Test
+    void prefixOrderMatchesSingleDatabaseOrderTest() {
+        User byEmail = user(1L, "Zed", "Zed", "ann@example.com");
+        User byLastname = user(2L, "Ann", "Ann", "zed@example.com");
+        User byFirstname = user(3L, "Ann", "Zed", "zed@example.com");
+        User longer = user(4L, "Zed", "Anna", "zed@example.com");
+        List<User> users = new ArrayList<>(List.of(longer, byEmail, byFirstname, byLastname));
+
+        users.sort(ShardResults.prefixOrder("an"));
+
+        assertEquals(List.of(byLastname, byFirstname, byEmail, longer), users);
+    }
+
+    @Test
+    void prefixOrderComparesByCodePointTest() {
+        User supplementary = user(1L, "x", "x", "a😀");
+        User bmp = user(2L, "x", "x", "aﬁ");
+        List<User> users = new ArrayList<>(List.of(supplementary, bmp));
+
+        users.sort(ShardResults.prefixOrder("a"));
+
+        assertEquals(List.of(bmp, supplementary), users);
+    }
+
+    private static User user(Long id, String firstname, String lastname, String email) {
+        User user = new User();
+        user.setId(id);
+        user.setFirstname(firstname);
+        user.setLastname(lastname);
+        user.setEmail(email);
+        return user;
+    }
+}
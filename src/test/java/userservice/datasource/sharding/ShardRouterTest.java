@@ -0,0 +1,26 @@
+package userservice.datasource.sharding;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import userservice.model.User;
+import userservice.repository.UserRepository;
+
+class ShardRouterTest {
+    interface ExtendedUserRepository extends UserRepository {
+        void deleteAll(List<User> users);
+    }
+
+    @Test
+    void everyUserRepositoryMethodIsRoutedTest() {
+        assertDoesNotThrow(() -> ShardRouter.checkRouted(UserRepository.class));
+    }
+
+    @Test
+    void unroutedMethodFailsTheCheckTest() {
+        UnsupportedOperationException e = assertThrows(UnsupportedOperationException.class,
+                () -> ShardRouter.checkRouted(ExtendedUserRepository.class));
+        assertEquals("UserRepository.deleteAll isn't routed to the shards", e.getMessage());
+    }
+}
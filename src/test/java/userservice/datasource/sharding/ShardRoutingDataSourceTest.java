@@ -0,0 +1,70 @@
+package userservice.datasource.sharding;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+import java.util.List;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class ShardRoutingDataSourceTest {
+    private final ShardRoutingDataSource dataSource = new ShardRoutingDataSource(
+            mock(DataSource.class), List.of(mock(DataSource.class), mock(DataSource.class)));
+
+    @AfterEach
+    void tearDown() {
+        dataSource.release();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void unboundThreadUsesDirectoryTest() {
+        assertEquals(ShardRoutingDataSource.DIRECTORY, dataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    void bindingOutsideTransactionLastsUntilReleasedTest() {
+        assertTrue(dataSource.bind(1));
+        assertFalse(dataSource.bind(1));
+        assertEquals(1, dataSource.determineCurrentLookupKey());
+
+        dataSource.release();
+        assertEquals(ShardRoutingDataSource.DIRECTORY, dataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    void bindingInTransactionLastsUntilItCompletesTest() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        assertFalse(dataSource.bind(0));
+        assertEquals(0, dataSource.determineCurrentLookupKey());
+        assertThrows(IllegalStateException.class, () -> dataSource.bind(1));
+
+        complete();
+        assertEquals(ShardRoutingDataSource.DIRECTORY, dataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    void transactionOnDirectoryCantUseShardTest() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        assertEquals(ShardRoutingDataSource.DIRECTORY, dataSource.determineCurrentLookupKey());
+        assertThrows(IllegalStateException.class, () -> dataSource.bind(0));
+
+        complete();
+        assertTrue(dataSource.bind(0));
+    }
+
+    private static void complete() {
+        List<TransactionSynchronization> synchronizations =
+                TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(
+                TransactionSynchronization.STATUS_COMMITTED));
+    }
+}
@@ -0,0 +1,37 @@
+package userservice.service.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class BloomFilterTest {
+    @Test
+    void addedKeysAreAlwaysReportedTest() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (long id = 0; id < 10_000; id++) {
+            filter.put(BloomFilter.hash(id));
+            filter.put(BloomFilter.hash("user" + id + "@example.com"));
+        }
+
+        for (long id = 0; id < 10_000; id++) {
+            assertTrue(filter.mightContain(BloomFilter.hash(id)));
+            assertTrue(filter.mightContain(BloomFilter.hash("user" + id + "@example.com")));
+        }
+    }
+
+    @Test
+    void falsePositiveRateStaysNearConfiguredRateTest() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (long id = 0; id < 10_000; id++) {
+            filter.put(BloomFilter.hash("user" + id + "@example.com"));
+        }
+
+        int falsePositives = 0;
+        for (long id = 0; id < 100_000; id++) {
+            if (filter.mightContain(BloomFilter.hash("missing" + id + "@example.com"))) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+    }
+}
@@ -0,0 +1,56 @@
+package userservice.service.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import userservice.dto.UserChangeDto;
+import userservice.dto.UserChangesDto;
+import userservice.model.User;
+import userservice.model.UserChange;
+import userservice.service.changes.UserChangeFeed;
+import userservice.service.changes.UserChangeListener;
+import userservice.service.pagination.ChangeCursor;
+
+class ChangeFeedEvictionsTest {
+    private final UserChangeFeed changeFeed = mock(UserChangeFeed.class);
+    private final UserCache userCache =
+            new UserCache(100, Duration.ofMinutes(1), Duration.ZERO,
+                    new SimpleMeterRegistry());
+
+    @Test
+    void changesReportedByTheFeedAreEvictedTest() {
+        ChangeCursor current = new ChangeCursor(700, 0);
+        AtomicReference<UserChangeListener> listener = new AtomicReference<>();
+        when(changeFeed.current()).thenReturn(current);
+        when(changeFeed.subscribe(eq(current), any())).thenAnswer(invocation -> {
+            listener.set(invocation.getArgument(1));
+            return (Runnable) () -> { };
+        });
+        new ChangeFeedEvictions(changeFeed, userCache).subscribe();
+        userCache.put(user(1L), userCache.stamp());
+        userCache.put(user(2L), userCache.stamp());
+
+        assertTrue(listener.get().onChanges(new UserChangesDto(List.of(new UserChangeDto(1L,
+                UserChange.Type.UPDATED, 3L, Instant.now())), new ChangeCursor(701, 1).encode())));
+
+        assertTrue(userCache.get(1L).isEmpty());
+        assertTrue(userCache.get(2L).isPresent());
+    }
+
+    private static User user(Long id) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail("user" + id + "@example.com");
+
+        return user;
+    }
+}
@@ -0,0 +1,193 @@
+package userservice.service.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import userservice.exception.UserNotFoundException;
+import userservice.model.User;
+
+class InFlightLoadsTest {
+    private static final int WAITERS = 8;
+
+    private final ExecutorService threads = Executors.newCachedThreadPool();
+    private final AtomicInteger queries = new AtomicInteger();
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private SimpleMeterRegistry meterRegistry;
+    private UserCache userCache;
+    private InFlightLoads inFlightLoads;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        userCache = new UserCache(100, Duration.ofMinutes(1), Duration.ZERO, meterRegistry);
+        inFlightLoads = new InFlightLoads(userCache, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        threads.shutdownNow();
+    }
+
+    @Test
+    void concurrentLoadsOfSameUserRunOneQueryTest() throws Exception {
+        Future<User> first = threads.submit(() -> inFlightLoads.loadById(1L, stamp -> {
+            started.countDown();
+            await(release);
+            return user(queries.incrementAndGet());
+        }));
+        await(started);
+        List<Future<User>> waiters = loadConcurrently(() -> inFlightLoads.loadById(1L,
+                stamp -> user(queries.incrementAndGet())));
+        release.countDown();
+
+        User loaded = first.get(5, TimeUnit.SECONDS);
+        for (Future<User> waiter : waiters) {
+            User user = waiter.get(5, TimeUnit.SECONDS);
+            assertEquals("Version 1", user.getFirstname());
+            assertNotSame(loaded, user);
+        }
+        assertEquals(1, queries.get());
+    }
+
+    @Test
+    void loadAfterWriteDoesNotJoinEarlierLoadTest() throws Exception {
+        Future<User> first = threads.submit(() -> inFlightLoads.loadByEmail("a@example.com",
+                stamp -> {
+                    started.countDown();
+                    await(release);
+                    return user(queries.incrementAndGet());
+                }));
+        await(started);
+
+        userCache.evict(1L, "a@example.com");
+        User afterWrite = inFlightLoads.loadByEmail("a@example.com",
+                stamp -> user(queries.incrementAndGet()));
+        release.countDown();
+
+        assertEquals("Version 1", afterWrite.getFirstname());
+        assertEquals("Version 2", first.get(5, TimeUnit.SECONDS).getFirstname());
+        assertEquals(0, meterRegistry.counter("user.loads.coalesced", "key", "email").count());
+    }
+
+    @Test
+    void failedLoadFailsItsWaitersTest() throws Exception {
+        Future<User> first = threads.submit(() -> inFlightLoads.loadById(1L, stamp -> {
+            started.countDown();
+            await(release);
+            throw new UserNotFoundException("User with id 1 not found");
+        }));
+        await(started);
+        List<Future<User>> waiters = loadConcurrently(() -> inFlightLoads.loadById(1L,
+                stamp -> user(queries.incrementAndGet())));
+        release.countDown();
+
+        for (Future<User> load : concat(first, waiters)) {
+            ExecutionException e = assertThrows(ExecutionException.class,
+                    () -> load.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(UserNotFoundException.class, e.getCause());
+        }
+        assertEquals(0, queries.get());
+    }
+
+    @Test
+    void finishedLoadIsNotReusedTest() {
+        inFlightLoads.loadById(1L, stamp -> user(queries.incrementAndGet()));
+        User second = inFlightLoads.loadById(1L, stamp -> user(queries.incrementAndGet()));
+
+        assertEquals("Version 2", second.getFirstname());
+    }
+
+    @Test
+    void loaderGetsStampTakenBeforeLoadTest() {
+        userCache.evict(1L);
+        long expected = userCache.stamp();
+
+        inFlightLoads.loadById(1L, stamp -> {
+            assertEquals(expected, stamp);
+            return user(1);
+        });
+    }
+
+    /**
+     * Starts {@link #WAITERS} loads and returns once all of them joined the one in flight.
+     */
+    @Test
+    void loadsOfSettlingUserAreNotSharedTest() throws Exception {
+        userCache = new UserCache(100, Duration.ofMinutes(1), Duration.ofMinutes(1),
+                meterRegistry);
+        inFlightLoads = new InFlightLoads(userCache, meterRegistry);
+        userCache.evict(1L);
+        Future<User> first = threads.submit(() -> inFlightLoads.loadById(1L, stamp -> {
+            started.countDown();
+            await(release);
+            return user(queries.incrementAndGet());
+        }));
+        await(started);
+
+        User second = inFlightLoads.loadById(1L, stamp -> user(queries.incrementAndGet()));
+        release.countDown();
+
+        assertEquals("Version 1", second.getFirstname());
+        assertEquals("Version 2", first.get(5, TimeUnit.SECONDS).getFirstname());
+        assertEquals(0.0, coalesced());
+    }
+
+    private List<Future<User>> loadConcurrently(Callable<User> load)
+            throws InterruptedException {
+        List<Future<User>> futures = new ArrayList<>();
+        for (int i = 0; i < WAITERS; i++) {
+            futures.add(threads.submit(load));
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (coalesced() < WAITERS && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(WAITERS, coalesced());
+        return futures;
+    }
+
+    private double coalesced() {
+        return meterRegistry.get("user.loads.coalesced").counters().stream()
+                .mapToDouble(Counter::count)
+                .sum();
+    }
+
+    private static List<Future<User>> concat(Future<User> first, List<Future<User>> rest) {
+        List<Future<User>> all = new ArrayList<>(rest);
+        all.add(0, first);
+        return all;
+    }
+
+    private static User user(int version) {
+        User user = new User();
+        user.setId(1L);
+        user.setEmail("a@example.com");
+        user.setFirstname("Version " + version);
+        return user;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
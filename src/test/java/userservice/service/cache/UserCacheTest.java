@@ -0,0 +1,106 @@
+package userservice.service.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import userservice.model.User;
+
+class UserCacheTest {
+    private SimpleMeterRegistry meterRegistry;
+    private UserCache userCache;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        userCache = new UserCache(100, Duration.ofMinutes(1), Duration.ZERO, meterRegistry);
+
+        user = new User();
+        user.setId(1L);
+        user.setEmail("john@example.com");
+        user.setFirstname("John");
+        user.setLastname("Doe");
+        user.setBirthdate(LocalDate.of(2000, 1, 1));
+    }
+
+    @Test
+    void getReturnsCopyOfCachedUserTest() {
+        userCache.put(user, userCache.stamp());
+
+        User cached = userCache.get(1L).orElseThrow();
+        cached.setFirstname("Changed");
+
+        assertEquals("John", userCache.get(1L).orElseThrow().getFirstname());
+        assertEquals("John", userCache.getByEmail("john@example.com").orElseThrow().getFirstname());
+    }
+
+    @Test
+    void putIsIgnoredWhenInvalidatedSinceStampTest() {
+        long stamp = userCache.stamp();
+        userCache.evict(1L);
+
+        userCache.put(user, stamp);
+
+        assertTrue(userCache.get(1L).isEmpty());
+    }
+
+    @Test
+    void evictRemovesOldAndNewEmailMappingsTest() {
+        userCache.put(user, userCache.stamp());
+
+        userCache.evict(1L, "new@example.com");
+
+        assertTrue(userCache.get(1L).isEmpty());
+        assertTrue(userCache.getByEmail("john@example.com").isEmpty());
+    }
+
+    @Test
+    void getByEmailIgnoresMappingToUserWithDifferentEmailTest() {
+        userCache.put(user, userCache.stamp());
+        User renamed = new User();
+        renamed.setId(1L);
+        renamed.setEmail("new@example.com");
+        userCache.put(renamed, userCache.stamp());
+
+        assertTrue(userCache.getByEmail("john@example.com").isEmpty());
+        assertTrue(userCache.getByEmail("new@example.com").isPresent());
+    }
+
+    @Test
+    void hitsAndMissesAreExposedAsMetricsTest() {
+        userCache.put(user, userCache.stamp());
+        userCache.get(1L);
+        userCache.get(2L);
+
+        assertEquals(1.0, meterRegistry.get("cache.gets")
+                .tags("cache", "users.by_id", "result", "hit").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets")
+                .tags("cache", "users.by_id", "result", "miss").functionCounter().count());
+    }
+
+    @Test
+    void settlingUserIsNotCachedTest() {
+        userCache = new UserCache(100, Duration.ofMinutes(1), Duration.ofMinutes(1),
+                meterRegistry);
+        userCache.evict(1L, "john@example.com");
+
+        assertTrue(userCache.isSettling(1L));
+        assertTrue(userCache.isSettling("john@example.com"));
+        userCache.put(user, userCache.stamp());
+
+        assertTrue(userCache.get(1L).isEmpty());
+    }
+
+    @Test
+    void nothingSettlesWithoutReplicasTest() {
+        userCache.evict(1L, "john@example.com");
+        userCache.put(user, userCache.stamp());
+
+        assertFalse(userCache.isSettling(1L));
+        assertTrue(userCache.get(1L).isPresent());
+    }
+}
@@ -0,0 +1,93 @@
+package userservice.service.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import userservice.repository.UserRepository;
+
+class UserExistenceFilterTest {
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private UserExistenceFilter filter;
+
+    @AfterEach
+    void tearDown() {
+        filter.shutdown();
+    }
+
+    @Test
+    void everyKeyMightExistBeforeFirstRebuildTest() {
+        filter = filter(Duration.ofMinutes(2));
+
+        assertTrue(filter.mightContainId(1L));
+        assertTrue(filter.mightContainEmail("missing@example.com"));
+    }
+
+    @Test
+    void rebuildPicksUpRowsWrittenElsewhereTest() {
+        filter = filter(Duration.ofMinutes(2));
+        table(1L, "a@example.com");
+        filter.rebuild();
+        assertFalse(filter.mightContainId(2L));
+
+        table(2L, "b@example.com");
+        filter.rebuild();
+
+        assertTrue(filter.mightContainId(2L));
+        assertTrue(filter.mightContainEmail("b@example.com"));
+    }
+
+    @Test
+    void keysAddedBeforeRebuildSurviveItTest() {
+        filter = filter(Duration.ofMinutes(2));
+        table(1L, "a@example.com");
+        filter.rebuild();
+
+        filter.addId(5L);
+        filter.addEmail("e@example.com");
+        filter.rebuild();
+
+        assertTrue(filter.mightContainId(5L));
+        assertTrue(filter.mightContainEmail("e@example.com"));
+    }
+
+    @Test
+    void staleFilterIsNotTrustedTest() {
+        filter = filter(Duration.ZERO);
+        table(1L, "a@example.com");
+        filter.rebuild();
+
+        assertTrue(filter.mightContainId(2L));
+    }
+
+    @Test
+    void failedRebuildKeepsPreviousFiltersTest() {
+        filter = filter(Duration.ofMinutes(2));
+        table(1L, "a@example.com");
+        filter.rebuild();
+        doThrow(new DataAccessResourceFailureException("Database is down"))
+                .when(userRepository).streamAllIds();
+
+        filter.rebuild();
+
+        assertTrue(filter.mightContainId(1L));
+        assertFalse(filter.mightContainId(2L));
+    }
+
+    private UserExistenceFilter filter(Duration maxAge) {
+        return new UserExistenceFilter(userRepository, mock(PlatformTransactionManager.class),
+                true, 1000, 0.01, Duration.ofMinutes(1), maxAge);
+    }
+
+    private void table(Long id, String email) {
+        when(userRepository.streamAllIds()).thenAnswer(invocation -> Stream.of(id));
+        when(userRepository.streamAllEmails()).thenAnswer(invocation -> Stream.of(email));
+    }
+}
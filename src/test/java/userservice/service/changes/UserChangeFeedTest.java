@@ -0,0 +1,100 @@
+package userservice.service.changes;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import userservice.dto.UserChangeDto;
+import userservice.dto.UserChangesDto;
+import userservice.exception.UserCursorException;
+import userservice.model.UserChange;
+import userservice.repository.UserChangeRepository;
+import userservice.service.pagination.ChangeCursor;
+
+class UserChangeFeedTest {
+    private final UserChangeRepository changeRepository = mock(UserChangeRepository.class);
+    private final TwoShards shards = new TwoShards();
+    private UserChangeFeed changeFeed;
+
+    @AfterEach
+    void tearDown() {
+        changeFeed.shutdown();
+    }
+
+    @Test
+    void batchHoldsTheChangesOfEveryShardTest() throws Exception {
+        changeFeed = changeFeed(shards);
+        when(changeRepository.findCommittedAfter(anyLong(), anyLong(), anyInt()))
+                .thenAnswer(invocation -> shards.current == 0
+                        ? List.of(change(1L, 700, 41))
+                        : List.of(change(2L, 20, 3), change(4L, 21, 4)));
+        CompletableFuture<UserChangesDto> received = new CompletableFuture<>();
+
+        changeFeed.subscribe(ChangeCursor.START, received::complete);
+        UserChangesDto batch = received.get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of(1L, 2L, 4L),
+                batch.getChanges().stream().map(UserChangeDto::getUserId).toList());
+        assertEquals(new ChangeCursor(List.of(new ChangeCursor.Position(700, 41),
+                new ChangeCursor.Position(21, 4))), ChangeCursor.decode(batch.getNext()));
+    }
+
+    @Test
+    void cursorForMoreShardsIsRejectedTest() {
+        changeFeed = changeFeed(shards);
+        ChangeCursor cursor = new ChangeCursor(List.of(new ChangeCursor.Position(1, 1),
+                new ChangeCursor.Position(2, 2), new ChangeCursor.Position(3, 3)));
+
+        assertThrows(UserCursorException.class, () -> changeFeed.subscribe(cursor, batch -> true));
+    }
+
+    @SuppressWarnings("unchecked")
+    private UserChangeFeed changeFeed(ChangeLogShards shards) {
+        ObjectProvider<ChangeLogShards> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable(any())).thenReturn(shards);
+
+        return new UserChangeFeed(changeRepository, 10, Duration.ofHours(1), Duration.ofDays(1),
+                provider);
+    }
+
+    private static UserChange change(Long userId, long txId, long id) {
+        UserChange change = new UserChange();
+        change.setId(id);
+        change.setTxId(txId);
+        change.setUserId(userId);
+        change.setType(UserChange.Type.UPDATED);
+        change.setVersion(1L);
+
+        return change;
+    }
+
+    private static final class TwoShards implements ChangeLogShards {
+        private volatile int current = -1;
+
+        @Override
+        public int count() {
+            return 2;
+        }
+
+        @Override
+        public <T> T on(int shard, Supplier<T> query) {
+            current = shard;
+            try {
+                return query.get();
+            } finally {
+                current = -1;
+            }
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package userservice.service.idempotency;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import userservice.exception.UserIdempotencyKeyException;
+import userservice.exception.UserIdempotencyKeyReuseException;
+import userservice.exception.UserRequestInProgressException;
+
+class IdempotentExecutorTest {
+    private static final Duration WAIT_TIMEOUT = Duration.ofSeconds(5);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ExecutorService threads = Executors.newCachedThreadPool();
+    private final AtomicInteger runs = new AtomicInteger();
+    private InMemoryIdempotencyStore store;
+    private IdempotentExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        store = new InMemoryIdempotencyStore(100, Duration.ofMinutes(1), Duration.ofMinutes(1));
+        executor = new IdempotentExecutor(store, objectMapper, WAIT_TIMEOUT);
+    }
+
+    @AfterEach
+    void tearDown() {
+        threads.shutdownNow();
+    }
+
+    @Test
+    void repeatGetsStoredResponseTest() {
+        IdempotentExecutor.Result<String> first =
+                executor.execute("key", Map.of("email", "a@example.com"), String.class, this::create);
+        IdempotentExecutor.Result<String> repeat =
+                executor.execute("key", Map.of("email", "a@example.com"), String.class, this::create);
+
+        assertFalse(first.replayed());
+        assertTrue(repeat.replayed());
+        assertEquals("user-1", repeat.value());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void keyReusedForDifferentRequestIsRejectedTest() {
+        executor.execute("key", Map.of("email", "a@example.com"), String.class, this::create);
+
+        assertThrows(UserIdempotencyKeyReuseException.class, () -> executor.execute(
+                "key", Map.of("email", "b@example.com"), String.class, this::create));
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void invalidKeyIsRejectedTest() {
+        assertThrows(UserIdempotencyKeyException.class,
+                () -> executor.execute(" ", "request", String.class, this::create));
+        assertThrows(UserIdempotencyKeyException.class,
+                () -> executor.execute("k".repeat(256), "request", String.class, this::create));
+    }
+
+    @Test
+    void concurrentRepeatsWaitForFirstRequestTest() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<IdempotentExecutor.Result<String>> first = threads.submit(() ->
+                executor.execute("key", "request", String.class, () -> {
+                    started.countDown();
+                    await(release);
+                    return create();
+                }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        List<Future<IdempotentExecutor.Result<String>>> repeats = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            repeats.add(threads.submit(
+                    () -> executor.execute("key", "request", String.class, this::create)));
+        }
+        release.countDown();
+
+        assertEquals("user-1", first.get(5, TimeUnit.SECONDS).value());
+        for (Future<IdempotentExecutor.Result<String>> repeat : repeats) {
+            IdempotentExecutor.Result<String> result = repeat.get(5, TimeUnit.SECONDS);
+            assertEquals("user-1", result.value());
+            assertTrue(result.replayed());
+        }
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void repeatOnAnotherInstanceWaitsForClaimTest() throws Exception {
+        IdempotentExecutor otherInstance = new IdempotentExecutor(store, objectMapper, WAIT_TIMEOUT);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        threads.submit(() -> executor.execute("key", "request", String.class, () -> {
+            started.countDown();
+            await(release);
+            return create();
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        Future<IdempotentExecutor.Result<String>> repeat = threads.submit(
+                () -> otherInstance.execute("key", "request", String.class, this::create));
+        release.countDown();
+
+        assertEquals("user-1", repeat.get(5, TimeUnit.SECONDS).value());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void repeatGivesUpAfterWaitTimeoutTest() throws Exception {
+        IdempotentExecutor impatient =
+                new IdempotentExecutor(store, objectMapper, Duration.ofMillis(100));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        threads.submit(() -> executor.execute("key", "request", String.class, () -> {
+            started.countDown();
+            await(release);
+            return create();
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertThrows(UserRequestInProgressException.class,
+                () -> impatient.execute("key", "request", String.class, this::create));
+        release.countDown();
+    }
+
+    @Test
+    void failedRequestReleasesKeyTest() {
+        assertThrows(IllegalStateException.class, () -> executor.execute(
+                "key", "request", String.class, () -> {
+                    throw new IllegalStateException("database is down");
+                }));
+
+        assertEquals("user-1", executor.execute("key", "request", String.class, this::create).value());
+    }
+
+    @Test
+    void abandonedClaimIsTakenOverAfterLeaseTest() {
+        InMemoryIdempotencyStore shortLease =
+                new InMemoryIdempotencyStore(100, Duration.ofMinutes(1), Duration.ZERO);
+        Instant first = Instant.now();
+        shortLease.claim("key", "fingerprint", first);
+
+        assertTrue(shortLease.claim("key", "fingerprint", first.plusMillis(1)).isEmpty());
+    }
+
+    @Test
+    void takenOverClaimCanNeitherCompleteNorReleaseTest() {
+        InMemoryIdempotencyStore shortLease =
+                new InMemoryIdempotencyStore(100, Duration.ofMinutes(1), Duration.ZERO);
+        Instant first = Instant.now();
+        Instant second = first.plusMillis(1);
+        shortLease.claim("key", "fingerprint", first);
+        shortLease.claim("key", "fingerprint", second);
+
+        shortLease.release("key", first);
+        assertFalse(shortLease.complete("key", first, "\"user-1\""));
+        assertTrue(shortLease.complete("key", second, "\"user-2\""));
+        assertEquals("\"user-2\"",
+                shortLease.claim("key", "fingerprint", second.plusMillis(1)).get().response());
+    }
+
+    @Test
+    void failedCompleteIsRetriedTest() {
+        AtomicInteger failures = new AtomicInteger(2);
+        IdempotentExecutor flaky = new IdempotentExecutor(new FlakyStore(store, failures),
+                objectMapper, WAIT_TIMEOUT);
+
+        assertEquals("user-1", flaky.execute("key", "request", String.class, this::create).value());
+        assertTrue(executor.execute("key", "request", String.class, this::create).replayed());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void requestFailsWhenResponseCantBeStoredTest() {
+        IdempotentExecutor broken = new IdempotentExecutor(
+                new FlakyStore(store, new AtomicInteger(Integer.MAX_VALUE)), objectMapper,
+                Duration.ofMillis(100));
+
+        assertThrows(IllegalStateException.class,
+                () -> broken.execute("key", "request", String.class, this::create));
+        assertThrows(UserRequestInProgressException.class,
+                () -> broken.execute("key", "request", String.class, this::create));
+        assertEquals(1, runs.get());
+    }
+
+    /**
+     * Fails to store responses as long as {@code failures} is positive.
+     */
+    private record FlakyStore(IdempotencyStore store, AtomicInteger failures)
+            implements IdempotencyStore {
+        @Override
+        public Optional<IdempotencyRecord> claim(String key, String fingerprint,
+                                                 Instant claimedAt) {
+            return store.claim(key, fingerprint, claimedAt);
+        }
+
+        @Override
+        public boolean complete(String key, Instant claimedAt, String response) {
+            if (failures.getAndDecrement() > 0) {
+                throw new IllegalStateException("database is down");
+            }
+            return store.complete(key, claimedAt, response);
+        }
+
+        @Override
+        public void release(String key, Instant claimedAt) {
+            store.release(key, claimedAt);
+        }
+    }
+
+    private String create() {
+        return "user-" + runs.incrementAndGet();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -3,35 +3,62 @@ package userservice.service.impl;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Slice;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionOperations;
 import userservice.dto.UserRequestDto;
+import userservice.dto.UserResponseDto;
 import userservice.dto.UserUpdateDto;
 import userservice.exception.UserAgeException;
 import userservice.exception.UserBirthdateException;
 import userservice.exception.UserEmptyFieldsException;
 import userservice.exception.UserNotFoundException;
+import userservice.exception.UserVersionMismatchException;
 import userservice.model.User;
+import userservice.model.UserChange;
 import userservice.repository.UserRepository;
 import userservice.service.UserService;
+import userservice.service.cache.InFlightLoads;
+import userservice.service.cache.UserCache;
+import userservice.service.cache.UserExistenceFilter;
+import userservice.service.changes.UserChangeFeed;
+import userservice.service.mapper.UserMapper;
+import userservice.service.pagination.BirthdateCursor;
+import userservice.service.validation.UserValidator;
 
 @ExtendWith(SpringExtension.class)
 @WebMvcTest(UserServiceImpl.class)
+@Import({UserValidator.class, UserMapper.class, InFlightLoads.class})
 class UserServiceImplTest {
     @Autowired
     private UserService userService;
@@ -39,6 +66,34 @@ class UserServiceImplTest {
     @MockBean
     private UserRepository userRepository;
 
+    @MockBean
+    private UserCache userCache;
+
+    @MockBean
+    private UserExistenceFilter existenceFilter;
+
+    @MockBean
+    private UserChangeFeed changeFeed;
+
+    @TestConfiguration
+    static class ServiceConfig {
+        @Bean
+        TransactionOperations transactionOperations() {
+            return TransactionOperations.withoutTransaction();
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @BeforeEach
+    public void setUp() {
+        when(existenceFilter.mightContainId(anyLong())).thenReturn(true);
+        when(existenceFilter.mightContainEmail(anyString())).thenReturn(true);
+    }
+
     @Test
     public void getUserByIdTest() {
         User mockUser = new User();
@@ -50,6 +105,28 @@ class UserServiceImplTest {
         assertEquals(1L, result.getId());
     }
 
+    @Test
+    public void getUserByIdFromCacheTest() {
+        User cachedUser = new User();
+        cachedUser.setId(1L);
+        when(userCache.get(1L)).thenReturn(Optional.of(cachedUser));
+
+        User result = userService.get(1L);
+        assertEquals(cachedUser, result);
+        verify(userRepository, times(0)).findById(anyLong());
+    }
+
+    @Test
+    public void getUserByIdCachesLoadedUserTest() {
+        User mockUser = new User();
+        mockUser.setId(1L);
+        when(userCache.stamp()).thenReturn(7L);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(mockUser));
+
+        userService.get(1L);
+        verify(userCache, times(1)).put(mockUser, 7L);
+    }
+
     @Test
     public void getUserByIdNotFoundTest() {
         when(userRepository.findById(anyLong())).thenReturn(Optional.empty());
@@ -58,6 +135,61 @@ class UserServiceImplTest {
                 userService.get(1L));
 
         assertTrue(exception.getMessage().contains("not found"));
+        assertEquals(0, exception.getStackTrace().length);
+    }
+
+    @Test
+    public void getUserByIdDefiniteMissSkipsDatabaseTest() {
+        when(existenceFilter.mightContainId(1L)).thenReturn(false);
+
+        assertThrows(UserNotFoundException.class, () -> userService.get(1L));
+        verify(userRepository, times(0)).findById(anyLong());
+    }
+
+    @Test
+    public void getByIdsCombinesCacheAndDatabaseInRequestOrderTest() {
+        User cachedUser = new User();
+        cachedUser.setId(2L);
+        User loadedUser = new User();
+        loadedUser.setId(1L);
+        when(userCache.get(2L)).thenReturn(Optional.of(cachedUser));
+        when(userCache.stamp()).thenReturn(7L);
+        when(existenceFilter.mightContainId(4L)).thenReturn(false);
+        when(userRepository.findAllByIdIn(List.of(3L, 1L))).thenReturn(List.of(loadedUser));
+
+        Map<Long, User> result = userService.getByIds(List.of(3L, 2L, 4L, 1L, 2L));
+
+        assertEquals(List.of(2L, 1L), new ArrayList<>(result.keySet()));
+        assertEquals(cachedUser, result.get(2L));
+        verify(userCache, times(1)).put(loadedUser, 7L);
+    }
+
+    @Test
+    public void getByIdsQueriesInChunksTest() {
+        ReflectionTestUtils.setField(userService, "lookupChunkSize", 2);
+        try {
+            userService.getByIds(List.of(1L, 2L, 3L, 4L, 5L));
+        } finally {
+            ReflectionTestUtils.setField(userService, "lookupChunkSize", 500);
+        }
+
+        verify(userRepository, times(1)).findAllByIdIn(List.of(1L, 2L));
+        verify(userRepository, times(1)).findAllByIdIn(List.of(3L, 4L));
+        verify(userRepository, times(1)).findAllByIdIn(List.of(5L));
+    }
+
+    @Test
+    public void findByPrefixNormalizesPrefixAndCapsLimitTest() {
+        List<User> users = List.of(new User());
+        when(userRepository.findByPrefix("ann", 50)).thenReturn(users);
+
+        assertEquals(users, userService.findByPrefix("  Ann ", 1000));
+    }
+
+    @Test
+    public void findByPrefixBlankSkipsDatabaseTest() {
+        assertTrue(userService.findByPrefix(" ", 10).isEmpty());
+        verify(userRepository, times(0)).findByPrefix(anyString(), anyInt());
     }
 
     @Test
@@ -77,11 +209,14 @@ class UserServiceImplTest {
         newUser.setLastname("Doe");
         newUser.setEmail("john@example.com");
         newUser.setBirthdate(LocalDate.now().minusYears(20));
+        newUser.setId(1L);
 
         when(userRepository.save(any(User.class))).thenReturn(newUser);
         User savedUser = userService.save(newUser);
         assertNotNull(savedUser);
         assertEquals("John", savedUser.getFirstname());
+        verify(existenceFilter, times(1)).addEmail("john@example.com");
+        verify(changeFeed, times(1)).record(UserChange.Type.CREATED, List.of(1L));
     }
 
     @Test
@@ -98,11 +233,44 @@ class UserServiceImplTest {
         assertTrue(exception.getMessage().contains("years old"));
     }
 
+    @Test
+    public void saveAllRejectsInvalidUsersAndPersistsTheRestTest() {
+        User validUser = new User();
+        validUser.setFirstname("John");
+        validUser.setLastname("Doe");
+        validUser.setEmail("john@example.com");
+        validUser.setBirthdate(LocalDate.now().minusYears(20));
+
+        User tooYoungUser = new User();
+        tooYoungUser.setFirstname("Jane");
+        tooYoungUser.setLastname("Doe");
+        tooYoungUser.setEmail("jane@example.com");
+        tooYoungUser.setBirthdate(LocalDate.now());
+
+        Map<Integer, String> rejected = userService.saveAll(
+                Arrays.asList(validUser, new User(), tooYoungUser));
+
+        assertEquals(2, rejected.size());
+        assertTrue(rejected.get(1).contains("missing"));
+        assertTrue(rejected.get(2).contains("years old"));
+        verify(userRepository, times(1)).persistAll(List.of(validUser));
+    }
+
+    @Test
+    public void saveAllWithOnlyInvalidUsersDoesNotPersistTest() {
+        Map<Integer, String> rejected = userService.saveAll(List.of(new User()));
+
+        assertEquals(1, rejected.size());
+        verify(userRepository, times(0)).persistAll(anyList());
+    }
+
     @Test
     public void deleteUserTest() {
         doNothing().when(userRepository).deleteById(anyLong());
         userService.delete(1L);
         verify(userRepository, times(1)).deleteById(1L);
+        verify(changeFeed, times(1)).record(UserChange.Type.DELETED, List.of(1L));
+        verify(userCache, times(1)).evict(1L);
     }
 
     @Test
@@ -116,6 +284,17 @@ class UserServiceImplTest {
         assertEquals("john@example.com", foundUser.getEmail());
     }
 
+    @Test
+    public void findByEmailFromCacheTest() {
+        User cachedUser = new User();
+        cachedUser.setEmail("john@example.com");
+        when(userCache.getByEmail("john@example.com")).thenReturn(Optional.of(cachedUser));
+
+        User foundUser = userService.findByEmail("john@example.com");
+        assertEquals(cachedUser, foundUser);
+        verify(userRepository, times(0)).findByEmail(anyString());
+    }
+
     @Test
     public void findByEmailNotFoundTest() {
         when(userRepository.findByEmail(anyString())).thenReturn(Optional.empty());
@@ -126,6 +305,15 @@ class UserServiceImplTest {
         assertTrue(exception.getMessage().contains("not found"));
     }
 
+    @Test
+    public void findByEmailDefiniteMissSkipsDatabaseTest() {
+        when(existenceFilter.mightContainEmail("notfound@example.com")).thenReturn(false);
+
+        assertThrows(UserNotFoundException.class, () ->
+                userService.findByEmail("notfound@example.com"));
+        verify(userRepository, times(0)).findByEmail(anyString());
+    }
+
     @Test
     public void getAllUsersTest() {
         List<User> users = Arrays.asList(new User(), new User());
@@ -136,16 +324,46 @@ class UserServiceImplTest {
         assertEquals(2, result.size());
     }
 
+    @Test
+    public void exportAllPassesEveryUserToConsumerTest() {
+        UserResponseDto first = new UserResponseDto();
+        first.setId(1L);
+        UserResponseDto second = new UserResponseDto();
+        second.setId(2L);
+        when(userRepository.streamAllAfter(0L)).thenReturn(Stream.of(first, second));
+
+        List<UserResponseDto> exported = new ArrayList<>();
+        userService.exportAll(0L, exported::add);
+
+        assertEquals(List.of(first, second), exported);
+    }
+
     @Test
     public void findByBirthDateRangeValidTest() {
         LocalDate from = LocalDate.now().minusYears(30);
         LocalDate to = LocalDate.now().minusYears(20);
-        List<User> users = Arrays.asList(new User(), new User());
-        when(userRepository.findByBirthdateBetween(from, to)).thenReturn(users);
+        List<UserResponseDto> users = Arrays.asList(new UserResponseDto(), new UserResponseDto());
+        when(userRepository.findByBirthdateRangeAfter(to, from, Long.MIN_VALUE, Limit.of(11)))
+                .thenReturn(users);
 
-        List<User> result = userService.findByBirthDateRange(from, to);
+        Slice<UserResponseDto> result = userService.findByBirthDateRange(from, to, null, 10);
         assertNotNull(result);
-        assertEquals(2, result.size());
+        assertEquals(2, result.getNumberOfElements());
+        assertFalse(result.hasNext());
+    }
+
+    @Test
+    public void findByBirthDateRangeNextPageTest() {
+        LocalDate from = LocalDate.now().minusYears(30);
+        LocalDate to = LocalDate.now().minusYears(20);
+        BirthdateCursor after = new BirthdateCursor(from.plusYears(1), 42L);
+        List<UserResponseDto> users = Arrays.asList(new UserResponseDto(), new UserResponseDto());
+        when(userRepository.findByBirthdateRangeAfter(to, after.birthdate(), 42L, Limit.of(2)))
+                .thenReturn(users);
+
+        Slice<UserResponseDto> result = userService.findByBirthDateRange(from, to, after, 1);
+        assertEquals(1, result.getNumberOfElements());
+        assertTrue(result.hasNext());
     }
 
     @Test
@@ -154,26 +372,77 @@ class UserServiceImplTest {
         LocalDate to = LocalDate.now().minusYears(30);
 
         Exception exception = assertThrows(UserBirthdateException.class, () ->
-                userService.findByBirthDateRange(from, to));
+                userService.findByBirthDateRange(from, to, null, 10));
 
         assertTrue(exception.getMessage().contains("should be less than"));
     }
 
     @Test
     public void updatePartialValidTest() {
-        User existingUser = new User();
-        existingUser.setId(1L);
-        existingUser.setFirstname("Old Name");
+        User updatedUser = new User();
+        updatedUser.setId(1L);
+        updatedUser.setFirstname("New Name");
 
         UserUpdateDto updateDto = new UserUpdateDto();
         updateDto.setFirstname("New Name");
+        updateDto.setLastname("");
 
-        when(userRepository.findById(1L)).thenReturn(Optional.of(existingUser));
-        when(userRepository.save(any(User.class))).thenReturn(existingUser);
+        User changes = new User();
+        changes.setFirstname("New Name");
+        when(userRepository.updatePartial(1L, changes, null)).thenReturn(Optional.of(updatedUser));
 
-        User result = userService.updatePartial(1L, updateDto);
+        User result = userService.updatePartial(1L, updateDto, null);
         assertNotNull(result);
         assertEquals("New Name", result.getFirstname());
+        verify(userRepository, times(0)).findById(anyLong());
+        verify(userRepository, times(0)).save(any(User.class));
+        verify(changeFeed, times(1)).record(UserChange.Type.UPDATED, List.of(1L));
+        verify(userCache, times(1)).evict(1L, (String) null);
+    }
+
+    @Test
+    public void updatePartialNotFoundTest() {
+        UserUpdateDto updateDto = new UserUpdateDto();
+        updateDto.setFirstname("New Name");
+        when(userRepository.updatePartial(anyLong(), any(User.class), isNull()))
+                .thenReturn(Optional.empty());
+
+        assertThrows(UserNotFoundException.class,
+                () -> userService.updatePartial(1L, updateDto, null));
+        verify(changeFeed, times(0)).record(any(), anyList());
+    }
+
+    @Test
+    public void updatePartialWithStaleVersionTest() {
+        UserUpdateDto updateDto = new UserUpdateDto();
+        updateDto.setFirstname("New Name");
+        when(userRepository.updatePartial(anyLong(), any(User.class), any()))
+                .thenReturn(Optional.empty());
+        when(userRepository.existsById(1L)).thenReturn(true);
+
+        assertThrows(UserVersionMismatchException.class,
+                () -> userService.updatePartial(1L, updateDto, 2L));
+        verify(userCache, times(0)).evict(anyLong(), any(String[].class));
+    }
+
+    @Test
+    public void updatePartialWithInvalidAgeTest() {
+        UserUpdateDto updateDto = new UserUpdateDto();
+        updateDto.setBirthdate(LocalDate.now().minusYears(1));
+
+        assertThrows(UserAgeException.class, () -> userService.updatePartial(1L, updateDto, null));
+        verify(userRepository, times(0)).updatePartial(anyLong(), any(User.class), any());
+    }
+
+    @Test
+    public void updatePartialWithoutChangesReturnsCurrentUserTest() {
+        User existingUser = new User();
+        existingUser.setId(1L);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(existingUser));
+
+        User result = userService.updatePartial(1L, new UserUpdateDto(), null);
+        assertEquals(existingUser, result);
+        verify(userRepository, times(0)).updatePartial(anyLong(), any(User.class), any());
     }
 
     @Test
@@ -191,8 +460,48 @@ class UserServiceImplTest {
         when(userRepository.findById(1L)).thenReturn(Optional.of(existingUser));
         when(userRepository.save(any(User.class))).thenReturn(existingUser);
 
-        User result = userService.updateComplete(1L, requestDto);
+        User result = userService.updateComplete(1L, requestDto, null);
         assertNotNull(result);
         assertEquals("New Name", result.getFirstname());
     }
+
+    @Test
+    public void updateCompleteWithStaleVersionTest() {
+        User existingUser = new User();
+        existingUser.setId(1L);
+        existingUser.setVersion(3L);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(existingUser));
+
+        assertThrows(UserVersionMismatchException.class,
+                () -> userService.updateComplete(1L, new UserRequestDto(), 2L));
+        verify(userRepository, times(0)).save(any(User.class));
+    }
+
+    @Test
+    public void getVersionFromCacheTest() {
+        User cachedUser = new User();
+        cachedUser.setId(1L);
+        cachedUser.setVersion(4L);
+        when(userCache.get(1L)).thenReturn(Optional.of(cachedUser));
+
+        assertEquals(4L, userService.getVersion(1L));
+        verify(userRepository, times(0)).findVersionById(anyLong());
+    }
+
+    @Test
+    public void getVersionByEmailSkipsEntityTest() {
+        when(userCache.getByEmail("john@example.com")).thenReturn(Optional.empty());
+        when(userRepository.findVersionByEmail("john@example.com")).thenReturn(Optional.of(2L));
+
+        assertEquals(2L, userService.getVersionByEmail("john@example.com"));
+        verify(userRepository, times(0)).findByEmail(anyString());
+    }
+
+    @Test
+    public void getVersionNotFoundTest() {
+        when(userCache.get(1L)).thenReturn(Optional.empty());
+        when(userRepository.findVersionById(1L)).thenReturn(Optional.empty());
+
+        assertThrows(UserNotFoundException.class, () -> userService.getVersion(1L));
+    }
 }
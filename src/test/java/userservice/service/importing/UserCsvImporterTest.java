@@ -0,0 +1,196 @@
+package userservice.service.importing;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.support.TransactionOperations;
+import userservice.dto.UserImportProgressDto;
+import userservice.dto.UserImportRejectionDto;
+import userservice.exception.UserImportException;
+import userservice.model.User;
+import userservice.model.UserChange;
+import userservice.repository.UserRepository;
+import userservice.service.cache.UserExistenceFilter;
+import userservice.service.changes.UserChangeFeed;
+import userservice.service.mapper.UserMapper;
+import userservice.service.validation.UserValidator;
+
+@ExtendWith(SpringExtension.class)
+@WebMvcTest(UserCsvImporter.class)
+@Import({UserValidator.class, UserMapper.class})
+@TestPropertySource(properties = "user.import.chunk_size=2")
+class UserCsvImporterTest {
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+    private static final String HEADER = "email,firstname,lastname,birthdate,address,phone_number\n";
+
+    @Autowired
+    private UserCsvImporter csvImporter;
+
+    @MockBean
+    private UserRepository userRepository;
+
+    @MockBean
+    private UserExistenceFilter existenceFilter;
+
+    @MockBean
+    private UserChangeFeed changeFeed;
+
+    @TestConfiguration
+    static class TransactionConfig {
+        @Bean
+        TransactionOperations transactionOperations() {
+            return TransactionOperations.withoutTransaction();
+        }
+    }
+
+    private final List<List<User>> copied = new ArrayList<>();
+    private final List<UserImportRejectionDto> rejections = new ArrayList<>();
+    private final List<UserImportProgressDto> progress = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        doAnswer(invocation -> {
+            List<User> users = invocation.getArgument(0);
+            users.forEach(user -> user.setId(100L + user.getEmail().charAt(0)));
+            copied.add(List.copyOf(users));
+            return null;
+        }).when(userRepository).copyAll(anyList());
+    }
+
+    @Test
+    void importsValidRowsInChunksTest() throws IOException {
+        UserImportProgressDto summary = importCsv(HEADER
+                + "a@example.com,Ann,Lee,01.02.1990,,\n"
+                + "b@example.com,Bob,Lee,02.03.1985,Kyiv,+380123456789\r\n"
+                + "c@example.com,Cid,Lee,03.04.1970,,\n");
+
+        assertEquals(2, copied.size());
+        assertEquals(2, copied.get(0).size());
+        assertEquals(1, copied.get(1).size());
+        User bob = copied.get(0).get(1);
+        assertEquals("Bob", bob.getFirstname());
+        assertEquals(LocalDate.of(1985, 3, 2), bob.getBirthdate());
+        assertEquals("Kyiv", bob.getAddress());
+        assertEquals("+380123456789", bob.getPhoneNumber());
+        assertNull(copied.get(0).get(0).getAddress());
+        verify(existenceFilter).addEmail("c@example.com");
+        verify(existenceFilter).addId(100L + 'c');
+        verify(changeFeed).record(UserChange.Type.CREATED, List.of(100L + 'c'));
+
+        assertEquals(List.of(new UserImportProgressDto(2, 2, 0, false),
+                new UserImportProgressDto(3, 3, 0, true)), progress);
+        assertEquals(progress.get(1), summary);
+        assertTrue(rejections.isEmpty());
+    }
+
+    @Test
+    void rejectsInvalidRowsTest() throws IOException {
+        UserImportProgressDto summary = importCsv(HEADER
+                + "not-an-email,Ann,Lee,01.02.1990,,\n"
+                + "b@example.com,Bob,Lee," + LocalDate.now().minusYears(1).format(DATE_FORMAT)
+                + ",,\n"
+                + "c@example.com,Cid,,01.02.1990,,\n"
+                + "d@example.com,Dan,Lee,1990-02-01,,\n"
+                + "e@example.com,Eve,Lee,01.02.1990,,+1\n"
+                + "f@example.com,Fay,Lee\n"
+                + "g@example.com,Gil,Lee,01.02.1990,,\n");
+
+        assertEquals(List.of(
+                new UserImportRejectionDto(2, "email: Email should be valid"),
+                new UserImportRejectionDto(3, "User must be at least 18 years old."),
+                new UserImportRejectionDto(4, "lastname: Lastname is required"),
+                new UserImportRejectionDto(5, "birthdate: Expected format dd.MM.yyyy but was "
+                        + "1990-02-01"),
+                new UserImportRejectionDto(6, "phoneNumber: Invalid phone number format. "
+                        + "Expected format: +380XXXXXXXXX"),
+                new UserImportRejectionDto(7, "Expected 6 values but found 3")), rejections);
+        assertEquals(new UserImportProgressDto(7, 1, 6, true), summary);
+        assertEquals("g@example.com", copied.get(copied.size() - 1).get(0).getEmail());
+    }
+
+    @Test
+    void readsQuotedValuesAndReorderedColumnsTest() throws IOException {
+        importCsv("\uFEFFlastname,firstname,email,birthdate,address\n"
+                + "\"Lee, Jr.\",\"Ann \"\"Annie\"\"\",a@example.com,01.02.1990,\"Main St\n"
+                + "Kyiv\"\n"
+                + "\n"
+                + "Lee,Bob,not-an-email,01.02.1990,\n");
+
+        User ann = copied.get(0).get(0);
+        assertEquals("Lee, Jr.", ann.getLastname());
+        assertEquals("Ann \"Annie\"", ann.getFirstname());
+        assertEquals("Main St\nKyiv", ann.getAddress());
+        assertNull(ann.getPhoneNumber());
+        assertEquals(5, rejections.get(0).getLine());
+    }
+
+    @Test
+    void rejectsTooLongRecordsTest() throws IOException {
+        String longValue = "x".repeat(UserCsvReader.MAX_RECORD_LENGTH);
+        UserImportProgressDto summary = importCsv(HEADER
+                + "a@example.com,Ann,Lee,01.02.1990,\"" + longValue + "\",\n"
+                + "b@example.com,Bob,Lee,01.02.1990,,\n"
+                + "c@example.com,Cid,Lee,01.02.1990,\"" + longValue + longValue + "\",\n");
+
+        assertEquals(List.of(
+                new UserImportRejectionDto(2, "Record is longer than "
+                        + UserCsvReader.MAX_RECORD_LENGTH + " characters"),
+                new UserImportRejectionDto(4, "Record is longer than "
+                        + UserCsvReader.MAX_RECORD_LENGTH + " characters")), rejections);
+        assertEquals(new UserImportProgressDto(3, 1, 2, true), summary);
+        assertEquals("b@example.com", copied.get(0).get(0).getEmail());
+    }
+
+    @Test
+    void requiresKnownColumnsTest() {
+        assertThrows(UserImportException.class, () -> csvImporter.open(new StringReader("")));
+        assertThrows(UserImportException.class,
+                () -> csvImporter.open(new StringReader("email,nickname\n")));
+        assertThrows(UserImportException.class,
+                () -> csvImporter.open(new StringReader("email,Email\n")));
+    }
+
+    @Test
+    void emptyFileImportsNothingTest() throws IOException {
+        UserImportProgressDto summary = importCsv(HEADER);
+
+        assertEquals(new UserImportProgressDto(0, 0, 0, true), summary);
+        verify(userRepository, never()).copyAll(anyList());
+    }
+
+    private UserImportProgressDto importCsv(String csv) throws IOException {
+        try (UserCsvReader csvReader = csvImporter.open(new StringReader(csv))) {
+            return csvImporter.importAll(csvReader, new UserImportListener() {
+                @Override
+                public void onRejected(UserImportRejectionDto rejection) {
+                    rejections.add(rejection);
+                }
+
+                @Override
+                public void onProgress(UserImportProgressDto update) {
+                    progress.add(update);
+                }
+            });
+        }
+    }
+}
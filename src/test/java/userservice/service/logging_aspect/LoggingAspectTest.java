@@ -0,0 +1,81 @@
+package userservice.service.logging_aspect;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import userservice.model.User;
+
+class LoggingAspectTest {
+    private SimpleMeterRegistry meterRegistry;
+    private SampleService sampleService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new SampleService());
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(new LoggingAspect(meterRegistry));
+        sampleService = proxyFactory.getProxy();
+    }
+
+    @Test
+    void recordsExecutionTimePerMethodTest() {
+        sampleService.greet("John");
+        sampleService.greet("Jane");
+
+        Timer timer = meterRegistry.get(LoggingAspect.METHOD_TIMER)
+                .tags("layer", "service", "class", "SampleService", "method", "greet")
+                .timer();
+        assertEquals(2, timer.count());
+        assertTrue(timer.totalTime(TimeUnit.NANOSECONDS) > 0);
+    }
+
+    @Test
+    void countsErrorsTest() {
+        assertThrows(IllegalArgumentException.class, () -> sampleService.fail());
+
+        assertEquals(1.0, meterRegistry.get(LoggingAspect.METHOD_ERRORS)
+                .tags("method", "fail").counter().count());
+        assertEquals(1, meterRegistry.get(LoggingAspect.METHOD_TIMER)
+                .tags("method", "fail").timer().count());
+    }
+
+    @Test
+    void renderSummarisesCollectionsAndUsersTest() {
+        User user = new User();
+        user.setId(7L);
+        user.setEmail("john@example.com");
+
+        assertEquals("ArrayList(size=2)", LogRenderer.render(new ArrayList<>(List.of(user, user))));
+        assertEquals("User(id=7)", LogRenderer.render(user));
+        assertEquals("ResponseEntity(status=200, body=User(id=7))",
+                LogRenderer.render(ResponseEntity.ok(user)));
+    }
+
+    @Test
+    void renderHidesStringsTest() {
+        assertEquals("[String(length=16), String(length=3), 1, null]",
+                LogRenderer.renderAll(new Object[]{"john@example.com", "Doe", 1L, null}));
+    }
+
+    @Service
+    static class SampleService {
+        public String greet(String name) {
+            return "Hello, " + name;
+        }
+
+        public void fail() {
+            throw new IllegalArgumentException("Invalid argument");
+        }
+    }
+}